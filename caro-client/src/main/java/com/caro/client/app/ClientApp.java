@@ -9,6 +9,8 @@ public class ClientApp extends Application {
     public void start(Stage primaryStage) {
         ViewManager.getInstance().setPrimaryStage(primaryStage);
         ViewManager.getInstance().showLogin();
+        // Lobby and room views load in the background while the user types
+        ViewManager.getInstance().preload();
     }
 
     public static void main(String[] args) {
@@ -1,20 +1,64 @@
 package com.caro.client.app;
 
+import com.caro.client.controller.ViewController;
+import com.caro.common.util.LatencyHistogram;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Owns the stage and one cached scene per view.
+ *
+ * Each FXML file is loaded once, together with its controller. The lobby and room views
+ * are preloaded on background threads while the login view is up, so the first switch
+ * to them only wraps the ready node tree in a Scene. Switching to the view that is
+ * already showing does nothing, so repeated showRoom() calls (one per room update) keep
+ * the view and its state.
+ */
 public class ViewManager {
     private static ViewManager instance;
     private Stage primaryStage;
-    
+
+    private static final String LOGIN = "LoginView.fxml";
+    private static final String LOBBY = "LobbyView.fxml";
+    private static final String ROOM = "RoomView.fxml";
+
+    private static final class View {
+        final Parent root;
+        final Object controller;
+        Scene scene; // Created on the FX thread on first show
+
+        View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+    }
+
+    // FXML file -> view, loaded or loading
+    private final Map<String, CompletableFuture<View>> views = new ConcurrentHashMap<>();
     // Store controllers so CallbackImpl can access them
-    private final Map<String, Object> controllers = new HashMap<>();
+    private final Map<String, Object> controllers = new ConcurrentHashMap<>();
+    private final ExecutorService loader = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "view-preload");
+        t.setDaemon(true);
+        return t;
+    });
+    private View current;
+
+    // Time from a show call until the new scene has been laid out, per view
+    private final Map<String, LatencyHistogram> switchTimes = new ConcurrentSkipListMap<>();
 
     private ViewManager() {}
 
@@ -27,35 +71,100 @@ public class ViewManager {
         this.primaryStage = stage;
     }
 
+    // Starts loading the other views in parallel; call once the login view is up
+    public void preload() {
+        long start = System.nanoTime();
+        CompletableFuture.allOf(load(LOBBY, "LOBBY_CONTROLLER"), load(ROOM, "ROOM_CONTROLLER"))
+                .whenComplete((v, e) -> {
+                    if (e != null) System.err.println("View preload failed: " + e.getMessage());
+                    else System.out.println("Views preloaded in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                });
+    }
+
     public void showLogin() {
-        switchScene("LoginView.fxml", "Login", "LOGIN_CONTROLLER");
+        switchScene(LOGIN, "Login", "LOGIN_CONTROLLER");
     }
 
     public void showLobby() {
-        switchScene("LobbyView.fxml", "Lobby", "LOBBY_CONTROLLER");
+        switchScene(LOBBY, "Lobby", "LOBBY_CONTROLLER");
     }
 
     public void showRoom() {
-        switchScene("RoomView.fxml", "Room", "ROOM_CONTROLLER");
+        switchScene(ROOM, "Room", "ROOM_CONTROLLER");
     }
 
-    private void switchScene(String fxmlFile, String title, String controllerKey) {
+    private CompletableFuture<View> load(String fxmlFile, String controllerKey) {
+        return views.computeIfAbsent(fxmlFile, f -> CompletableFuture.supplyAsync(() -> {
+            View view = loadView(f);
+            // Save the controller so we can update it later
+            controllers.put(controllerKey, view.controller);
+            return view;
+        }, loader));
+    }
+
+    private View loadView(String fxmlFile) {
+        long start = System.nanoTime();
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/" + fxmlFile));
             Parent root = loader.load();
-            
-            // Save the controller so we can update it later
-            controllers.put(controllerKey, loader.getController());
-            
-            primaryStage.setTitle("Caro Game - " + title);
-            primaryStage.setScene(new Scene(root));
-            primaryStage.show();
+            System.out.println("Loaded " + fxmlFile + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                    + " ms on " + Thread.currentThread().getName());
+            return new View(root, loader.getController());
         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void switchScene(String fxmlFile, String title, String controllerKey) {
+        long start = System.nanoTime();
+        View view;
+        try {
+            // Normally preloaded already; otherwise this waits for (or starts) the load
+            view = load(fxmlFile, controllerKey).join();
+        } catch (RuntimeException e) {
             e.printStackTrace();
+            views.remove(fxmlFile); // Let the next attempt retry
+            return;
+        }
+        if (view == current) return;
+
+        if (current != null && current.controller instanceof ViewController) {
+            ((ViewController) current.controller).onHide();
         }
+        if (view.scene == null) view.scene = new Scene(view.root);
+        current = view;
+
+        primaryStage.setTitle("Caro Game - " + title);
+        primaryStage.setScene(view.scene);
+        primaryStage.show();
+        if (view.controller instanceof ViewController) ((ViewController) view.controller).onShow();
+
+        LatencyHistogram histogram = switchTimes.computeIfAbsent(title.toLowerCase(), k -> new LatencyHistogram("us"));
+        view.scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                view.scene.removePostLayoutPulseListener(this);
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                histogram.record(micros);
+                if (fxmlFile.equals(LOGIN) && histogram.getCount() == 1) logStartup();
+                System.out.println("Switched to " + title + " in " + micros + " us");
+            }
+        });
+    }
+
+    // JVM start until the login view was first laid out
+    private void logStartup() {
+        long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println("Startup: login view ready " + millis + " ms after JVM start");
     }
-    
+
     public Object getController(String key) {
         return controllers.get(key);
     }
+
+    public String dump() {
+        StringBuilder sb = new StringBuilder("--- view switches ---\n");
+        switchTimes.forEach((name, histogram) -> sb.append(name).append(' ').append(histogram).append('\n'));
+        return sb.toString();
+    }
 }
@@ -1,36 +1,72 @@
 package com.caro.client.controller;
 
 import com.caro.client.app.ViewManager;
+import com.caro.client.model.LobbyModel;
+import com.caro.client.rmi.ClientEventInbox;
+import com.caro.client.rmi.CommandExecutor;
 import com.caro.client.rmi.RmiClientManager;
+import com.caro.client.view.LeaderboardViewer;
+import com.caro.client.view.ReplayViewer;
+import com.caro.common.model.ClientEvent;
 import com.caro.common.model.GameSettings;
+import com.caro.common.model.MatchPreferences;
 import com.caro.common.model.Room;
-import javafx.application.Platform;
+import com.caro.common.model.RoomQuery;
+import com.caro.common.service.GameService;
+import com.caro.common.util.GameConstants;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
-import javafx.util.Callback;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputDialog;
 
-import java.rmi.RemoteException;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
-public class LobbyController {
+public class LobbyController implements ViewController {
 
     @FXML private Label welcomeLabel;
+    @FXML private Label pendingLabel;
     @FXML private ListView<Room> roomListView;
     @FXML private ListView<String> onlineUserList;
+    @FXML private Button quickMatchButton;
+    @FXML private TextField roomFilterField;
+    @FXML private CheckBox openOnlyCheckBox;
+
+    private boolean searching = false;
+    private boolean usersLoaded = false;
 
     private final ObservableList<String> onlineUsers = FXCollections.observableArrayList();
-    private final ObservableList<Room> rooms = FXCollections.observableArrayList();
+    private final LobbyModel lobby = LobbyModel.getInstance();
+
+    // Open rooms first, then by name; ties by id so the order is stable
+    private static final Comparator<Room> ROOM_ORDER = Comparator
+            .comparing((Room r) -> r.getGuestUsername() != null)
+            .thenComparing(Room::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Room::getId);
+
+    // Lobby actions share one lane so e.g. a join cannot overtake a cancelled quick match
+    private static final String LOBBY_LANE = "lobby";
+    private final CommandExecutor commands = CommandExecutor.getInstance();
 
     @FXML
     public void initialize() {
-        String username = RmiClientManager.getInstance().getUsername();
-        welcomeLabel.setText("Welcome to Caro, " + username + "!");
+        pendingLabel.visibleProperty().bind(commands.pendingProperty().greaterThan(0));
         
-        roomListView.setItems(rooms);
+        // Views over the shared model: a room change moves or redraws only its own row
+        FilteredList<Room> filtered = new FilteredList<>(lobby.getRooms());
+        roomFilterField.textProperty().addListener((obs, old, text) -> updateFilter(filtered));
+        openOnlyCheckBox.selectedProperty().addListener((obs, old, selected) -> updateFilter(filtered));
+        roomListView.setItems(new SortedList<>(filtered, ROOM_ORDER));
         onlineUserList.setItems(onlineUsers);
         
         // Custom Cell Factory to display room details nicely
@@ -46,110 +82,147 @@ public class LobbyController {
                     setText(item.getName() + " | " + item.getHostUsername() + "'s Room [" + status + "]");
                     
                     setStyle("-fx-text-fill: black;"); 
-                    // Double click to join
+                    // Double click to join (or watch, if the room is full)
                     setOnMouseClicked(event -> {
-                        if (event.getClickCount() == 2 && item.getGuestUsername() == null) {
+                        if (event.getClickCount() != 2) return;
+                        if (item.getGuestUsername() == null) {
                             handleJoinRoom(item);
+                        } else {
+                            handleSpectateRoom(item);
                         }
                     });
                 }
             }
         });
-        refreshRoomList();
-        refreshOnlineUsers();
     }
 
-    // Called by ClientCallbackImpl via ViewManager
-    public void updateRoomList(List<Room> newRooms) {
-        Platform.runLater(() -> {
-            System.out.println("LobbyController received rooms: " + newRooms.size());
-            rooms.clear();
-            rooms.addAll(newRooms);
-            roomListView.refresh();
-        });
+    @Override
+    public void onShow() {
+        String username = RmiClientManager.getInstance().getUsername();
+        welcomeLabel.setText("Welcome to Caro, " + username + "!");
+        // Pushes keep both lists current; only fetch what has not arrived yet
+        if (!lobby.isSynced()) refreshRoomList();
+        if (!usersLoaded) refreshOnlineUsers();
+    }
+
+    @Override
+    public void onHide() {
+        // A quick match that found a room is no longer queued
+        searching = false;
+        quickMatchButton.setText("Quick Match");
+    }
+
+    private void updateFilter(FilteredList<Room> filtered) {
+        String text = roomFilterField.getText() == null ? "" : roomFilterField.getText().trim().toLowerCase(Locale.ROOT);
+        boolean openOnly = openOnlyCheckBox.isSelected();
+        filtered.setPredicate(room -> (!openOnly || room.getGuestUsername() == null)
+                && (text.isEmpty()
+                    || room.getName().toLowerCase(Locale.ROOT).contains(text)
+                    || room.getHostUsername().toLowerCase(Locale.ROOT).contains(text)));
     }
 
     @FXML
     private void handleCreateRoom() {
-        try {
-            String user = RmiClientManager.getInstance().getUsername();
-            // Default settings for now
-            GameSettings settings = new GameSettings(10, 5, 10); 
-            
-            RmiClientManager.getInstance().getService().createRoom(user, settings);
-            
-            // Upon success, the server will call our 'onRoomInfoUpdate' or we assume success.
-            // Ideally, we wait for a callback confirmation or specific event to switch view.
-            // For MVP simplicity, let's switch to RoomView immediately? 
-            // Better: Wait for the 'onRoomInfoUpdate' callback to switch everyone.
-             ViewManager.getInstance().showRoom();
-             
-        } catch (RemoteException e) {
-            e.printStackTrace();
-        }
+        String user = RmiClientManager.getInstance().getUsername();
+        // Default settings for now
+        GameSettings settings = new GameSettings(10, 5, 10); 
+        
+        // The server answers with onRoomInfoUpdate; switch as soon as the call went through
+        commands.run("createRoom", LOBBY_LANE, service -> service.createRoom(user, settings))
+                .thenRunAsync(() -> ViewManager.getInstance().showRoom(), CommandExecutor.FX);
     }
     
-    private void handleJoinRoom(Room room) {
-         try {
-            String user = RmiClientManager.getInstance().getUsername();
-            RmiClientManager.getInstance().getService().joinRoom(user, room.getId());
-        } catch (RemoteException e) {
-            e.printStackTrace();
-            // Show alert "Room full"
+    @FXML
+    private void handleQuickMatch() {
+        String user = RmiClientManager.getInstance().getUsername();
+        quickMatchButton.setDisable(true);
+        CompletableFuture<Void> call;
+        if (searching) {
+            call = commands.run("cancelQuickMatch", LOBBY_LANE, service -> service.cancelQuickMatch(user))
+                    .thenRunAsync(() -> {
+                        searching = false;
+                        quickMatchButton.setText("Quick Match");
+                    }, CommandExecutor.FX);
+        } else {
+            // Same defaults as Create Room; the server opens the room once paired
+            MatchPreferences prefs = new MatchPreferences(10, 5, 10, 200);
+            call = commands.run("quickMatch", LOBBY_LANE, service -> service.quickMatch(user, prefs))
+                    .thenRunAsync(() -> {
+                        searching = true;
+                        quickMatchButton.setText("Searching... (Cancel)");
+                    }, CommandExecutor.FX);
         }
+        call.whenCompleteAsync((v, e) -> quickMatchButton.setDisable(false), CommandExecutor.FX);
+    }
+
+    @FXML
+    private void handleWatchReplay() {
+        // Ids are announced in the room chat when a round ends ("Replay of this round: #12")
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Watch Replay");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Replay #:");
+        dialog.showAndWait().ifPresent(text -> {
+            try {
+                ReplayViewer.open(Long.parseLong(text.trim().replace("#", "")));
+            } catch (NumberFormatException e) {
+                // Nothing to open
+            }
+        });
+    }
+
+    @FXML
+    private void handleLeaderboard() {
+        LeaderboardViewer.open(RmiClientManager.getInstance().getUsername());
+    }
+
+    private void handleJoinRoom(Room room) {
+        String user = RmiClientManager.getInstance().getUsername();
+        commands.run("joinRoom", LOBBY_LANE, service -> service.joinRoom(user, room.getId()));
+    }
+
+    private void handleSpectateRoom(Room room) {
+        String user = RmiClientManager.getInstance().getUsername();
+        commands.run("spectateRoom", LOBBY_LANE, service -> service.spectateRoom(user, room.getId()));
     }
 
     @FXML
     private void handleLogout() {
-        try {
-            String user = RmiClientManager.getInstance().getUsername();
-            RmiClientManager.getInstance().getService().logout(user);
-            
-            // Stop heartbeat!
-            RmiClientManager.getInstance().stop(); // You need to implement stop() to kill the thread
-            
-            ViewManager.getInstance().showLogin();
-        } catch (RemoteException e) {
-            e.printStackTrace();
-        }
+        String user = RmiClientManager.getInstance().getUsername();
+        commands.run("logout", LOBBY_LANE, service -> service.logout(user))
+                .whenCompleteAsync((v, e) -> {
+                    // Stop heartbeat! (even if the server did not hear us, it times us out)
+                    RmiClientManager.getInstance().stop();
+                    lobby.clear();
+                    onlineUsers.clear();
+                    usersLoaded = false;
+                    ViewManager.getInstance().showLogin();
+                }, CommandExecutor.FX);
     }
 
     public void updateUserList(List<String> users) {
-        Platform.runLater(() -> {
-            String myName = RmiClientManager.getInstance().getUsername();
-            
-            onlineUsers.clear();
-            for (String user : users) {
-                // EXCLUDE SELF
-                if (!user.equals(myName)) {
-                    onlineUsers.add(user);
-                }
+        String myName = RmiClientManager.getInstance().getUsername();
+        
+        usersLoaded = true;
+        onlineUsers.clear();
+        for (String user : users) {
+            // EXCLUDE SELF
+            if (!user.equals(myName)) {
+                onlineUsers.add(user);
             }
-        });
+        }
     }
 
     private void refreshOnlineUsers() {
-        new Thread(() -> {
-            try {
-                List<String> users = RmiClientManager.getInstance().getService().getOnlineUsers();
-                updateUserList(users);
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-        }).start();
+        // Same path as pushes, so a newer pushed list in the same frame wins
+        commands.submit("getOnlineUsers", null, GameService::getOnlineUsers)
+                .thenAccept(users -> ClientEventInbox.getInstance().post(ClientEvent.Type.USER_LIST, users));
     }
 
     private void refreshRoomList() {
-        new Thread(() -> {
-            try {
-                // Manually ask server for the list
-                List<Room> rooms = RmiClientManager.getInstance().getService().getAllRooms();
-                
-                // Update UI on JavaFX Thread
-                Platform.runLater(() -> updateRoomList(rooms));
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-        }).start();
+        // Manually ask server for the first page (only what the list can show)
+        RoomQuery query = new RoomQuery(GameConstants.LOBBY_PAGE_SIZE);
+        commands.submit("queryRooms", null, service -> service.queryRooms(query).getRooms())
+                .thenAccept(rooms -> ClientEventInbox.getInstance().post(ClientEvent.Type.LOBBY_UPDATE, rooms));
     }
 }
@@ -5,18 +5,29 @@ import com.caro.client.rmi.RmiClientManager;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 
-public class LoginController {
+public class LoginController implements ViewController {
 
     @FXML private TextField usernameField;
+    @FXML private PasswordField passwordField;
     @FXML private TextField serverAddressField;
     @FXML private Label statusLabel;
     @FXML private Button loginButton;
 
+    @Override
+    public void onShow() {
+        // Back from a logout: the view still shows the last attempt
+        statusLabel.setText("");
+        passwordField.clear();
+        loginButton.setDisable(false);
+    }
+
     @FXML
     private void handleLogin() {
         String username = usernameField.getText().trim();
+        String password = passwordField.getText();
         String address = serverAddressField.getText().trim();
 
         if (username.isEmpty()) {
@@ -37,14 +48,15 @@ public class LoginController {
             }
             
             // 2. Login
-            if (rmiManager.login(username)) {
+            if (rmiManager.login(username, password)) {
                 updateStatus("Login Success!", true);
                 // Switch scene on UI thread
                 javafx.application.Platform.runLater(() -> {
                     ViewManager.getInstance().showLobby();
                 });
             } else {
-                updateStatus("Username taken or invalid.", false);
+                String error = rmiManager.getLoginError();
+                updateStatus(error != null ? error : password.isEmpty() ? "Username taken or invalid." : "Wrong password.", false);
             }
         }).start();
     }
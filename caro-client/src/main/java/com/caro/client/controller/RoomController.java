@@ -1,12 +1,17 @@
 package com.caro.client.controller;
 
 import com.caro.client.app.ViewManager;
+import com.caro.client.rmi.CommandExecutor;
 import com.caro.client.rmi.RmiClientManager;
+import com.caro.client.view.BoardCanvas;
+import com.caro.common.codec.SpectateEvent;
 import com.caro.common.model.ChatMessage;
 import com.caro.common.model.GameSettings;
 import com.caro.common.model.GameState;
+import com.caro.common.model.MoveAck;
 import com.caro.common.model.Room;
 import com.caro.common.util.GameConstants;
+import com.caro.common.util.GameRules;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -17,11 +22,14 @@ import javafx.animation.Timeline;
 import javafx.util.Duration;
 
 import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
-public class RoomController {
+public class RoomController implements ViewController {
 
     @FXML private Label roomNameLabel;
     @FXML private Label statusLabel;
+    @FXML private Label pendingLabel;
     @FXML private Label hostLabel;
     @FXML private Label guestLabel;
     @FXML private Button addBotButton;
@@ -32,7 +40,7 @@ public class RoomController {
     
     @FXML private VBox settingsPanel;
     @FXML private VBox gamePanel;
-    @FXML private GridPane gameBoardGrid;
+    @FXML private BoardCanvas boardCanvas;
     
     @FXML private Spinner<Integer> boardSizeSpinner;
     @FXML private Spinner<Integer> roundsSpinner;
@@ -50,14 +58,45 @@ public class RoomController {
     @FXML private Button kickButton;
 
     private Room currentRoom;
-    private Button[][] boardButtons;
     private String myUsername;
     private int currentBoardSize = -1;
     private Timeline turnTimer;
     private int secondsLeft;
 
+    // Spectator mode: the room and board are rebuilt locally from the event stream
+    private boolean spectating = false;
+    private GameState spectatorState;
+
+    // Optimistic moves: the stone is drawn on click and confirmed or rolled back once the
+    // server answers. FX thread only.
+    private GameState lastState;
+    private long moveSeq;
+    private PendingMove pendingMove;
+    // Config: Retries for a move whose call failed (safe: the server dedupes by sequence)
+    private static final int MOVE_RETRIES = 2;
+
+    // Remote calls run here, off the FX thread
+    private final CommandExecutor commands = CommandExecutor.getInstance();
+
+    private static final class PendingMove {
+        final int row;
+        final int col;
+        final long seq;
+        final long clickNanos;
+        long renderNanos;
+        long ackVersion = -1; // Set once the server accepted it
+
+        PendingMove(int row, int col, long seq) {
+            this.row = row;
+            this.col = col;
+            this.seq = seq;
+            this.clickNanos = System.nanoTime();
+        }
+    }
+
     @FXML
     public void initialize() {
+        pendingLabel.visibleProperty().bind(commands.pendingProperty().greaterThan(0));
         timePerTurnField.setTextFormatter(new TextFormatter<>(change -> {
             String newText = change.getControlNewText();
             if (newText.matches("\\d*")) { // Only digits allowed
@@ -68,226 +107,274 @@ public class RoomController {
     }
 
     public void setRoom(Room room) {
+        if (currentRoom == null || !currentRoom.getId().equals(room.getId())) resetForRoom();
         this.currentRoom = room;
         this.myUsername = RmiClientManager.getInstance().getUsername();
         updateRoomInfo(room);
     }
 
-    public void updateRoomInfo(Room room) {
-        Platform.runLater(() -> {
-            this.currentRoom = room;
-            roomNameLabel.setText(room.getName() + " (" + room.getHostUsername() + ")");
-            
-            roundLabel.setText("Round: " + room.getCurrentRound() + " / " + room.getSettings().getTotalRounds());
+    // The view is cached and reused, so nothing from the previous room may carry over
+    private void resetForRoom() {
+        // Versions are per room
+        lastState = null;
+        pendingMove = null;
+        spectating = false;
+        spectatorState = null;
+        currentBoardSize = -1;
+        boardCanvas.clearPending();
+        if (turnTimer != null) turnTimer.stop();
+        timerLabel.setText("");
+        statusLabel.setText("Waiting for players...");
+        statusLabel.setStyle("");
+        chatArea.clear();
+        chatInput.clear();
+    }
 
-            player1Label.setText("Host: " + room.getHostUsername());
-            hostLabel.setText("Host: " + room.getHostUsername());
-            score1Label.setText("Score: " + room.getHostScore());
+    @Override
+    public void onHide() {
+        if (turnTimer != null) turnTimer.stop();
+        // Coming back, even to the same room, starts from a clean view
+        currentRoom = null;
+    }
 
-            if (room.getGuestUsername() != null) {
-                statusLabel.setText("Lobby Full");
-                player2Label.setText(room.getGuestUsername());
-                guestLabel.setText(room.getGuestUsername());
-                score2Label.setText("Score: " + room.getGuestScore());
-            } else {
-                player2Label.setText("Waiting...");
-                guestLabel.setText("Waiting...");
-                score2Label.setText("-");
-            }
+    // FX thread only (ClientEventInbox, or this controller)
+    public void updateRoomInfo(Room room) {
+        this.currentRoom = room;
+        roomNameLabel.setText(room.getName() + " (" + room.getHostUsername() + ")");
+        
+        roundLabel.setText("Round: " + room.getCurrentRound() + " / " + room.getSettings().getTotalRounds());
+
+        player1Label.setText("Host: " + room.getHostUsername());
+        hostLabel.setText("Host: " + room.getHostUsername());
+        score1Label.setText("Score: " + room.getHostScore());
+
+        if (room.getGuestUsername() != null) {
+            statusLabel.setText("Lobby Full");
+            player2Label.setText(room.getGuestUsername());
+            guestLabel.setText(room.getGuestUsername());
+            score2Label.setText("Score: " + room.getGuestScore());
+        } else {
+            player2Label.setText("Waiting...");
+            guestLabel.setText("Waiting...");
+            score2Label.setText("-");
+        }
 
-            boolean isHost = myUsername.equals(room.getHostUsername());
-            boolean isGameStarted = room.isGameStarted();
-            boolean isGuestPlayer = (room.getGuestUsername() != null && room.getGuestUsername() != "BOT");
+        boolean isHost = myUsername.equals(room.getHostUsername());
+        boolean isGameStarted = room.isGameStarted();
+        boolean isGuestPlayer = (room.getGuestUsername() != null && room.getGuestUsername() != "BOT");
 
-            settingsPanel.setVisible(!isGameStarted);
-            gamePanel.setVisible(isGameStarted);
+        settingsPanel.setVisible(!isGameStarted);
+        gamePanel.setVisible(isGameStarted);
 
-            if (!isGameStarted) {
+        if (!isGameStarted) {
 
-                settingsLabel.setVisible(isHost);
-                settingsLabel.setManaged(isHost); 
+            settingsLabel.setVisible(isHost);
+            settingsLabel.setManaged(isHost); 
 
-                settingsGrid.setVisible(isHost);
-                settingsGrid.setManaged(isHost); 
-                
-                startGameButton.setVisible(isHost);
-                startGameButton.setManaged(isHost);
-        
-                addBotButton.setVisible(isHost && !isGuestPlayer);
-                addBotButton.setManaged(isHost);
+            settingsGrid.setVisible(isHost);
+            settingsGrid.setManaged(isHost); 
+            
+            startGameButton.setVisible(isHost);
+            startGameButton.setManaged(isHost);
+    
+            addBotButton.setVisible(isHost && !isGuestPlayer);
+            addBotButton.setManaged(isHost);
 
-                waitingLabel.setVisible(!isHost);
+            waitingLabel.setVisible(!isHost);
 
-                kickButton.setVisible(isHost && room.getGuestUsername() != null && !room.isGameStarted());
+            kickButton.setVisible(isHost && room.getGuestUsername() != null && !room.isGameStarted());
 
-                roundLabel.setText("Match Setup");
+            roundLabel.setText("Match Setup");
 
-                score1Label.setVisible(false);
-                score2Label.setVisible(false);
-            } else {
-                roundLabel.setText("Round: " + room.getCurrentRound() + " / " + room.getSettings().getTotalRounds());
-                score1Label.setVisible(true);
-                score2Label.setVisible(true);
-            }
+            score1Label.setVisible(false);
+            score2Label.setVisible(false);
+        } else {
+            roundLabel.setText("Round: " + room.getCurrentRound() + " / " + room.getSettings().getTotalRounds());
+            score1Label.setVisible(true);
+            score2Label.setVisible(true);
+        }
 
-            // 3. Game Started Logic
-            if (isGameStarted) {
-                 if (this.currentBoardSize != room.getSettings().getBoardSize() || gameBoardGrid.getChildren().isEmpty()) {
-                      initBoard(room.getSettings().getBoardSize());
-                      this.currentBoardSize = room.getSettings().getBoardSize();
-                 }
-            }
+        // 3. Game Started Logic
+        if (isGameStarted) {
+             if (this.currentBoardSize != room.getSettings().getBoardSize() || boardCanvas.getBoardSize() == 0) {
+                  initBoard(room.getSettings().getBoardSize());
+                  this.currentBoardSize = room.getSettings().getBoardSize();
+             }
+        }
 
-            if (!room.isGameStarted() && turnTimer != null) {
-                 turnTimer.stop();
-            }
-        });
+        if (!room.isGameStarted() && turnTimer != null) {
+             turnTimer.stop();
+        }
     }
 
     @FXML
     private void handleStartGame() {
+        // 1. Read the final settings from the UI
+        int size = boardSizeSpinner.getValue();
+        int rounds = roundsSpinner.getValue();
+        int time = 10;
         try {
-            // 1. Read the final settings from the UI
-            int size = boardSizeSpinner.getValue();
-            int rounds = roundsSpinner.getValue();
-            int time = 10;
-            try {
-                time = Integer.parseInt(timePerTurnField.getText());
-            } catch (NumberFormatException e) {
-                time = 10; // Default
-            }
+            time = Integer.parseInt(timePerTurnField.getText());
+        } catch (NumberFormatException e) {
+            time = 10; // Default
+        }
 
-            GameSettings settings = new GameSettings(size, rounds, time);
+        GameSettings settings = new GameSettings(size, rounds, time);
+        String roomId = currentRoom.getId();
+        String lane = CommandExecutor.roomLane(roomId);
 
-            // 2. Send settings to server FIRST
-            RmiClientManager.getInstance().getService().updateRoomSettings(myUsername, currentRoom.getId(), settings);
-            
-            // 3. THEN Start the game
-            RmiClientManager.getInstance().getService().startGame(myUsername, currentRoom.getId());
-            
-        } catch (RemoteException e) {
-            e.printStackTrace();
-        }
+        // 2. Send settings to server FIRST (same lane, so start cannot overtake it)
+        commands.run("updateRoomSettings", lane, service -> service.updateRoomSettings(myUsername, roomId, settings));
+        
+        // 3. THEN Start the game
+        startGameButton.setDisable(true);
+        commands.run("startGame", lane, service -> service.startGame(myUsername, roomId))
+                .whenCompleteAsync((v, e) -> startGameButton.setDisable(false), CommandExecutor.FX);
     }
 
     // --- Standard Board & Chat Logic ---
 
     private void initBoard(int size) {
-        gameBoardGrid.getChildren().clear();
-        boardButtons = new Button[size][size];
-        gameBoardGrid.setAlignment(javafx.geometry.Pos.CENTER);
-        
-        double cellSize = 30.0; 
-
-        for (int r = 0; r < size; r++) {
-            for (int c = 0; c < size; c++) {
-                Button btn = new Button();
-                btn.setPrefSize(cellSize, cellSize);
-                btn.setMinSize(cellSize, cellSize);
-                btn.setStyle("-fx-font-size: 10px; -fx-padding: 0;"); 
-                final int row = r;
-                final int col = c;
-                btn.setOnAction(e -> handleBoardClick(row, col));
-                boardButtons[r][c] = btn;
-                gameBoardGrid.add(btn, c, r);
+        boardCanvas.setBoardSize(size);
+        boardCanvas.setOnCellClicked(this::handleBoardClick);
+    }
+
+    private void handleBoardClick(int r, int c) {
+        if (spectating || pendingMove != null) return;
+        if (!GameRules.isLegalMove(lastState, myUsername, r, c)) return;
+
+        PendingMove move = new PendingMove(r, c, ++moveSeq);
+        pendingMove = move;
+        renderPending(move);
+        move.renderNanos = System.nanoTime();
+
+        String roomId = currentRoom.getId();
+        long expectedVersion = lastState.getVersion();
+        commands.submit("placeMove", CommandExecutor.roomLane(roomId), service -> {
+            for (int attempt = 0; attempt <= MOVE_RETRIES; attempt++) {
+                try {
+                    return service.placeMove(myUsername, roomId, r, c, move.seq, expectedVersion);
+                } catch (RemoteException e) {
+                    System.err.println("Move " + move.seq + " failed (attempt " + (attempt + 1) + "): " + e.getMessage());
+                }
             }
+            return null;
+        }).thenAcceptAsync(ack -> onMoveAck(move, ack), CommandExecutor.FX);
+    }
+
+    private void onMoveAck(PendingMove move, MoveAck ack) {
+        if (pendingMove != move) return; // Already settled by a state update
+        if (ack == null || !ack.isAccepted()) {
+            System.out.println("Move " + move.seq + " rolled back: " + (ack == null ? "no answer" : ack));
+            rollback(move);
+            return;
         }
+        move.ackVersion = ack.getVersion();
+        // The confirming state may have arrived before the ack
+        if (lastState != null && lastState.getVersion() >= move.ackVersion) confirm(move);
     }
 
-    private void handleBoardClick(int r, int c) {
-        try {
-            RmiClientManager.getInstance().getService().placeMove(myUsername, currentRoom.getId(), r, c);
-        } catch (RemoteException e) { e.printStackTrace(); }
+    private void confirm(PendingMove move) {
+        long now = System.nanoTime();
+        System.out.println("Move " + move.seq + " confirmed: click->render "
+                + TimeUnit.NANOSECONDS.toMicros(move.renderNanos - move.clickNanos) + "us, click->confirm "
+                + TimeUnit.NANOSECONDS.toMillis(now - move.clickNanos) + "ms");
+        pendingMove = null;
+        boardCanvas.clearPending();
     }
 
-    public void updateGameState(GameState state) {
-        Platform.runLater(() -> {
-            int[][] board = state.getBoard();
+    private void rollback(PendingMove move) {
+        pendingMove = null;
+        boardCanvas.clearPending();
+    }
 
-            System.out.println("Redrawing board. Size: " + board.length + ". Button Array Size: " + (boardButtons == null ? "null" : boardButtons.length));
-            
-            // 1. Update Turn Label
-            boolean isMyTurn = myUsername.equals(state.getCurrentTurnUsername());
-            if (state.getWinnerUsername() == null) { // Only update if game running
-                if (isMyTurn) {
-                    statusLabel.setText("YOUR TURN (" + (myUsername.equals(currentRoom.getHostUsername()) ? "X" : "O") + ")");
-                    statusLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
-                } else {
-                    statusLabel.setText("Waiting for " + state.getCurrentTurnUsername());
-                    statusLabel.setStyle("-fx-text-fill: black;");
-                }
-            }
+    private int myCellValue() {
+        return myUsername.equals(currentRoom.getHostUsername()) ? GameConstants.CELL_X : GameConstants.CELL_O;
+    }
 
-            // 2. Render Board
-            for (int r = 0; r < board.length; r++) {
-                for (int c = 0; c < board[r].length; c++) {
-                    int val = board[r][c];
-                    // Safety check if board size changed unexpectedly
-                    if (r < boardButtons.length && c < boardButtons[r].length) {
-                        Button btn = boardButtons[r][c];
-                        if (val == GameConstants.CELL_X) {
-                            btn.setText("X");
-                            btn.setStyle("-fx-text-fill: red; -fx-font-weight: bold; -fx-font-size: 14px;");
-                        } else if (val == GameConstants.CELL_O) {
-                            btn.setText("O");
-                            btn.setStyle("-fx-text-fill: blue; -fx-font-weight: bold; -fx-font-size: 14px;");
-                        } else {
-                            btn.setText("");
-                        }
-                    }
-                }
+    private void renderPending(PendingMove move) {
+        boardCanvas.setPending(move.row, move.col, myCellValue());
+    }
+
+    public void updateGameState(GameState state) {
+        // Pushes can overtake each other across transports; never go back in time
+        if (!spectating && lastState != null && state.getVersion() < lastState.getVersion()) return;
+        lastState = state;
+        int[][] board = state.getBoard();
+        
+        // 1. Update Turn Label
+        boolean isMyTurn = myUsername.equals(state.getCurrentTurnUsername());
+        if (state.getWinnerUsername() == null) { // Only update if game running
+            if (isMyTurn) {
+                statusLabel.setText("YOUR TURN (" + (myUsername.equals(currentRoom.getHostUsername()) ? "X" : "O") + ")");
+                statusLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
+            } else {
+                statusLabel.setText("Waiting for " + state.getCurrentTurnUsername());
+                statusLabel.setStyle("-fx-text-fill: black;");
             }
+        }
 
-            if (currentRoom != null) {
-                startClientTimer(currentRoom.getSettings().getTimePerTurnSeconds());
+        // 2. Render Board (only cells that changed are repainted)
+        boardCanvas.setBoard(board);
+
+        // 3. Reconcile the predicted move against the server's board
+        PendingMove move = pendingMove;
+        if (move != null && !spectating) {
+            boolean onBoard = move.row < board.length && move.col < board.length;
+            int actual = onBoard ? board[move.row][move.col] : -1;
+            if (actual == myCellValue() && (move.ackVersion < 0 || state.getVersion() >= move.ackVersion)) {
+                confirm(move);
+            } else if (actual != GameConstants.CELL_EMPTY) {
+                System.out.println("Move " + move.seq + " rolled back: cell taken at v" + state.getVersion());
+                rollback(move);
             }
-        });
+        }
+
+        if (currentRoom != null) {
+            startClientTimer(currentRoom.getSettings().getTimePerTurnSeconds());
+        }
     }
 
     public void addChatMessage(ChatMessage msg) {
-        Platform.runLater(() -> {
-            // Append and scroll
-            chatArea.appendText(msg.getSender() + ": " + msg.getContent() + "\n");
-            chatArea.setScrollTop(Double.MAX_VALUE);
-        });
+        // Append and scroll
+        chatArea.appendText(msg.getSender() + ": " + msg.getContent() + "\n");
+        chatArea.setScrollTop(Double.MAX_VALUE);
     }
 
     @FXML 
     private void handleSendChat() {
         String text = chatInput.getText().trim();
         if (text.isEmpty()) return;
-        try {
-            RmiClientManager.getInstance().getService().sendChat(myUsername, currentRoom.getId(), text);
-            chatInput.clear();
-        } catch (RemoteException e) { e.printStackTrace(); }
+        String roomId = currentRoom.getId();
+        chatInput.clear();
+        commands.run("sendChat", CommandExecutor.roomLane(roomId), service -> service.sendChat(myUsername, roomId, text))
+                .exceptionallyAsync(e -> {
+                    chatArea.appendText("(not sent) " + text + "\n");
+                    return null;
+                }, CommandExecutor.FX);
     }
     
     @FXML 
     private void handleAddBot() {
-        try { RmiClientManager.getInstance().getService().addBot(myUsername, currentRoom.getId()); } 
-        catch (RemoteException e) { e.printStackTrace(); }
+        String roomId = currentRoom.getId();
+        commands.run("addBot", CommandExecutor.roomLane(roomId), service -> service.addBot(myUsername, roomId));
     }
     
     @FXML 
     private void handleLeaveRoom() {
-        try { 
-            RmiClientManager.getInstance().getService().leaveRoom(myUsername, currentRoom.getId());
-            ViewManager.getInstance().showLobby();
-        } catch (RemoteException e) { e.printStackTrace(); }
+        String roomId = currentRoom.getId();
+        CompletableFuture<Void> left = spectating
+                ? commands.run("stopSpectating", CommandExecutor.roomLane(roomId), service -> service.stopSpectating(myUsername))
+                : commands.run("leaveRoom", CommandExecutor.roomLane(roomId), service -> service.leaveRoom(myUsername, roomId));
+        left.thenRunAsync(() -> ViewManager.getInstance().showLobby(), CommandExecutor.FX);
     }
 
     @FXML
     private void handleKickGuest() {
         if (currentRoom.getGuestUsername() == null) return;
-        try {
-            RmiClientManager.getInstance().getService().kickPlayer(
-                myUsername, 
-                currentRoom.getId(), 
-                currentRoom.getGuestUsername() // Target
-            );
-        } catch (RemoteException e) {
-            e.printStackTrace();
-        }
+        String roomId = currentRoom.getId();
+        String target = currentRoom.getGuestUsername();
+        commands.run("kickPlayer", CommandExecutor.roomLane(roomId), service -> service.kickPlayer(myUsername, roomId, target));
     }
 
     private void startClientTimer(int durationSeconds) {
@@ -311,26 +398,92 @@ public class RoomController {
         turnTimer.play();
     }
 
-    public void onGameEnded(String message) {
-        Platform.runLater(() -> {
-            if (turnTimer != null) {
-                turnTimer.stop();
+    // Called on the FX thread by ClientCallbackImpl for each spectator event
+    public void applySpectateEvent(SpectateEvent event) {
+        switch (event.getType()) {
+            case SNAPSHOT: {
+                Room room = new Room(event.getRoomId(), event.getHostUsername() + "'s room", event.getHostUsername(),
+                        new GameSettings(event.getBoardSize(), event.getTotalRounds(), event.getTimePerTurnSeconds()));
+                room.setGuestUsername(event.getGuestUsername());
+                room.setGameStarted(true);
+                room.setCurrentRound(event.getCurrentRound());
+                room.setHostScore(event.getHostScore());
+                room.setGuestScore(event.getGuestScore());
+
+                GameState state = new GameState(event.getBoardSize(), event.getCurrentTurnUsername());
+                int[][] board = state.getBoard();
+                for (int r = 0; r < board.length; r++) {
+                    System.arraycopy(event.getBoard()[r], 0, board[r], 0, board.length);
+                }
+                room.setGameState(state);
+                setRoom(room); // Resets spectator fields if this is a different room
+                spectating = true;
+                spectatorState = state;
+                updateGameState(spectatorState);
+                break;
             }
-            timerLabel.setText("Ended");
-            
-            new java.util.Timer().schedule(new java.util.TimerTask() {
-                @Override
-                public void run() {
-                    Platform.runLater(() -> {
-                        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                        alert.setTitle("Game Over");
-                        alert.setHeaderText(null);
-                        alert.setContentText(message);
-                        alert.show();
-                    });
+            case MOVE:
+                if (spectatorState == null) return;
+                spectatorState.getBoard()[event.getRow()][event.getCol()] = event.getCell();
+                spectatorState.setCurrentTurnUsername(event.getCurrentTurnUsername());
+                updateGameState(spectatorState);
+                break;
+            case TURN:
+                if (spectatorState == null) return;
+                spectatorState.setCurrentTurnUsername(event.getCurrentTurnUsername());
+                updateGameState(spectatorState);
+                break;
+            case ROUND_START:
+                if (currentRoom == null) return;
+                currentRoom.getSettings().setBoardSize(event.getBoardSize());
+                currentRoom.setCurrentRound(event.getCurrentRound());
+                currentRoom.setHostScore(event.getHostScore());
+                currentRoom.setGuestScore(event.getGuestScore());
+                currentRoom.setGameStarted(true);
+                spectatorState = new GameState(event.getBoardSize(), event.getCurrentTurnUsername());
+                currentRoom.setGameState(spectatorState);
+                updateRoomInfo(currentRoom);
+                updateGameState(spectatorState);
+                break;
+            case GAME_ENDED:
+                if (currentRoom != null) {
+                    currentRoom.setHostScore(event.getHostScore());
+                    currentRoom.setGuestScore(event.getGuestScore());
+                    updateRoomInfo(currentRoom);
                 }
-            }, 300);
-        });
+                onGameEnded(event.getMessage());
+                break;
+            case CLOSED:
+                spectating = false;
+                spectatorState = null;
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Room Closed");
+                alert.setHeaderText(null);
+                alert.setContentText(event.getMessage());
+                alert.show();
+                ViewManager.getInstance().showLobby();
+                break;
+        }
+    }
+
+    public void onGameEnded(String message) {
+        if (turnTimer != null) {
+            turnTimer.stop();
+        }
+        timerLabel.setText("Ended");
+        
+        new java.util.Timer().schedule(new java.util.TimerTask() {
+            @Override
+            public void run() {
+                Platform.runLater(() -> {
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Game Over");
+                    alert.setHeaderText(null);
+                    alert.setContentText(message);
+                    alert.show();
+                });
+            }
+        }, 300);
     }
 
 }
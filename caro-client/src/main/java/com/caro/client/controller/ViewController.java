@@ -0,0 +1,12 @@
+package com.caro.client.controller;
+
+// Views are built once and then shown many times (see ViewManager), so per-visit work
+// goes here instead of initialize(). Both run on the FX thread.
+public interface ViewController {
+
+    // The view just became the current scene
+    default void onShow() {}
+
+    // Another view replaced it
+    default void onHide() {}
+}
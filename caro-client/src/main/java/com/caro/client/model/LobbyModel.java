@@ -0,0 +1,109 @@
+package com.caro.client.model;
+
+import com.caro.common.model.GameSettings;
+import com.caro.common.model.LobbyDelta;
+import com.caro.common.model.Room;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Client copy of the lobby room list, keyed by room id. FX thread only.
+ *
+ * Outlives the lobby view, so switching back to the lobby needs no refetch. Full lists
+ * are diffed against what we hold and deltas are applied as they are; either way an
+ * unchanged room keeps its list slot untouched and a changed one is replaced in place,
+ * so a ListView only redraws the cells whose room actually changed.
+ */
+public class LobbyModel {
+    private static LobbyModel instance;
+
+    private final ObservableList<Room> rooms = FXCollections.observableArrayList();
+    // Room id -> index in rooms
+    private final Map<String, Integer> index = new HashMap<>();
+    // True once a full list arrived; deltas before that have nothing to apply to
+    private boolean synced;
+
+    private LobbyModel() {}
+
+    public static synchronized LobbyModel getInstance() {
+        if (instance == null) instance = new LobbyModel();
+        return instance;
+    }
+
+    public ObservableList<Room> getRooms() { return rooms; }
+    public boolean isSynced() { return synced; }
+
+    public void applySnapshot(List<Room> snapshot) {
+        Set<String> present = new HashSet<>();
+        for (Room room : snapshot) {
+            present.add(room.getId());
+            upsert(room);
+        }
+        for (int i = rooms.size() - 1; i >= 0; i--) {
+            if (!present.contains(rooms.get(i).getId())) removeAt(i);
+        }
+        synced = true;
+    }
+
+    public void applyDelta(LobbyDelta delta) {
+        if (!synced) return;
+        for (String id : delta.getRemovedIds()) {
+            Integer i = index.get(id);
+            if (i != null) removeAt(i);
+        }
+        for (Room room : delta.getUpserts()) upsert(room);
+    }
+
+    // Logged out: the next session starts from its own full list
+    public void clear() {
+        rooms.clear();
+        index.clear();
+        synced = false;
+    }
+
+    private void upsert(Room room) {
+        Integer i = index.get(room.getId());
+        if (i == null) {
+            index.put(room.getId(), rooms.size());
+            rooms.add(room);
+        } else if (!sameListing(rooms.get(i), room)) {
+            rooms.set(i, room);
+        }
+    }
+
+    // Swap the last room into the hole so removal stays O(1); display order comes from the sorted view
+    private void removeAt(int i) {
+        Room removed = rooms.get(i);
+        int last = rooms.size() - 1;
+        if (i != last) {
+            Room moved = rooms.get(last);
+            rooms.set(i, moved);
+            index.put(moved.getId(), i);
+        }
+        rooms.remove(last);
+        index.remove(removed.getId());
+    }
+
+    // Everything the lobby shows about a room
+    private static boolean sameListing(Room a, Room b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getHostUsername(), b.getHostUsername())
+                && Objects.equals(a.getGuestUsername(), b.getGuestUsername())
+                && a.isBotMode() == b.isBotMode()
+                && a.isGameStarted() == b.isGameStarted()
+                && sameSettings(a.getSettings(), b.getSettings());
+    }
+
+    private static boolean sameSettings(GameSettings a, GameSettings b) {
+        return a.getBoardSize() == b.getBoardSize()
+                && a.getTotalRounds() == b.getTotalRounds()
+                && a.getTimePerTurnSeconds() == b.getTimePerTurnSeconds();
+    }
+}
@@ -0,0 +1,178 @@
+package com.caro.client.rmi;
+
+import com.caro.client.app.ViewManager;
+import com.caro.client.controller.LobbyController;
+import com.caro.client.controller.RoomController;
+import com.caro.client.model.LobbyModel;
+import com.caro.common.codec.SpectateCodec;
+import com.caro.common.codec.SpectateEvent;
+import com.caro.common.model.ChatMessage;
+import com.caro.common.model.ClientEvent;
+import com.caro.common.model.GameState;
+import com.caro.common.model.LobbyDelta;
+import com.caro.common.model.Room;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands server events to the FX thread once per frame.
+ *
+ * Any thread may post (callbacks, the poller, the wire reader); posting is a lock-free
+ * queue append. An AnimationTimer drains the queue on the next pulse, drops snapshots
+ * that a later one in the same drain supersedes, and applies the rest in order. The
+ * timer stops when the queue is empty, so an idle client does not force pulses.
+ */
+public class ClientEventInbox {
+    private static ClientEventInbox instance;
+
+    // Only the newest of these matters for its view
+    private static final Set<ClientEvent.Type> SNAPSHOTS = EnumSet.of(
+            ClientEvent.Type.LOBBY_UPDATE, ClientEvent.Type.USER_LIST,
+            ClientEvent.Type.ROOM_INFO, ClientEvent.Type.GAME_STATE);
+
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean armed = new AtomicBoolean();
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+    private long collapsed;
+
+    private static final class Entry {
+        final ClientEvent.Type type;
+        final Object payload;
+
+        Entry(ClientEvent.Type type, Object payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+
+    private ClientEventInbox() {}
+
+    public static synchronized ClientEventInbox getInstance() {
+        if (instance == null) instance = new ClientEventInbox();
+        return instance;
+    }
+
+    public void post(ClientEvent.Type type, Object payload) {
+        queue.offer(new Entry(type, payload));
+        // One runLater per burst, not per event
+        if (armed.compareAndSet(false, true)) Platform.runLater(timer::start);
+    }
+
+    // --- FX thread ---
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>();
+        for (Entry e; (e = queue.poll()) != null; ) batch.add(e);
+        if (batch.isEmpty()) {
+            timer.stop();
+            armed.set(false);
+            // A post may have slipped in between the poll and clearing the flag
+            if (!queue.isEmpty() && armed.compareAndSet(false, true)) timer.start();
+            return;
+        }
+
+        // Walk backwards so the last snapshot of each type is the one kept
+        Set<ClientEvent.Type> seen = EnumSet.noneOf(ClientEvent.Type.class);
+        boolean[] skip = new boolean[batch.size()];
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            ClientEvent.Type type = batch.get(i).type;
+            if (SNAPSHOTS.contains(type) && !seen.add(type)) {
+                skip[i] = true;
+                collapsed++;
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (skip[i]) continue;
+            try {
+                dispatch(batch.get(i));
+            } catch (RuntimeException ex) {
+                // One bad event must not stall the rest of the frame
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    public long getCollapsedCount() {
+        return collapsed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(Entry e) {
+        ViewManager views = ViewManager.getInstance();
+        switch (e.type) {
+            // The lobby list lives in LobbyModel, so it stays current while another view is shown
+            case LOBBY_UPDATE:
+                LobbyModel.getInstance().applySnapshot((List<Room>) e.payload);
+                break;
+            case LOBBY_DELTA:
+                LobbyModel.getInstance().applyDelta((LobbyDelta) e.payload);
+                break;
+            case USER_LIST: {
+                LobbyController controller = (LobbyController) views.getController("LOBBY_CONTROLLER");
+                if (controller != null) controller.updateUserList((List<String>) e.payload);
+                break;
+            }
+            case ROOM_INFO: {
+                views.showRoom();
+                RoomController controller = (RoomController) views.getController("ROOM_CONTROLLER");
+                if (controller != null) controller.setRoom((Room) e.payload);
+                else System.err.println("Error: RoomController is null!");
+                break;
+            }
+            case GAME_STATE: {
+                RoomController controller = (RoomController) views.getController("ROOM_CONTROLLER");
+                if (controller != null) controller.updateGameState((GameState) e.payload);
+                break;
+            }
+            case CHAT: {
+                ChatMessage message = (ChatMessage) e.payload;
+                RoomController controller = (RoomController) views.getController("ROOM_CONTROLLER");
+                if (controller != null) controller.addChatMessage(message);
+                System.out.println("Chat: " + message.getSender() + ": " + message.getContent());
+                break;
+            }
+            case GAME_ENDED: {
+                RoomController controller = (RoomController) views.getController("ROOM_CONTROLLER");
+                if (controller != null) controller.onGameEnded((String) e.payload);
+                else showAlert("Game Over", (String) e.payload);
+                break;
+            }
+            case KICKED:
+                showAlert("Room Closed", (String) e.payload);
+                views.showLobby();
+                break;
+            case SPECTATE:
+                for (byte[] data : (List<byte[]>) e.payload) {
+                    SpectateEvent event = SpectateCodec.decode(data);
+                    // A snapshot opens the room view for the watched game
+                    if (event.getType() == SpectateEvent.Type.SNAPSHOT) views.showRoom();
+                    RoomController controller = (RoomController) views.getController("ROOM_CONTROLLER");
+                    if (controller != null) controller.applySpectateEvent(event);
+                }
+                break;
+        }
+    }
+
+    // show(), not showAndWait(): nested event loops are not allowed inside a pulse
+    private void showAlert(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.show();
+    }
+}
@@ -0,0 +1,127 @@
+package com.caro.client.rmi;
+
+import com.caro.common.service.GameService;
+import com.caro.common.util.LatencyHistogram;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs remote calls off the FX thread and hands back CompletableFutures.
+ *
+ * Calls that share a lane (e.g. "room:<id>") run one after another in submission order,
+ * so "update settings, then start" or consecutive chat lines cannot overtake each other;
+ * calls in different lanes run in parallel. Every call's round trip is recorded per
+ * method name (see dump()).
+ */
+public class CommandExecutor {
+    private static CommandExecutor instance;
+
+    // Runs continuations on the FX thread: future.thenAcceptAsync(..., CommandExecutor.FX)
+    public static final Executor FX = Platform::runLater;
+
+    public interface Call<T> {
+        T call(GameService service) throws RemoteException;
+    }
+
+    public interface Action {
+        void run(GameService service) throws RemoteException;
+    }
+
+    // Java 17 target, so pooled platform threads rather than virtual threads; calls block
+    // on I/O, so the pool grows with concurrent calls and idle threads expire
+    private final ExecutorService pool = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger ids = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "client-command-" + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    // Last queued call per lane; the next call in the lane chains onto it
+    private final Map<String, CompletableFuture<Void>> lanes = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> roundTrips = new ConcurrentSkipListMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReadOnlyIntegerWrapper pending = new ReadOnlyIntegerWrapper();
+
+    private CommandExecutor() {}
+
+    public static synchronized CommandExecutor getInstance() {
+        if (instance == null) instance = new CommandExecutor();
+        return instance;
+    }
+
+    public static String roomLane(String roomId) {
+        return "room:" + roomId;
+    }
+
+    // Calls submitted and not finished yet (FX thread property, for "Sending..." hints)
+    public ReadOnlyIntegerProperty pendingProperty() {
+        return pending.getReadOnlyProperty();
+    }
+
+    public CompletableFuture<Void> run(String name, String lane, Action action) {
+        return submit(name, lane, service -> {
+            action.run(service);
+            return null;
+        });
+    }
+
+    // lane may be null for calls that need no ordering
+    public <T> CompletableFuture<T> submit(String name, String lane, Call<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        updatePending();
+        Runnable task = () -> execute(name, call, result);
+
+        if (lane == null) {
+            pool.execute(task);
+            return result;
+        }
+        CompletableFuture<Void> tail = lanes.compute(lane, (key, previous) -> previous == null
+                ? CompletableFuture.runAsync(task, pool)
+                : previous.thenRunAsync(task, pool));
+        // Drop the lane once it drains, unless more work was chained on meanwhile
+        tail.whenComplete((v, e) -> lanes.remove(lane, tail));
+        return result;
+    }
+
+    private <T> void execute(String name, Call<T> call, CompletableFuture<T> result) {
+        long start = System.nanoTime();
+        try {
+            result.complete(call.call(RmiClientManager.getInstance().getService()));
+        } catch (RemoteException | RuntimeException e) {
+            System.err.println("Call " + name + " failed: " + e.getMessage());
+            result.completeExceptionally(e);
+        } finally {
+            roundTrips.computeIfAbsent(name, k -> new LatencyHistogram("us"))
+                    .record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            inFlight.decrementAndGet();
+            updatePending();
+        }
+    }
+
+    private void updatePending() {
+        Platform.runLater(() -> pending.set(inFlight.get()));
+    }
+
+    public String dump() {
+        StringBuilder sb = new StringBuilder("--- client round trips ---\n");
+        roundTrips.forEach((name, histogram) -> sb.append(name).append(' ').append(histogram).append('\n'));
+        return sb.toString();
+    }
+}
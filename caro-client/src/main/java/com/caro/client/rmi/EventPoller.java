@@ -0,0 +1,65 @@
+package com.caro.client.rmi;
+
+import com.caro.common.model.ClientEvent;
+import com.caro.common.model.EventBatch;
+import com.caro.common.service.ClientCallback;
+import com.caro.common.service.GameService;
+import com.caro.common.util.GameConstants;
+
+import java.rmi.RemoteException;
+
+// Poll-mode transport: long-polls the server for events and hands them to the same
+// ClientCallbackImpl that RMI callbacks would have reached.
+public class EventPoller {
+    // Config: Pause before retrying after a failed poll
+    private static final long RETRY_DELAY_MS = 1000;
+
+    private final RmiClientManager rmiManager;
+    private final long sessionToken;
+    private final ClientCallback callback;
+    private volatile boolean running;
+    private Thread thread;
+    private long lastSeq;
+
+    public EventPoller(RmiClientManager rmiManager, long sessionToken, ClientCallback callback) {
+        this.rmiManager = rmiManager;
+        this.sessionToken = sessionToken;
+        this.callback = callback;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "event-poller");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                GameService service = rmiManager.getService(); // Each poll doubles as a heartbeat
+                EventBatch batch = service.pollEvents(sessionToken, lastSeq, GameConstants.POLL_MAX_WAIT_MS);
+                if (batch.isResync()) {
+                    System.err.println("Missed events after #" + lastSeq + "; server is resending snapshots.");
+                }
+                for (ClientEvent event : batch.getEvents()) {
+                    event.deliverTo(callback);
+                }
+                lastSeq = batch.getLastSeq();
+            } catch (RemoteException e) {
+                if (!running) return;
+                System.err.println("Event poll failed: " + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package com.caro.client.rmi;
 
+import com.caro.client.app.ViewManager;
+import com.caro.client.model.LobbyModel;
+import com.caro.common.net.RmiTraffic;
+import com.caro.common.net.TunedSocketFactory;
+import com.caro.common.net.WireGameClient;
 import com.caro.common.service.ClientCallback;
 import com.caro.common.service.GameService;
 import com.caro.common.util.GameConstants;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
 
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
@@ -16,11 +27,35 @@ import java.util.concurrent.TimeUnit;
 
 public class RmiClientManager {
     private static RmiClientManager instance;
+
+    // -Dcaro.transport=poll: no exported callback, events are fetched with pollEvents
+    // -Dcaro.transport=nio: binary protocol, pushes arrive on the same connection
+    private static final String TRANSPORT = System.getProperty("caro.transport", "rmi");
+    private static final boolean POLL_MODE = "poll".equalsIgnoreCase(TRANSPORT);
+    private static final boolean NIO_MODE = "nio".equalsIgnoreCase(TRANSPORT);
     
-    private GameService gameService;
+    // Config: Pause between attempts to resume a dropped session
+    private static final long RECONNECT_DELAY_MS = 2000;
+    // Config: With UDP heartbeats, send an RMI one after this much call silence, so a
+    // server that suspended us is noticed (UDP gets no answer)
+    private static final long LIVENESS_CHECK_MS = 15000;
+
+    private volatile GameService gameService;
+    private ClientCallbackImpl callbackImpl;
     private ClientCallback callbackStub;
-    private String currentUsername;
+    private EventPoller eventPoller;
+    private volatile String currentUsername;
+    // From the login reply; presented to resumeSession after a dropped connection and sent in UDP heartbeats
+    private long sessionToken;
+    private volatile String loginError;
     private ScheduledExecutorService heartbeatScheduler;
+    private String serverAddress;
+
+    // Any remote call counts as a heartbeat on the server, so idle time is what matters
+    private volatile long lastCallMillis;
+    // Set when the server accepts UDP heartbeats
+    private DatagramChannel heartbeatChannel;
+    private final ByteBuffer heartbeatPacket = ByteBuffer.allocate(GameConstants.HEARTBEAT_PACKET_SIZE);
 
     private RmiClientManager() {}
 
@@ -31,6 +66,20 @@ public class RmiClientManager {
 
     public boolean connect(String serverAddress) {
         try {
+            this.serverAddress = serverAddress;
+            callbackImpl = new ClientCallbackImpl();
+            openService();
+            if (NIO_MODE) {
+                System.out.println("Using binary transport on port " + GameConstants.NIO_PORT);
+                return true;
+            }
+
+            if (POLL_MODE) {
+                // The server never connects back to us, so nothing is exported
+                System.out.println("Using poll transport; no callback is exported.");
+                return true;
+            }
+
             // ---------------------------------------------------------------
             // FIX: Set Hostname to LAN IP so Server can call us back!
             // ---------------------------------------------------------------
@@ -39,13 +88,9 @@ public class RmiClientManager {
             System.out.println("Client configured to receive callbacks at: " + myIp);
             // ---------------------------------------------------------------
 
-            Registry registry = LocateRegistry.getRegistry(serverAddress, GameConstants.RMI_PORT);
-            gameService = (GameService) registry.lookup(GameConstants.RMI_ID);
-            
-            // Prepare the callback object
-            ClientCallbackImpl callbackImpl = new ClientCallbackImpl();
             // When we export here, RMI uses the property we set above
-            callbackStub = (ClientCallback) UnicastRemoteObject.exportObject(callbackImpl, 0);
+            callbackStub = (ClientCallback) UnicastRemoteObject.exportObject(callbackImpl, 0,
+                    new TunedSocketFactory(), new TunedSocketFactory());
             
             return true;
         } catch (Exception e) {
@@ -54,42 +99,177 @@ public class RmiClientManager {
         }
     }
 
-    public boolean login(String username) {
+    // A new connection to the server; the exported callback (RMI) stays as it is
+    private void openService() throws Exception {
+        if (NIO_MODE) {
+            if (gameService instanceof WireGameClient) ((WireGameClient) gameService).close();
+            gameService = new WireGameClient(serverAddress, GameConstants.NIO_PORT, callbackImpl);
+            return;
+        }
+        Registry registry = LocateRegistry.getRegistry(serverAddress, GameConstants.RMI_PORT);
+        // Labels each call so RmiTraffic can count bytes per method
+        gameService = RmiTraffic.labelled(GameService.class, (GameService) registry.lookup(GameConstants.RMI_ID));
+    }
+
+    private ClientCallback loginCallback() {
+        // A null callback tells the server to buffer our events for polling
+        return POLL_MODE ? null : NIO_MODE ? callbackImpl : callbackStub;
+    }
+
+    // An empty password logs in as a guest, which only works for unregistered names
+    public boolean login(String username, String password) {
+        loginError = null;
         try {
-            boolean success = gameService.login(username, callbackStub);
+            long token = password.isEmpty()
+                    ? gameService.login(username, loginCallback())
+                    : gameService.login(username, password, loginCallback());
+            boolean success = token != 0;
             if (success) {
                 this.currentUsername = username;
+                this.sessionToken = token;
+                if (POLL_MODE) {
+                    eventPoller = new EventPoller(this, sessionToken, callbackImpl);
+                    eventPoller.start();
+                }
+                openHeartbeatChannel();
                 startHeartbeat();
             }
             return success;
+        } catch (RemoteException e) {
+            // Refusals from the server (name in use, server busy) come back as exceptions
+            loginError = rootMessage(e);
+            return false;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    // Why the last login failed, if the server said so
+    public String getLoginError() {
+        return loginError;
+    }
+
+    private static String rootMessage(Throwable e) {
+        while (e.getCause() != null) e = e.getCause();
+        return e.getMessage();
+    }
+
     // --- Heartbeat Sender ---
     private void startHeartbeat() {
+        long intervalMs = TimeUnit.SECONDS.toMillis(GameConstants.HEARTBEAT_INTERVAL_SECONDS);
         heartbeatScheduler = Executors.newSingleThreadScheduledExecutor();
         heartbeatScheduler.scheduleAtFixedRate(() -> {
             try {
-                if (gameService != null && currentUsername != null) {
-                    gameService.sendHeartbeat(currentUsername);
+                if (gameService == null || currentUsername == null) return;
+                if (gameService instanceof WireGameClient && ((WireGameClient) gameService).isClosed()) {
+                    reconnect();
+                    return;
+                }
+
+                // A recent remote call already told the server we are alive.
+                // Half an interval keeps the worst-case gap well under the server timeout.
+                long idle = System.currentTimeMillis() - lastCallMillis;
+                if (idle < intervalMs / 2) return;
+
+                if (heartbeatChannel != null && idle < LIVENESS_CHECK_MS) {
+                    heartbeatPacket.rewind();
+                    heartbeatChannel.write(heartbeatPacket);
+                } else {
+                    getService().sendHeartbeat(currentUsername);
                 }
             } catch (Exception e) {
                 System.err.println("Failed to send heartbeat: " + e.getMessage());
+                reconnect();
             }
-        }, 0, 5, TimeUnit.SECONDS);
+        }, 0, GameConstants.HEARTBEAT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Heartbeat thread. Tries to get back into the same session for as long as the server
+    // holds it; the missed events then arrive as ordinary pushes. Falls back to the login
+    // screen if the session is gone.
+    private void reconnect() {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(GameConstants.SESSION_HOLD_SECONDS);
+        System.out.println("Connection lost; resuming session...");
+        while (currentUsername != null && System.currentTimeMillis() < deadline) {
+            boolean gone = false;
+            try {
+                openService();
+                if (gameService.resumeSession(sessionToken, loginCallback())) {
+                    lastCallMillis = System.currentTimeMillis();
+                    System.out.println("Session resumed.");
+                    return;
+                }
+                gone = true; // The server answered but no longer knows the session
+            } catch (Exception e) {
+                System.err.println("Resume failed: " + e.getMessage());
+            }
+            if (gone) break;
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                return; // stop() was called
+            }
+        }
+        if (currentUsername == null) return;
+
+        System.err.println("Session lost; back to login.");
+        Platform.runLater(() -> {
+            stop();
+            LobbyModel.getInstance().clear();
+            ViewManager.getInstance().showLogin();
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Disconnected");
+            alert.setHeaderText(null);
+            alert.setContentText("The connection to the server was lost. Please log in again.");
+            alert.show();
+        });
+    }
+
+    private void openHeartbeatChannel() {
+        try {
+            if (!gameService.isUdpHeartbeatEnabled()) return;
+
+            heartbeatPacket.clear();
+            heartbeatPacket.putInt(GameConstants.HEARTBEAT_PACKET_MAGIC).putLong(sessionToken).flip();
+
+            heartbeatChannel = DatagramChannel.open();
+            heartbeatChannel.connect(new InetSocketAddress(serverAddress, GameConstants.HEARTBEAT_UDP_PORT));
+            System.out.println("Using UDP heartbeats to " + serverAddress + ":" + GameConstants.HEARTBEAT_UDP_PORT);
+        } catch (Exception e) {
+            // Fall back to RMI heartbeats
+            System.err.println("UDP heartbeat unavailable: " + e.getMessage());
+            closeHeartbeatChannel();
+        }
+    }
+
+    private void closeHeartbeatChannel() {
+        if (heartbeatChannel != null) {
+            try { heartbeatChannel.close(); } catch (Exception e) { /* ignore */ }
+            heartbeatChannel = null;
+        }
     }
     
     public void stop() {
         if (heartbeatScheduler != null && !heartbeatScheduler.isShutdown()) {
             heartbeatScheduler.shutdownNow();
         }
+        closeHeartbeatChannel();
+        if (eventPoller != null) {
+            eventPoller.stop();
+            eventPoller = null;
+        }
+        if (!NIO_MODE) System.out.print(RmiTraffic.dump());
+        System.out.print(CommandExecutor.getInstance().dump());
+        System.out.print(ViewManager.getInstance().dump());
         currentUsername = null;
     }
 
-    public GameService getService() { return gameService; }
+    public GameService getService() {
+        // Callers fetch the service right before a remote call
+        lastCallMillis = System.currentTimeMillis();
+        return gameService;
+    }
     public String getUsername() { return currentUsername; }
 
     // -----------------------------------------------------------------------
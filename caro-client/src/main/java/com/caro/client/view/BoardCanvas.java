@@ -0,0 +1,251 @@
+package com.caro.client.view;
+
+import com.caro.common.util.GameConstants;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+import java.util.BitSet;
+import java.util.function.BiConsumer;
+
+/**
+ * Game board drawn on a single Canvas the size of the viewport.
+ *
+ * setBoard diffs against the board last drawn and repaints only the changed cells; pan
+ * (drag) and zoom (wheel) repaint the cells in view. Only visible cells are ever drawn,
+ * so the board size is not limited by node count or canvas texture size.
+ * FX thread only.
+ */
+public class BoardCanvas extends Region {
+    // Config: Zoom limits, in pixels per cell
+    private static final double MIN_CELL = 6;
+    private static final double MAX_CELL = 80;
+    // Config: Mouse travel before a press counts as a pan instead of a click
+    private static final double DRAG_THRESHOLD = 4;
+
+    private static final Color BACKGROUND = Color.web("#f4e4bc");
+    private static final Color GRID = Color.web("#8b7355");
+    private static final Color X_COLOR = Color.RED;
+    private static final Color O_COLOR = Color.BLUE;
+
+    private final Canvas canvas = new Canvas();
+
+    private int size;
+    private int[][] shown = new int[0][0];
+    private final BitSet dirty = new BitSet();
+    private boolean fullRedraw = true;
+
+    // Predicted move drawn faded until the server confirms it
+    private int pendingRow = -1;
+    private int pendingCol = -1;
+    private int pendingValue;
+
+    // Viewport: board pixel at the canvas origin, and pixels per cell
+    private double offsetX;
+    private double offsetY;
+    private double cellSize = 30;
+    private boolean fitted;
+
+    private double pressX;
+    private double pressY;
+    private boolean dragging;
+
+    private BiConsumer<Integer, Integer> onCellClicked;
+
+    public BoardCanvas() {
+        getChildren().add(canvas);
+        canvas.setOnMousePressed(this::handlePressed);
+        canvas.setOnMouseDragged(this::handleDragged);
+        canvas.setOnMouseReleased(this::handleReleased);
+        canvas.setOnScroll(this::handleScroll);
+        setMinSize(100, 100);
+        setPrefSize(600, 600);
+    }
+
+    public void setOnCellClicked(BiConsumer<Integer, Integer> handler) {
+        this.onCellClicked = handler;
+    }
+
+    public int getBoardSize() {
+        return size;
+    }
+
+    // New (empty) board; keeps the node, only resets the model and fits it to the view
+    public void setBoardSize(int boardSize) {
+        this.size = boardSize;
+        this.shown = new int[boardSize][boardSize];
+        this.pendingRow = -1;
+        this.fitted = false;
+        fitToView();
+        requestFullRedraw();
+    }
+
+    public void setBoard(int[][] board) {
+        if (board.length != size) setBoardSize(board.length);
+        for (int r = 0; r < size; r++) {
+            int[] row = board[r];
+            int[] old = shown[r];
+            for (int c = 0; c < size; c++) {
+                if (row[c] != old[c]) {
+                    old[c] = row[c];
+                    dirty.set(r * size + c);
+                }
+            }
+        }
+        redraw();
+    }
+
+    public void setPending(int row, int col, int value) {
+        clearPending();
+        pendingRow = row;
+        pendingCol = col;
+        pendingValue = value;
+        dirty.set(row * size + col);
+        redraw();
+    }
+
+    public void clearPending() {
+        if (pendingRow < 0) return;
+        dirty.set(pendingRow * size + pendingCol);
+        pendingRow = -1;
+        redraw();
+    }
+
+    // --- Layout ---
+
+    @Override
+    protected void layoutChildren() {
+        double w = Math.floor(getWidth());
+        double h = Math.floor(getHeight());
+        if (w != canvas.getWidth() || h != canvas.getHeight()) {
+            canvas.setWidth(w);
+            canvas.setHeight(h);
+            if (!fitted) fitToView();
+            requestFullRedraw();
+        }
+    }
+
+    // Whole board in view (bounded by the zoom limits) and centered
+    private void fitToView() {
+        double w = canvas.getWidth();
+        double h = canvas.getHeight();
+        if (size == 0 || w <= 0 || h <= 0) return;
+        cellSize = clamp(Math.floor(Math.min(w, h) / size), MIN_CELL, MAX_CELL);
+        offsetX = (size * cellSize - w) / 2;
+        offsetY = (size * cellSize - h) / 2;
+        fitted = true;
+    }
+
+    private void requestFullRedraw() {
+        fullRedraw = true;
+        redraw();
+    }
+
+    // --- Drawing ---
+
+    private void redraw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        if (fullRedraw) {
+            fullRedraw = false;
+            dirty.clear();
+            g.setFill(BACKGROUND);
+            g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            if (size == 0) return;
+            int firstCol = Math.max(0, (int) Math.floor(offsetX / cellSize));
+            int firstRow = Math.max(0, (int) Math.floor(offsetY / cellSize));
+            int lastCol = Math.min(size - 1, (int) Math.floor((offsetX + canvas.getWidth()) / cellSize));
+            int lastRow = Math.min(size - 1, (int) Math.floor((offsetY + canvas.getHeight()) / cellSize));
+            for (int r = firstRow; r <= lastRow; r++) {
+                for (int c = firstCol; c <= lastCol; c++) drawCell(g, r, c);
+            }
+            return;
+        }
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            drawCell(g, i / size, i % size);
+        }
+        dirty.clear();
+    }
+
+    // Clears and repaints one cell's rectangle; cells outside the viewport are skipped
+    private void drawCell(GraphicsContext g, int r, int c) {
+        double x = c * cellSize - offsetX;
+        double y = r * cellSize - offsetY;
+        if (x + cellSize < 0 || y + cellSize < 0 || x > canvas.getWidth() || y > canvas.getHeight()) return;
+
+        g.setGlobalAlpha(1.0);
+        g.setFill(BACKGROUND);
+        g.fillRect(x, y, cellSize, cellSize);
+        g.setStroke(GRID);
+        g.setLineWidth(1);
+        g.strokeRect(x + 0.5, y + 0.5, cellSize - 1, cellSize - 1);
+
+        int value = shown[r][c];
+        if (value == GameConstants.CELL_EMPTY && r == pendingRow && c == pendingCol) {
+            value = pendingValue;
+            g.setGlobalAlpha(0.4);
+        }
+        double pad = cellSize * 0.2;
+        g.setLineWidth(Math.max(1.5, cellSize / 10));
+        if (value == GameConstants.CELL_X) {
+            g.setStroke(X_COLOR);
+            g.strokeLine(x + pad, y + pad, x + cellSize - pad, y + cellSize - pad);
+            g.strokeLine(x + cellSize - pad, y + pad, x + pad, y + cellSize - pad);
+        } else if (value == GameConstants.CELL_O) {
+            g.setStroke(O_COLOR);
+            g.strokeOval(x + pad, y + pad, cellSize - 2 * pad, cellSize - 2 * pad);
+        }
+        g.setGlobalAlpha(1.0);
+    }
+
+    // --- Input ---
+
+    private void handlePressed(MouseEvent e) {
+        pressX = e.getX();
+        pressY = e.getY();
+        dragging = false;
+    }
+
+    private void handleDragged(MouseEvent e) {
+        double dx = e.getX() - pressX;
+        double dy = e.getY() - pressY;
+        if (!dragging && Math.hypot(dx, dy) < DRAG_THRESHOLD) return;
+        dragging = true;
+        offsetX -= dx;
+        offsetY -= dy;
+        pressX = e.getX();
+        pressY = e.getY();
+        fitted = true; // The user placed the view; keep it across resizes
+        requestFullRedraw();
+    }
+
+    private void handleReleased(MouseEvent e) {
+        if (dragging || e.getButton() != MouseButton.PRIMARY || onCellClicked == null) return;
+        int col = (int) Math.floor((e.getX() + offsetX) / cellSize);
+        int row = (int) Math.floor((e.getY() + offsetY) / cellSize);
+        if (row >= 0 && col >= 0 && row < size && col < size) onCellClicked.accept(row, col);
+    }
+
+    // Zooms around the cursor so the cell under it stays put
+    private void handleScroll(ScrollEvent e) {
+        if (e.getDeltaY() == 0 || size == 0) return;
+        double factor = e.getDeltaY() > 0 ? 1.15 : 1 / 1.15;
+        double next = clamp(cellSize * factor, MIN_CELL, MAX_CELL);
+        if (next == cellSize) return;
+        double boardX = (e.getX() + offsetX) / cellSize;
+        double boardY = (e.getY() + offsetY) / cellSize;
+        cellSize = next;
+        offsetX = boardX * cellSize - e.getX();
+        offsetY = boardY * cellSize - e.getY();
+        fitted = true;
+        requestFullRedraw();
+        e.consume();
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
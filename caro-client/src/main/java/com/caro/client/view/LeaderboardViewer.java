@@ -0,0 +1,97 @@
+package com.caro.client.view;
+
+import com.caro.client.rmi.CommandExecutor;
+import com.caro.common.model.LeaderboardEntry;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.util.List;
+
+/**
+ * Window with the best rated players and the ones around the current user.
+ *
+ * Both lists come straight from the server (getTopPlayers / getPlayersAround), which
+ * keeps them ordered as ratings change, so opening or refreshing costs three small calls.
+ * FX thread only.
+ */
+public class LeaderboardViewer {
+    // Config: Players shown in the top list, and on each side of the user
+    private static final int TOP_COUNT = 50;
+    private static final int AROUND_RADIUS = 10;
+
+    private final String username;
+    private final CommandExecutor commands = CommandExecutor.getInstance();
+
+    private final Stage stage = new Stage();
+    private final Label rankLabel = new Label("Loading...");
+    private final ListView<LeaderboardEntry> topList = new ListView<>();
+    private final ListView<LeaderboardEntry> aroundList = new ListView<>();
+
+    public static void open(String username) {
+        LeaderboardViewer viewer = new LeaderboardViewer(username);
+        viewer.stage.show();
+        viewer.refresh();
+    }
+
+    private LeaderboardViewer(String username) {
+        this.username = username;
+        topList.setCellFactory(list -> new EntryCell());
+        aroundList.setCellFactory(list -> new EntryCell());
+
+        Button refresh = new Button("Refresh");
+        refresh.setOnAction(e -> refresh());
+        HBox header = new HBox(10, rankLabel, refresh);
+        HBox.setHgrow(rankLabel, Priority.ALWAYS);
+        rankLabel.setMaxWidth(Double.MAX_VALUE);
+        header.setPadding(new Insets(10));
+
+        VBox top = new VBox(5, new Label("Top players"), topList);
+        VBox around = new VBox(5, new Label("Around you"), aroundList);
+        VBox.setVgrow(topList, Priority.ALWAYS);
+        VBox.setVgrow(aroundList, Priority.ALWAYS);
+        HBox lists = new HBox(10, top, around);
+        HBox.setHgrow(top, Priority.ALWAYS);
+        HBox.setHgrow(around, Priority.ALWAYS);
+        lists.setPadding(new Insets(0, 10, 10, 10));
+
+        stage.setTitle("Caro Game - Leaderboard");
+        stage.setScene(new Scene(new BorderPane(lists, header, null, null, null), 560, 520));
+    }
+
+    private void refresh() {
+        commands.submit("getRanking", null, service -> service.getRanking(username))
+                .thenAcceptAsync(entry -> rankLabel.setText(entry.getRank() > 0
+                        ? "Your rank: #" + entry.getRank() + " (" + entry.getRating() + ")"
+                        : "Your rating: " + entry.getRating() + " (play a match against another account to be ranked)"),
+                        CommandExecutor.FX);
+        commands.submit("getTopPlayers", null, service -> service.getTopPlayers(TOP_COUNT))
+                .thenAcceptAsync(entries -> show(topList, entries), CommandExecutor.FX);
+        commands.submit("getPlayersAround", null, service -> service.getPlayersAround(username, AROUND_RADIUS))
+                .thenAcceptAsync(entries -> show(aroundList, entries), CommandExecutor.FX);
+    }
+
+    private void show(ListView<LeaderboardEntry> list, List<LeaderboardEntry> entries) {
+        list.getItems().setAll(entries);
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).getUsername().equals(username)) list.scrollTo(Math.max(0, i - 3));
+        }
+    }
+
+    private class EntryCell extends ListCell<LeaderboardEntry> {
+        @Override
+        protected void updateItem(LeaderboardEntry entry, boolean empty) {
+            super.updateItem(entry, empty);
+            setText(empty || entry == null ? null : entry.toString());
+            setStyle(!empty && entry != null && entry.getUsername().equals(username) ? "-fx-font-weight: bold;" : null);
+        }
+    }
+}
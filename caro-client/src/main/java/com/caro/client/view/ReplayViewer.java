@@ -0,0 +1,196 @@
+package com.caro.client.view;
+
+import com.caro.client.rmi.CommandExecutor;
+import com.caro.common.model.Replay;
+import com.caro.common.util.GameConstants;
+import javafx.animation.PauseTransition;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Window that plays back a recorded game.
+ *
+ * Moves are fetched a page at a time with getReplay; every page starts with the board at
+ * its first move, so jumping anywhere costs one call, and while playing the next page is
+ * fetched before the current one runs out. FX thread only.
+ */
+public class ReplayViewer {
+    // Config: Fetch the next page when this many moves of the current one are left
+    private static final int PREFETCH_MARGIN = 32;
+    // Config: Playback follows the recorded pace, clamped to this range per move
+    private static final long MIN_STEP_MS = 150;
+    private static final long MAX_STEP_MS = 1500;
+
+    private final long gameId;
+    private final CommandExecutor commands = CommandExecutor.getInstance();
+
+    private final Stage stage = new Stage();
+    private final BoardCanvas boardCanvas = new BoardCanvas();
+    private final Label infoLabel = new Label("Loading...");
+    private final Label moveLabel = new Label();
+    private final Slider slider = new Slider();
+    private final Button playButton = new Button("Play");
+    private final PauseTransition step = new PauseTransition();
+
+    // Page being shown, and the one after it once prefetched
+    private Replay page;
+    private CompletableFuture<Replay> nextPage;
+    // Moves applied to the board on screen (0 = empty board)
+    private int position;
+    private boolean playing;
+    // Set while the slider is moved from code, so its listener does not seek again
+    private boolean updatingSlider;
+
+    public static void open(long gameId) {
+        new ReplayViewer(gameId).seek(0);
+    }
+
+    private ReplayViewer(long gameId) {
+        this.gameId = gameId;
+
+        Button previous = new Button("<");
+        Button next = new Button(">");
+        previous.setOnAction(e -> seek(position - 1));
+        next.setOnAction(e -> seek(position + 1));
+        playButton.setOnAction(e -> setPlaying(!playing));
+
+        slider.setMin(0);
+        slider.setBlockIncrement(1);
+        slider.setMajorTickUnit(1);
+        slider.setSnapToTicks(true);
+        slider.valueProperty().addListener((obs, old, value) -> {
+            // While dragging only moves inside the loaded page are shown; the rest on release
+            if (!updatingSlider && (!slider.isValueChanging() || inPage(value.intValue()))) seek(value.intValue());
+        });
+        slider.valueChangingProperty().addListener((obs, was, changing) -> {
+            if (!changing) seek((int) Math.round(slider.getValue()));
+        });
+        step.setOnFinished(e -> {
+            if (playing) seek(position + 1);
+        });
+
+        HBox controls = new HBox(10, previous, playButton, next, slider, moveLabel);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        controls.setPadding(new Insets(10));
+        HBox.setHgrow(slider, Priority.ALWAYS);
+        infoLabel.setPadding(new Insets(10));
+
+        BorderPane root = new BorderPane(boardCanvas, infoLabel, null, controls, null);
+        stage.setTitle("Caro Game - Replay #" + gameId);
+        stage.setScene(new Scene(root, 640, 720));
+        stage.setOnHidden(e -> setPlaying(false));
+    }
+
+    private boolean inPage(int move) {
+        return page != null && move >= page.getFromMove() && move <= page.getFromMove() + page.getMoveCount();
+    }
+
+    private void seek(int move) {
+        if (page != null) move = Math.max(0, Math.min(move, page.getTotalMoves()));
+        if (inPage(move)) {
+            show(move);
+            return;
+        }
+        // Prefetched page covers it (normal playback), or else fetch one starting right there
+        int target = move;
+        CompletableFuture<Replay> fetch = nextPage != null && nextPage.isDone() && !nextPage.isCompletedExceptionally()
+                && covers(nextPage.join(), target) ? nextPage : fetch(target);
+        nextPage = null;
+        fetch.thenAcceptAsync(replay -> {
+            page = replay;
+            if (!stage.isShowing()) {
+                stage.show();
+                slider.setMax(replay.getTotalMoves());
+                infoLabel.setText(describe(replay));
+            }
+            show(Math.min(target, replay.getFromMove() + replay.getMoveCount()));
+        }, CommandExecutor.FX).exceptionallyAsync(e -> {
+            setPlaying(false);
+            if (!stage.isShowing()) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Replay");
+                alert.setHeaderText(null);
+                alert.setContentText("Replay #" + gameId + " is not available.");
+                alert.show();
+            }
+            return null;
+        }, CommandExecutor.FX);
+    }
+
+    private static boolean covers(Replay replay, int move) {
+        return move >= replay.getFromMove() && move <= replay.getFromMove() + replay.getMoveCount();
+    }
+
+    private CompletableFuture<Replay> fetch(int fromMove) {
+        return commands.submit("getReplay", null, service -> service.getReplay(gameId, fromMove, GameConstants.REPLAY_PAGE_MOVES));
+    }
+
+    // Board after 'move' moves, built from the page's start position
+    private void show(int move) {
+        int size = page.getBoardSize();
+        int[][] board = new int[size][size];
+        byte[] start = page.getBoard();
+        for (int i = 0; i < start.length; i++) board[i / size][i % size] = start[i];
+        for (int i = 0; i < move - page.getFromMove(); i++) {
+            int cell = page.getCell(i);
+            board[cell / size][cell % size] = page.getSide(i) == Replay.HOST ? GameConstants.CELL_X : GameConstants.CELL_O;
+        }
+        boardCanvas.setBoard(board);
+        position = move;
+
+        updatingSlider = true;
+        slider.setValue(move);
+        updatingSlider = false;
+        moveLabel.setText(move + " / " + page.getTotalMoves());
+
+        int pageEnd = page.getFromMove() + page.getMoveCount();
+        if (nextPage == null && pageEnd < page.getTotalMoves() && pageEnd - move <= PREFETCH_MARGIN) {
+            nextPage = fetch(pageEnd);
+        }
+        if (playing) {
+            if (move >= page.getTotalMoves()) {
+                setPlaying(false);
+            } else {
+                // Pace of the move about to be shown, if this page has it
+                int index = move - page.getFromMove();
+                long delay = index < page.getMoveCount() ? page.getDelayMs(index) : MIN_STEP_MS;
+                step.setDuration(Duration.millis(Math.max(MIN_STEP_MS, Math.min(MAX_STEP_MS, delay))));
+                step.playFromStart();
+            }
+        }
+    }
+
+    private void setPlaying(boolean play) {
+        playing = play;
+        playButton.setText(play ? "Pause" : "Play");
+        if (!play) {
+            step.stop();
+        } else if (page != null) {
+            seek(position >= page.getTotalMoves() ? 0 : position);
+        }
+    }
+
+    private static String describe(Replay replay) {
+        String result;
+        switch (replay.getResult()) {
+            case Replay.HOST_WIN: result = replay.getHostUsername() + " won"; break;
+            case Replay.GUEST_WIN: result = replay.getGuestUsername() + " won"; break;
+            case Replay.DRAW: result = "Draw"; break;
+            default: result = "Unfinished";
+        }
+        return replay.getHostUsername() + " (X) vs " + replay.getGuestUsername() + " (O) - round " + replay.getRound()
+                + ", " + replay.getBoardSize() + "x" + replay.getBoardSize() + " - " + result;
+    }
+}
@@ -0,0 +1,184 @@
+package com.caro.common.codec;
+
+import com.caro.common.model.GameState;
+import com.caro.common.model.Room;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Compact binary encoding for spectator events.
+ *
+ * The server encodes each event once and sends the same byte[] to every spectator,
+ * so fan-out cost does not depend on the size of the Room/GameState object graph.
+ * Boards are packed at 2 bits per cell.
+ */
+public class SpectateCodec {
+
+    public static byte[] encodeSnapshot(long seq, Room room) {
+        GameState state = room.getGameState();
+        return write(SpectateEvent.Type.SNAPSHOT, seq, out -> {
+            out.writeUTF(room.getId());
+            out.writeUTF(room.getHostUsername());
+            writeNullable(out, room.getGuestUsername());
+            out.writeShort(room.getSettings().getTotalRounds());
+            out.writeShort(room.getSettings().getTimePerTurnSeconds());
+            out.writeShort(room.getCurrentRound());
+            out.writeShort(room.getHostScore());
+            out.writeShort(room.getGuestScore());
+            writeNullable(out, state.getCurrentTurnUsername());
+            writeBoard(out, state.getBoard());
+        });
+    }
+
+    public static byte[] encodeMove(long seq, int row, int col, int cell, String nextTurn) {
+        return write(SpectateEvent.Type.MOVE, seq, out -> {
+            out.writeShort(row);
+            out.writeShort(col);
+            out.writeByte(cell);
+            writeNullable(out, nextTurn);
+        });
+    }
+
+    public static byte[] encodeTurn(long seq, String nextTurn) {
+        return write(SpectateEvent.Type.TURN, seq, out -> writeNullable(out, nextTurn));
+    }
+
+    // New round: the board is cleared to the given size
+    public static byte[] encodeRoundStart(long seq, Room room) {
+        return write(SpectateEvent.Type.ROUND_START, seq, out -> {
+            out.writeShort(room.getSettings().getBoardSize());
+            out.writeShort(room.getCurrentRound());
+            out.writeShort(room.getHostScore());
+            out.writeShort(room.getGuestScore());
+            writeNullable(out, room.getGameState().getCurrentTurnUsername());
+        });
+    }
+
+    public static byte[] encodeGameEnded(long seq, Room room, String message) {
+        return write(SpectateEvent.Type.GAME_ENDED, seq, out -> {
+            out.writeShort(room.getHostScore());
+            out.writeShort(room.getGuestScore());
+            out.writeUTF(message);
+        });
+    }
+
+    public static byte[] encodeClosed(long seq, String reason) {
+        return write(SpectateEvent.Type.CLOSED, seq, out -> out.writeUTF(reason));
+    }
+
+    public static SpectateEvent decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            SpectateEvent.Type type = SpectateEvent.Type.values()[in.readByte()];
+            SpectateEvent event = new SpectateEvent(type, in.readLong());
+            switch (type) {
+                case SNAPSHOT:
+                    event.roomId = in.readUTF();
+                    event.hostUsername = in.readUTF();
+                    event.guestUsername = readNullable(in);
+                    event.totalRounds = in.readShort();
+                    event.timePerTurnSeconds = in.readShort();
+                    event.currentRound = in.readShort();
+                    event.hostScore = in.readShort();
+                    event.guestScore = in.readShort();
+                    event.currentTurnUsername = readNullable(in);
+                    event.board = readBoard(in);
+                    event.boardSize = event.board.length;
+                    break;
+                case MOVE:
+                    event.row = in.readShort();
+                    event.col = in.readShort();
+                    event.cell = in.readByte();
+                    event.currentTurnUsername = readNullable(in);
+                    break;
+                case TURN:
+                    event.currentTurnUsername = readNullable(in);
+                    break;
+                case ROUND_START:
+                    event.boardSize = in.readShort();
+                    event.currentRound = in.readShort();
+                    event.hostScore = in.readShort();
+                    event.guestScore = in.readShort();
+                    event.currentTurnUsername = readNullable(in);
+                    break;
+                case GAME_ENDED:
+                    event.hostScore = in.readShort();
+                    event.guestScore = in.readShort();
+                    event.message = in.readUTF();
+                    break;
+                case CLOSED:
+                    event.message = in.readUTF();
+                    break;
+            }
+            return event;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // --- Helpers ---
+
+    private interface Body {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] write(SpectateEvent.Type type, long seq, Body body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type.ordinal());
+            out.writeLong(seq);
+            body.writeTo(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    public static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Cell values are 0..2, so four cells fit in one byte (also used for the server's room snapshots)
+    public static void writeBoard(DataOutputStream out, int[][] board) throws IOException {
+        int size = board.length;
+        out.writeShort(size);
+        int packed = 0;
+        int n = 0;
+        for (int[] row : board) {
+            for (int cell : row) {
+                packed |= (cell & 0x3) << (2 * (n & 3));
+                if ((++n & 3) == 0) {
+                    out.writeByte(packed);
+                    packed = 0;
+                }
+            }
+        }
+        if ((n & 3) != 0) out.writeByte(packed);
+    }
+
+    public static int[][] readBoard(DataInputStream in) throws IOException {
+        int size = in.readShort();
+        int[][] board = new int[size][size];
+        int packed = 0;
+        int n = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if ((n & 3) == 0) packed = in.readUnsignedByte();
+                board[r][c] = (packed >> (2 * (n & 3))) & 0x3;
+                n++;
+            }
+        }
+        return board;
+    }
+}
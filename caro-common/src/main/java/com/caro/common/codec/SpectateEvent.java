@@ -0,0 +1,56 @@
+package com.caro.common.codec;
+
+// Decoded form of a spectator event (see SpectateCodec). Unused fields are left at defaults.
+public class SpectateEvent {
+
+    public enum Type { SNAPSHOT, MOVE, TURN, ROUND_START, GAME_ENDED, CLOSED }
+
+    private final Type type;
+    private final long seq;
+
+    // SNAPSHOT / ROUND_START
+    String roomId;
+    String hostUsername;
+    String guestUsername;
+    int boardSize;
+    int totalRounds;
+    int timePerTurnSeconds;
+    int currentRound;
+    int hostScore;
+    int guestScore;
+    int[][] board;
+
+    // MOVE
+    int row;
+    int col;
+    int cell;
+
+    // MOVE / TURN / SNAPSHOT / ROUND_START
+    String currentTurnUsername;
+
+    // GAME_ENDED / CLOSED
+    String message;
+
+    SpectateEvent(Type type, long seq) {
+        this.type = type;
+        this.seq = seq;
+    }
+
+    public Type getType() { return type; }
+    public long getSeq() { return seq; }
+    public String getRoomId() { return roomId; }
+    public String getHostUsername() { return hostUsername; }
+    public String getGuestUsername() { return guestUsername; }
+    public int getBoardSize() { return boardSize; }
+    public int getTotalRounds() { return totalRounds; }
+    public int getTimePerTurnSeconds() { return timePerTurnSeconds; }
+    public int getCurrentRound() { return currentRound; }
+    public int getHostScore() { return hostScore; }
+    public int getGuestScore() { return guestScore; }
+    public int[][] getBoard() { return board; }
+    public int getRow() { return row; }
+    public int getCol() { return col; }
+    public int getCell() { return cell; }
+    public String getCurrentTurnUsername() { return currentTurnUsername; }
+    public String getMessage() { return message; }
+}
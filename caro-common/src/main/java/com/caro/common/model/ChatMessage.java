@@ -15,8 +15,16 @@ public class ChatMessage implements Serializable {
         this.content = content;
         this.timestamp = LocalDateTime.now();
     }
+
+    // Rebuilds a message decoded off the wire, keeping its original time
+    public ChatMessage(String sender, String content, LocalDateTime timestamp) {
+        this.sender = sender;
+        this.content = content;
+        this.timestamp = timestamp;
+    }
     
     public String getSender() { return sender; }
     public String getContent() { return content; }
+    public LocalDateTime getTimestamp() { return timestamp; }
     // You might need a custom formatting getter for the GUI
 }
@@ -0,0 +1,67 @@
+package com.caro.common.model;
+
+import com.caro.common.service.ClientCallback;
+
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One server-to-client notification as data, so it can be queued, batched and
+ * replayed instead of being a direct callback. deliverTo() maps it back onto
+ * the matching ClientCallback method.
+ */
+public class ClientEvent implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Type {
+        LOBBY_UPDATE, LOBBY_DELTA, USER_LIST, ROOM_INFO, GAME_STATE, CHAT, GAME_ENDED, KICKED, SPECTATE;
+
+        // Only the newest one matters; older queued ones can be skipped
+        public boolean isSnapshot() {
+            return this == LOBBY_UPDATE || this == USER_LIST;
+        }
+    }
+
+    private final Type type;
+    private final Serializable payload;
+
+    private ClientEvent(Type type, Serializable payload) {
+        this.type = type;
+        this.payload = payload;
+    }
+
+    // Rooms and game states are copied: the event may be sent or replayed long after this
+    public static ClientEvent lobby(List<Room> rooms) {
+        ArrayList<Room> copies = new ArrayList<>(rooms.size());
+        for (Room room : rooms) copies.add(room.copy());
+        return new ClientEvent(Type.LOBBY_UPDATE, copies);
+    }
+    public static ClientEvent lobbyDelta(LobbyDelta delta) { return new ClientEvent(Type.LOBBY_DELTA, delta); }
+    public static ClientEvent users(List<String> users) { return new ClientEvent(Type.USER_LIST, new ArrayList<>(users)); }
+    public static ClientEvent roomInfo(Room room) { return new ClientEvent(Type.ROOM_INFO, room.copy()); }
+    public static ClientEvent gameState(GameState state) { return new ClientEvent(Type.GAME_STATE, state.copy()); }
+    public static ClientEvent chat(ChatMessage message) { return new ClientEvent(Type.CHAT, message); }
+    public static ClientEvent gameEnded(String message) { return new ClientEvent(Type.GAME_ENDED, message); }
+    public static ClientEvent kicked(String reason) { return new ClientEvent(Type.KICKED, reason); }
+    public static ClientEvent spectate(byte[] encoded) { return new ClientEvent(Type.SPECTATE, encoded); }
+
+    public Type getType() { return type; }
+    public Serializable getPayload() { return payload; }
+
+    @SuppressWarnings("unchecked")
+    public void deliverTo(ClientCallback callback) throws RemoteException {
+        switch (type) {
+            case LOBBY_UPDATE: callback.onLobbyUpdate((List<Room>) payload); break;
+            case LOBBY_DELTA: callback.onLobbyDelta((LobbyDelta) payload); break;
+            case USER_LIST: callback.onUserListUpdate((List<String>) payload); break;
+            case ROOM_INFO: callback.onRoomInfoUpdate((Room) payload); break;
+            case GAME_STATE: callback.onGameStateUpdate((GameState) payload); break;
+            case CHAT: callback.onChatMessageReceived((ChatMessage) payload); break;
+            case GAME_ENDED: callback.onGameEnded((String) payload); break;
+            case KICKED: callback.onKicked((String) payload); break;
+            case SPECTATE: callback.onSpectateEvents(List.of((byte[]) payload)); break;
+        }
+    }
+}
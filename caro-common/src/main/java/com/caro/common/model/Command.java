@@ -0,0 +1,54 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+
+// One room action inside GameService.submitBatch. Build with the static factories.
+public class Command implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Type { PLACE_MOVE, SEND_CHAT, START_GAME, LEAVE_ROOM }
+
+    private final Type type;
+    private final String username;
+    private final String roomId;
+    private final int row;
+    private final int col;
+    private final String text;
+
+    private Command(Type type, String username, String roomId, int row, int col, String text) {
+        this.type = type;
+        this.username = username;
+        this.roomId = roomId;
+        this.row = row;
+        this.col = col;
+        this.text = text;
+    }
+
+    public static Command placeMove(String username, String roomId, int row, int col) {
+        return new Command(Type.PLACE_MOVE, username, roomId, row, col, null);
+    }
+
+    public static Command sendChat(String username, String roomId, String message) {
+        return new Command(Type.SEND_CHAT, username, roomId, 0, 0, message);
+    }
+
+    public static Command startGame(String hostUsername, String roomId) {
+        return new Command(Type.START_GAME, hostUsername, roomId, 0, 0, null);
+    }
+
+    public static Command leaveRoom(String username, String roomId) {
+        return new Command(Type.LEAVE_ROOM, username, roomId, 0, 0, null);
+    }
+
+    public Type getType() { return type; }
+    public String getUsername() { return username; }
+    public String getRoomId() { return roomId; }
+    public int getRow() { return row; }
+    public int getCol() { return col; }
+    public String getText() { return text; }
+
+    @Override
+    public String toString() {
+        return type + "(" + username + ", " + roomId + (type == Type.PLACE_MOVE ? ", " + row + ", " + col : "") + ")";
+    }
+}
@@ -0,0 +1,34 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+
+// Outcome of one Command in a batch. REJECTED means the game rules refused it (not your
+// turn, cell taken...); FAILED means the server hit an error applying it.
+public class CommandResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Status { OK, REJECTED, FAILED }
+
+    private static final CommandResult OK = new CommandResult(Status.OK, null);
+
+    private final Status status;
+    private final String reason;
+
+    private CommandResult(Status status, String reason) {
+        this.status = status;
+        this.reason = reason;
+    }
+
+    public static CommandResult ok() { return OK; }
+    public static CommandResult rejected(String reason) { return new CommandResult(Status.REJECTED, reason); }
+    public static CommandResult failed(String reason) { return new CommandResult(Status.FAILED, reason); }
+
+    public Status getStatus() { return status; }
+    public String getReason() { return reason; }
+    public boolean isOk() { return status == Status.OK; }
+
+    @Override
+    public String toString() {
+        return reason == null ? status.toString() : status + ": " + reason;
+    }
+}
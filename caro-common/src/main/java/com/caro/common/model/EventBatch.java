@@ -0,0 +1,26 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+// Reply to GameService.pollEvents: events after the client's lastSeq, in order
+public class EventBatch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<ClientEvent> events;
+    // Sequence number of the last event in this batch (pass it back on the next poll)
+    private final long lastSeq;
+    // True if events between the client's lastSeq and this batch were overwritten.
+    // The server queues fresh snapshots right behind such a batch.
+    private final boolean resync;
+
+    public EventBatch(List<ClientEvent> events, long lastSeq, boolean resync) {
+        this.events = events;
+        this.lastSeq = lastSeq;
+        this.resync = resync;
+    }
+
+    public List<ClientEvent> getEvents() { return events; }
+    public long getLastSeq() { return lastSeq; }
+    public boolean isResync() { return resync; }
+}
@@ -11,6 +11,8 @@ public class GameState implements Serializable {
     private String winnerUsername; // Null if game ongoing
     private boolean isDraw;
     private int currentRound;
+    // Bumped on every move or turn change; keeps counting across rounds (see Room.startNewBoard)
+    private long version;
 
     public GameState(int boardSize, String firstTurnUsername) {
         this.board = new int[boardSize][boardSize];
@@ -18,6 +20,18 @@ public class GameState implements Serializable {
         this.currentRound = 1;
     }
 
+    // Point-in-time copy for events that are delivered after the board moves on
+    public GameState copy() {
+        GameState copy = new GameState(0, currentTurnUsername);
+        copy.board = new int[board.length][];
+        for (int r = 0; r < board.length; r++) copy.board[r] = board[r].clone();
+        copy.winnerUsername = winnerUsername;
+        copy.isDraw = isDraw;
+        copy.currentRound = currentRound;
+        copy.version = version;
+        return copy;
+    }
+
     // Getters and Setters
     public int[][] getBoard() { return board; }
     public String getCurrentTurnUsername() { return currentTurnUsername; }
@@ -26,4 +40,7 @@ public class GameState implements Serializable {
     public void setWinnerUsername(String winner) { this.winnerUsername = winner; }
     public boolean isDraw() { return isDraw; }
     public void setDraw(boolean draw) { isDraw = draw; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+    public long bumpVersion() { return ++version; }
 }
@@ -0,0 +1,27 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+
+// One line of the leaderboard. Players with the same rating share a rank; rank 0 = not ranked yet.
+public class LeaderboardEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int rank;
+    private final String username;
+    private final int rating;
+
+    public LeaderboardEntry(int rank, String username, int rating) {
+        this.rank = rank;
+        this.username = username;
+        this.rating = rating;
+    }
+
+    public int getRank() { return rank; }
+    public String getUsername() { return username; }
+    public int getRating() { return rating; }
+
+    @Override
+    public String toString() {
+        return (rank > 0 ? "#" + rank : "-") + "  " + username + "  " + rating;
+    }
+}
@@ -0,0 +1,50 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Change to the lobby room list, keyed by room id: rooms that were added or changed,
+ * and ids of rooms that are gone. A client applies it on top of the last full list.
+ */
+public class LobbyDelta implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Room> upserts;
+    private final List<String> removedIds;
+
+    public LobbyDelta(List<Room> upserts, List<String> removedIds) {
+        this.upserts = upserts;
+        this.removedIds = removedIds;
+    }
+
+    public static LobbyDelta upsert(Room room) { return new LobbyDelta(List.of(room.copy()), List.of()); }
+    public static LobbyDelta removal(String roomId) { return new LobbyDelta(List.of(), List.of(roomId)); }
+
+    // One delta with the same effect as applying the given ones in order
+    public static LobbyDelta merge(List<LobbyDelta> deltas) {
+        if (deltas.size() == 1) return deltas.get(0);
+        Map<String, Room> upserts = new LinkedHashMap<>();
+        Set<String> removed = new LinkedHashSet<>();
+        for (LobbyDelta delta : deltas) {
+            for (String id : delta.removedIds) {
+                upserts.remove(id);
+                removed.add(id);
+            }
+            for (Room room : delta.upserts) {
+                removed.remove(room.getId());
+                upserts.put(room.getId(), room);
+            }
+        }
+        return new LobbyDelta(new ArrayList<>(upserts.values()), new ArrayList<>(removed));
+    }
+
+    public List<Room> getUpserts() { return upserts; }
+    public List<String> getRemovedIds() { return removedIds; }
+    public boolean isEmpty() { return upserts.isEmpty() && removedIds.isEmpty(); }
+}
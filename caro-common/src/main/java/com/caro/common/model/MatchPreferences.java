@@ -0,0 +1,28 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+
+public class MatchPreferences implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int boardSize;
+    private int totalRounds;
+    private int timePerTurnSeconds;
+    private int maxRatingGap; // How far apart two players may be (widens while waiting)
+
+    public MatchPreferences(int boardSize, int totalRounds, int timePerTurnSeconds, int maxRatingGap) {
+        this.boardSize = boardSize;
+        this.totalRounds = totalRounds;
+        this.timePerTurnSeconds = timePerTurnSeconds;
+        this.maxRatingGap = maxRatingGap;
+    }
+
+    public int getBoardSize() { return boardSize; }
+    public int getTotalRounds() { return totalRounds; }
+    public int getTimePerTurnSeconds() { return timePerTurnSeconds; }
+    public int getMaxRatingGap() { return maxRatingGap; }
+
+    public GameSettings toSettings() {
+        return new GameSettings(boardSize, totalRounds, timePerTurnSeconds);
+    }
+}
@@ -0,0 +1,41 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+
+// Reply to a sequenced placeMove: what happened to clientSeq and the board version after it
+public class MoveAck implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Code {
+        APPLIED,        // The move is on the board
+        DUPLICATE,      // clientSeq was already applied (a retransmit); nothing changed
+        STALE_VERSION,  // The board moved on since expectedVersion; refetch or re-decide
+        NOT_YOUR_TURN,
+        CELL_TAKEN,
+        INVALID,        // Off the board or sequence number older than the last applied one
+        NO_GAME;        // No such room or no game running
+
+        public boolean isAccepted() { return this == APPLIED || this == DUPLICATE; }
+    }
+
+    private final Code code;
+    private final long clientSeq;
+    private final long version;
+
+    public MoveAck(Code code, long clientSeq, long version) {
+        this.code = code;
+        this.clientSeq = clientSeq;
+        this.version = version;
+    }
+
+    public Code getCode() { return code; }
+    public long getClientSeq() { return clientSeq; }
+    // Board version after the move (or the current one for a nack)
+    public long getVersion() { return version; }
+    public boolean isAccepted() { return code.isAccepted(); }
+
+    @Override
+    public String toString() {
+        return code + "(seq=" + clientSeq + ", v=" + version + ")";
+    }
+}
@@ -0,0 +1,69 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+
+/**
+ * A window of moves from a recorded game (see GameService.getReplay).
+ *
+ * 'board' is the position before move 'fromMove' (row-major, GameConstants cell values),
+ * so a viewer can start anywhere without the earlier moves. Move i of the window is
+ * fromMove + i; its side is HOST or GUEST and delayMs is the time since the move before.
+ */
+public class Replay implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int DRAW = 0;
+    public static final int HOST_WIN = 1;
+    public static final int GUEST_WIN = 2;
+    public static final int ABANDONED = 3;
+
+    public static final int HOST = 0;
+    public static final int GUEST = 1;
+
+    private final long gameId;
+    private final String hostUsername;
+    private final String guestUsername;
+    private final int boardSize;
+    private final int round;
+    private final int result;
+    private final long startedAt;
+    private final int totalMoves;
+
+    private final int fromMove;
+    private final byte[] board;
+    private final int[] cells;     // row * boardSize + col
+    private final byte[] sides;
+    private final int[] delaysMs;
+
+    public Replay(long gameId, String hostUsername, String guestUsername, int boardSize, int round, int result,
+                  long startedAt, int totalMoves, int fromMove, byte[] board, int[] cells, byte[] sides, int[] delaysMs) {
+        this.gameId = gameId;
+        this.hostUsername = hostUsername;
+        this.guestUsername = guestUsername;
+        this.boardSize = boardSize;
+        this.round = round;
+        this.result = result;
+        this.startedAt = startedAt;
+        this.totalMoves = totalMoves;
+        this.fromMove = fromMove;
+        this.board = board;
+        this.cells = cells;
+        this.sides = sides;
+        this.delaysMs = delaysMs;
+    }
+
+    public long getGameId() { return gameId; }
+    public String getHostUsername() { return hostUsername; }
+    public String getGuestUsername() { return guestUsername; }
+    public int getBoardSize() { return boardSize; }
+    public int getRound() { return round; }
+    public int getResult() { return result; }
+    public long getStartedAt() { return startedAt; }
+    public int getTotalMoves() { return totalMoves; }
+    public int getFromMove() { return fromMove; }
+    public byte[] getBoard() { return board; }
+    public int getMoveCount() { return cells.length; }
+    public int getCell(int i) { return cells[i]; }
+    public int getSide(int i) { return sides[i]; }
+    public int getDelayMs(int i) { return delaysMs[i]; }
+}
@@ -1,8 +1,8 @@
 package com.caro.common.model;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Room implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -22,17 +22,48 @@ public class Room implements Serializable {
     // Requirement 6: Chat history belongs to the room
     private List<ChatMessage> chatHistory;
 
+    // Server side: last clientSeq applied per seat, for placeMove retransmit dedupe. Only
+    // meaningful to the client process that sent it, so reset when a new login takes the seat.
+    private transient long hostMoveSeq;
+    private transient long guestMoveSeq;
+    // Server side: when the current turn times out (epoch ms, 0 if no turn is running)
+    private transient long turnDeadline;
+
     public Room(String id, String name, String hostUsername, GameSettings settings) {
         this.id = id;
         this.name = name;
         this.hostUsername = hostUsername;
         this.settings = settings;
-        this.chatHistory = new ArrayList<>();
+        // Copy-on-write: rooms are serialized by dispatcher threads while chat is appended
+        this.chatHistory = new CopyOnWriteArrayList<>();
         this.isBotMode = false;
         this.isGameStarted = false;
         this.gameState = new GameState(settings.getBoardSize() , hostUsername);
     }
 
+    private Room(Room other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.hostUsername = other.hostUsername;
+        this.guestUsername = other.guestUsername;
+        this.isBotMode = other.isBotMode;
+        this.settings = new GameSettings(other.settings.getBoardSize(), other.settings.getTotalRounds(),
+                other.settings.getTimePerTurnSeconds());
+        this.isGameStarted = other.isGameStarted;
+        this.gameState = other.gameState.copy();
+        this.currentRound = other.currentRound;
+        this.hostScore = other.hostScore;
+        this.guestScore = other.guestScore;
+        this.chatHistory = new CopyOnWriteArrayList<>(other.chatHistory);
+    }
+
+    // Point-in-time copy for events that are delivered after the room moves on. Taken
+    // under the room's lock, which the server holds while changing a room, so the board
+    // and scores agree with each other. Server-side fields are left out.
+    public synchronized Room copy() {
+        return new Room(this);
+    }
+
     public void addMessage(ChatMessage msg) {
         this.chatHistory.add(msg);
     }
@@ -47,7 +78,10 @@ public class Room implements Serializable {
     public String getName() { return name; }
     public String getHostUsername() { return hostUsername; }
     public String getGuestUsername() { return guestUsername; }
-    public void setGuestUsername(String guestUsername) { this.guestUsername = guestUsername; }
+    public void setGuestUsername(String guestUsername) {
+        this.guestUsername = guestUsername;
+        this.guestMoveSeq = 0; // New occupant, new sequence
+    }
     public GameSettings getSettings() { return settings; }
     public boolean isBotMode() { return isBotMode; }
     public void setBotMode(boolean botMode) { isBotMode = botMode; }
@@ -56,6 +90,12 @@ public class Room implements Serializable {
     public List<ChatMessage> getChatHistory() { return chatHistory; }
     public GameState getGameState() { return gameState; }
     public void setGameState(GameState gameState) { this.gameState = gameState; }
+    // New board for a new game or round. Its version continues from the old board's, so a
+    // move aimed at the old board never matches the new one.
+    public void startNewBoard(GameState next) {
+        if (gameState != null) next.setVersion(gameState.getVersion() + 1);
+        this.gameState = next;
+    }
     public int getCurrentRound() { return currentRound; }
     public void setCurrentRound(int r) { this.currentRound = r; }
     public int getHostScore() { return hostScore; }
@@ -63,6 +103,18 @@ public class Room implements Serializable {
     public int getGuestScore() { return guestScore; }
     public void setGuestScore(int s) { this.guestScore = s; }
 
+    public long getLastMoveSeq(String username) {
+        return username.equals(hostUsername) ? hostMoveSeq : guestMoveSeq;
+    }
+
+    public void setLastMoveSeq(String username, long seq) {
+        if (username.equals(hostUsername)) hostMoveSeq = seq;
+        else guestMoveSeq = seq;
+    }
+
+    public long getTurnDeadline() { return turnDeadline; }
+    public void setTurnDeadline(long turnDeadline) { this.turnDeadline = turnDeadline; }
+
     public void resetMatch() {
         this.currentRound = 1;
         this.hostScore = 0;
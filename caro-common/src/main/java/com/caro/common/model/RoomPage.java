@@ -0,0 +1,20 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class RoomPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Room> rooms;
+    private final String nextCursor; // Null when this is the last page
+
+    public RoomPage(List<Room> rooms, String nextCursor) {
+        this.rooms = rooms;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Room> getRooms() { return rooms; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+}
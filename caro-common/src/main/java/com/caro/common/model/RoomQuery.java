@@ -0,0 +1,37 @@
+package com.caro.common.model;
+
+import java.io.Serializable;
+
+// Filter + cursor for GameService.queryRooms. Zero / null fields mean "any".
+public class RoomQuery implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Opponent { ANY, HUMAN, BOT }
+
+    private boolean openOnly;
+    private int boardSize;
+    private int totalRounds;
+    private Opponent opponent = Opponent.ANY;
+    private String namePrefix;
+    private String cursor; // nextCursor of the previous page, null for the first page
+    private int limit;
+
+    public RoomQuery(int limit) {
+        this.limit = limit;
+    }
+
+    public boolean isOpenOnly() { return openOnly; }
+    public void setOpenOnly(boolean openOnly) { this.openOnly = openOnly; }
+    public int getBoardSize() { return boardSize; }
+    public void setBoardSize(int boardSize) { this.boardSize = boardSize; }
+    public int getTotalRounds() { return totalRounds; }
+    public void setTotalRounds(int totalRounds) { this.totalRounds = totalRounds; }
+    public Opponent getOpponent() { return opponent; }
+    public void setOpponent(Opponent opponent) { this.opponent = opponent; }
+    public String getNamePrefix() { return namePrefix; }
+    public void setNamePrefix(String namePrefix) { this.namePrefix = namePrefix; }
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+}
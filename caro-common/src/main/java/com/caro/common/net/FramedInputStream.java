@@ -0,0 +1,116 @@
+package com.caro.common.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Reads the frames written by FramedOutputStream and serves their bodies as one stream
+class FramedInputStream extends InputStream {
+    private final InputStream in;
+    private byte[] buf = new byte[8 * 1024];
+    private int pos;
+    private int limit;
+    private byte[] compressed;
+    private Inflater inflater;
+
+    FramedInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos == limit && !nextFrame()) return -1;
+        return buf[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (pos == limit && !nextFrame()) return -1;
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inflater != null) inflater.end();
+        in.close();
+    }
+
+    // False at a clean end of stream
+    private boolean nextFrame() throws IOException {
+        int header;
+        do {
+            int b0 = in.read();
+            if (b0 < 0) return false;
+            header = (b0 << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        } while ((header & ~FramedOutputStream.COMPRESSED) == 0); // Skip empty frames
+
+        int length = header & ~FramedOutputStream.COMPRESSED;
+        if (length > FramedOutputStream.MAX_FRAME + 8) throw new IOException("Bad frame length " + length);
+
+        if ((header & FramedOutputStream.COMPRESSED) == 0) {
+            ensureCapacity(length);
+            readFully(buf, length);
+            RmiTraffic.recordIn(4 + length, length);
+        } else {
+            int raw = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+            if (raw < 0 || raw > FramedOutputStream.MAX_FRAME) throw new IOException("Bad frame size " + raw);
+            int size = length - 4;
+            if (compressed == null || compressed.length < size) compressed = new byte[size];
+            readFully(compressed, size);
+            ensureCapacity(raw);
+            inflate(size, raw);
+            RmiTraffic.recordIn(4 + length, raw);
+            length = raw;
+        }
+        pos = 0;
+        limit = length;
+        return true;
+    }
+
+    private void inflate(int size, int raw) throws IOException {
+        if (inflater == null) inflater = new Inflater();
+        inflater.reset();
+        inflater.setInput(compressed, 0, size);
+        try {
+            int n = 0;
+            while (n < raw && !inflater.finished()) {
+                int got = inflater.inflate(buf, n, raw - n);
+                if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += got;
+            }
+            if (n != raw) throw new IOException("Truncated compressed frame");
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed frame", e);
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (buf.length < size) buf = new byte[Math.max(size, buf.length * 2)];
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) throw new EOFException();
+        return b;
+    }
+
+    private void readFully(byte[] target, int length) throws IOException {
+        int n = 0;
+        while (n < length) {
+            int got = in.read(target, n, length - n);
+            if (got < 0) throw new EOFException();
+            n += got;
+        }
+    }
+}
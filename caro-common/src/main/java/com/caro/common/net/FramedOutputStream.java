@@ -0,0 +1,114 @@
+package com.caro.common.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Buffers writes and sends them as one frame per flush: [int header][body], where the
+ * header is the body length with the top bit set if the body is deflated. A deflated body
+ * starts with the inflated length. See FramedInputStream for the other side.
+ *
+ * The header is filled into space kept free in front of the body, so a frame leaves in a
+ * single write: with TCP_NODELAY, separate header writes would go out as tiny segments.
+ */
+class FramedOutputStream extends OutputStream {
+    static final int COMPRESSED = 0x80000000;
+    // Config: A frame is sent early once this much is buffered without a flush
+    static final int MAX_FRAME = 1024 * 1024;
+    // Header bytes reserved at the front of buf (and of deflated, which also has the inflated length)
+    private static final int HEADER = 4;
+
+    private final OutputStream out;
+    private final int compressThreshold;
+    private byte[] buf = new byte[8 * 1024];
+    private int count = HEADER;
+    private Deflater deflater;
+    private byte[] deflated;
+
+    FramedOutputStream(OutputStream out, int compressThreshold) {
+        this.out = out;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensure(1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            ensure(1);
+            int n = Math.min(len, buf.length - count);
+            System.arraycopy(b, off, buf, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void ensure(int extra) throws IOException {
+        if (count + extra <= buf.length) return;
+        if (buf.length >= MAX_FRAME + HEADER) {
+            writeFrame();
+        } else {
+            buf = Arrays.copyOf(buf, Math.min(MAX_FRAME + HEADER, buf.length * 2));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (count > HEADER) writeFrame();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (deflater != null) deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeFrame() throws IOException {
+        int raw = count - HEADER;
+        count = HEADER;
+        if (compressThreshold > 0 && raw >= compressThreshold && writeCompressed(raw)) return;
+        putInt(buf, 0, raw);
+        out.write(buf, 0, HEADER + raw);
+        RmiTraffic.recordOut(HEADER + raw, raw);
+    }
+
+    // False if deflating did not make the frame smaller; it is then sent as-is
+    private boolean writeCompressed(int raw) throws IOException {
+        if (deflater == null) deflater = new Deflater(Deflater.BEST_SPEED);
+        if (deflated == null || deflated.length < 2 * HEADER + raw) deflated = new byte[2 * HEADER + raw];
+        deflater.reset();
+        deflater.setInput(buf, HEADER, raw);
+        deflater.finish();
+        int end = 2 * HEADER;
+        while (!deflater.finished() && end < deflated.length) {
+            end += deflater.deflate(deflated, end, deflated.length - end);
+        }
+        int size = end - 2 * HEADER;
+        if (!deflater.finished() || size + 4 >= raw) return false;
+
+        putInt(deflated, 0, (size + 4) | COMPRESSED);
+        putInt(deflated, HEADER, raw);
+        out.write(deflated, 0, end);
+        RmiTraffic.recordOut(end, raw);
+        return true;
+    }
+
+    private static void putInt(byte[] b, int at, int v) {
+        b[at] = (byte) (v >>> 24);
+        b[at + 1] = (byte) (v >>> 16);
+        b[at + 2] = (byte) (v >>> 8);
+        b[at + 3] = (byte) v;
+    }
+}
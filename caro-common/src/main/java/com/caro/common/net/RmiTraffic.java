@@ -0,0 +1,84 @@
+package com.caro.common.net;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bytes on the wire per remote method, as seen by TunedSocketFactory sockets.
+ *
+ * RMI reads and writes a call on the calling thread, so the caller sets a thread-local
+ * label (the method name) and every frame moved while it is set is counted under it.
+ * Traffic without a label (DGC, registry, connection checks) lands in "(other)".
+ */
+public final class RmiTraffic {
+    private static final String UNLABELLED = "(other)";
+
+    private static final ThreadLocal<String> LABEL = new ThreadLocal<>();
+    private static final Map<String, Counters> COUNTERS = new ConcurrentHashMap<>();
+
+    private RmiTraffic() {}
+
+    private static final class Counters {
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder rawIn = new LongAdder();
+        final LongAdder rawOut = new LongAdder();
+    }
+
+    public static void setLabel(String label) {
+        LABEL.set(label);
+    }
+
+    public static void clearLabel() {
+        LABEL.remove();
+    }
+
+    // wire = bytes on the socket, raw = bytes before compression
+    static void recordIn(int wire, int raw) {
+        Counters c = current();
+        c.bytesIn.add(wire);
+        c.rawIn.add(raw);
+    }
+
+    static void recordOut(int wire, int raw) {
+        Counters c = current();
+        c.bytesOut.add(wire);
+        c.rawOut.add(raw);
+    }
+
+    private static Counters current() {
+        String label = LABEL.get();
+        return COUNTERS.computeIfAbsent(label == null ? UNLABELLED : label, k -> new Counters());
+    }
+
+    // Wraps a remote stub so each call is labelled with its method name
+    @SuppressWarnings("unchecked")
+    public static <T> T labelled(Class<T> type, T stub) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) return method.invoke(stub, args);
+            setLabel(method.getName());
+            try {
+                return method.invoke(stub, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                clearLabel();
+            }
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    public static String dump() {
+        StringBuilder sb = new StringBuilder("--- rmi traffic (wire bytes in/out, before compression in/out) ---\n");
+        new TreeMap<>(COUNTERS).forEach((label, c) -> sb.append(label)
+                .append(" in=").append(c.bytesIn.sum()).append(" out=").append(c.bytesOut.sum())
+                .append(" raw_in=").append(c.rawIn.sum()).append(" raw_out=").append(c.rawOut.sum())
+                .append('\n'));
+        return sb.toString();
+    }
+}
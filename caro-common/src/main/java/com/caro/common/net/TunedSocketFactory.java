@@ -0,0 +1,99 @@
+package com.caro.common.net;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+
+/**
+ * Socket factory for exported RMI objects (GameServiceImpl and the client callback).
+ *
+ * Sockets get TCP_NODELAY and larger buffers, and their streams are framed per flush:
+ * RMI flushes once per call, so each call becomes one frame that is deflated when it is
+ * at least compressThreshold bytes (big lobby lists) and sent as-is otherwise. The client
+ * half travels inside the stub, so both ends always agree on the framing.
+ */
+public class TunedSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Config: Socket send/receive buffer size
+    private static final int SOCKET_BUFFER_SIZE = 64 * 1024;
+    // Config: Frames at least this big are compressed (-Dcaro.rmi.compressThreshold, 0 = never)
+    private static final int DEFAULT_COMPRESS_THRESHOLD = Integer.getInteger("caro.rmi.compressThreshold", 8 * 1024);
+
+    private final int compressThreshold;
+
+    public TunedSocketFactory() {
+        this(DEFAULT_COMPRESS_THRESHOLD);
+    }
+
+    public TunedSocketFactory(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        FramedSocket socket = new FramedSocket(compressThreshold);
+        tune(socket);
+        socket.connect(new java.net.InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return new ServerSocket(port) {
+            @Override
+            public Socket accept() throws IOException {
+                FramedSocket socket = new FramedSocket(compressThreshold);
+                implAccept(socket);
+                tune(socket);
+                return socket;
+            }
+        };
+    }
+
+    private static void tune(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        socket.setSendBufferSize(SOCKET_BUFFER_SIZE);
+        socket.setReceiveBufferSize(SOCKET_BUFFER_SIZE);
+    }
+
+    // RMI reuses connections per factory, so equal settings must compare equal
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TunedSocketFactory && ((TunedSocketFactory) o).compressThreshold == compressThreshold;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(compressThreshold);
+    }
+
+    private static final class FramedSocket extends Socket {
+        private final int compressThreshold;
+        private InputStream in;
+        private OutputStream out;
+
+        FramedSocket(int compressThreshold) {
+            this.compressThreshold = compressThreshold;
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            // Buffered, so a frame header is not four single-byte reads
+            if (in == null) in = new FramedInputStream(new BufferedInputStream(super.getInputStream(), SOCKET_BUFFER_SIZE));
+            return in;
+        }
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (out == null) out = new FramedOutputStream(super.getOutputStream(), compressThreshold);
+            return out;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.caro.common.net;
+
+import com.caro.common.model.ChatMessage;
+import com.caro.common.model.GameSettings;
+import com.caro.common.model.GameState;
+import com.caro.common.model.LobbyDelta;
+import com.caro.common.model.MoveAck;
+import com.caro.common.model.Room;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frame layout and model encoding for the binary transport.
+ *
+ * Frame: [int length][byte kind][int requestId][byte op][payload], where length counts
+ * everything after itself. Responses carry the request's id, so a connection can have
+ * many requests in flight; pushes use id 0.
+ *
+ * The hot paths (login, moves, chat, lobby/game pushes) are encoded field by field.
+ * Everything else goes through INVOKE, which carries the method signature and Java-
+ * serialized arguments, so new GameService methods work without new opcodes.
+ */
+public final class WireCodec {
+
+    // Frame kinds
+    public static final byte REQUEST = 1;
+    public static final byte RESPONSE = 2;
+    public static final byte ERROR = 3;
+    public static final byte PUSH = 4;
+
+    // Request ops
+    public static final byte LOGIN = 1;
+    public static final byte LOGOUT = 2;
+    public static final byte HEARTBEAT = 3;
+    public static final byte CREATE_ROOM = 4;
+    public static final byte JOIN_ROOM = 5;
+    public static final byte LEAVE_ROOM = 6;
+    public static final byte START_GAME = 7;
+    public static final byte PLACE_MOVE = 8;
+    public static final byte SEND_CHAT = 9;
+    public static final byte GET_ALL_ROOMS = 10;
+    public static final byte GET_ONLINE_USERS = 11;
+    public static final byte PLACE_MOVE_SEQ = 12;
+    public static final byte RESUME_SESSION = 13;
+    public static final byte LOGIN_PASSWORD = 14;
+    public static final byte INVOKE = 127;
+
+    // Push ops (one per ClientCallback method)
+    public static final byte ON_LOBBY = 1;
+    public static final byte ON_USERS = 2;
+    public static final byte ON_ROOM_INFO = 3;
+    public static final byte ON_GAME_STATE = 4;
+    public static final byte ON_CHAT = 5;
+    public static final byte ON_GAME_ENDED = 6;
+    public static final byte ON_KICKED = 7;
+    public static final byte ON_SPECTATE = 8;
+    public static final byte ON_PING = 9;
+    public static final byte ON_LOBBY_DELTA = 10;
+
+    // Bytes after the length prefix before the payload starts
+    public static final int HEADER_SIZE = 6;
+    // Config: Frames above this are treated as a protocol error
+    public static final int MAX_FRAME_SIZE = 4 * 1024 * 1024;
+
+    // INVOKE payloads may only contain model classes and plain JDK value types
+    private static final ObjectInputFilter INVOKE_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=20;maxbytes=" + MAX_FRAME_SIZE
+                    + ";com.caro.common.model.**;java.lang.*;java.util.*;java.util.concurrent.*;java.time.*;!*");
+
+    private WireCodec() {}
+
+    public interface Body {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    // Whole frame including the length prefix, ready to write
+    public static ByteBuffer frame(byte kind, int requestId, byte op, Body body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // Patched below
+            out.writeByte(kind);
+            out.writeInt(requestId);
+            out.writeByte(op);
+            if (body != null) body.writeTo(out);
+            out.flush();
+            ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+            frame.putInt(0, frame.limit() - 4);
+            return frame;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reader positioned at the payload of a frame (bytes after the length prefix)
+    public static DataInputStream payload(byte[] frame) {
+        return new DataInputStream(new ByteArrayInputStream(frame, HEADER_SIZE, frame.length - HEADER_SIZE));
+    }
+
+    public static byte kind(byte[] frame) { return frame[0]; }
+    public static int requestId(byte[] frame) { return ByteBuffer.wrap(frame, 1, 4).getInt(); }
+    public static byte op(byte[] frame) { return frame[5]; }
+
+    // Stable name for a GameService method, used by INVOKE
+    public static String methodKey(Method method) {
+        StringBuilder key = new StringBuilder(method.getName()).append('(');
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) key.append(',');
+            key.append(types[i].getName());
+        }
+        return key.append(')').toString();
+    }
+
+    // Java serialization for INVOKE arguments and results (length-prefixed)
+    public static void writeObject(DataOutputStream out, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+            objects.writeObject(value);
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    public static Object readObject(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            objects.setObjectInputFilter(INVOKE_FILTER);
+            return objects.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in payload: " + e.getMessage(), e);
+        }
+    }
+
+    // --- Models ---
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeSettings(DataOutputStream out, GameSettings settings) throws IOException {
+        out.writeShort(settings.getBoardSize());
+        out.writeShort(settings.getTotalRounds());
+        out.writeShort(settings.getTimePerTurnSeconds());
+    }
+
+    public static GameSettings readSettings(DataInputStream in) throws IOException {
+        return new GameSettings(in.readShort(), in.readShort(), in.readShort());
+    }
+
+    public static void writeGameState(DataOutputStream out, GameState state) throws IOException {
+        int[][] board = state.getBoard();
+        out.writeShort(board.length);
+        for (int[] row : board) {
+            for (int cell : row) out.writeByte(cell);
+        }
+        writeString(out, state.getCurrentTurnUsername());
+        writeString(out, state.getWinnerUsername());
+        out.writeBoolean(state.isDraw());
+        out.writeLong(state.getVersion());
+    }
+
+    public static GameState readGameState(DataInputStream in) throws IOException {
+        int size = in.readShort();
+        GameState state = new GameState(size, null);
+        int[][] board = state.getBoard();
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) board[r][c] = in.readByte();
+        }
+        state.setCurrentTurnUsername(readString(in));
+        state.setWinnerUsername(readString(in));
+        state.setDraw(in.readBoolean());
+        state.setVersion(in.readLong());
+        return state;
+    }
+
+    public static void writeChat(DataOutputStream out, ChatMessage message) throws IOException {
+        writeString(out, message.getSender());
+        writeString(out, message.getContent());
+        writeString(out, message.getTimestamp() == null ? null : message.getTimestamp().toString());
+    }
+
+    public static ChatMessage readChat(DataInputStream in) throws IOException {
+        String sender = readString(in);
+        String content = readString(in);
+        String timestamp = readString(in);
+        return new ChatMessage(sender, content, timestamp == null ? null : LocalDateTime.parse(timestamp));
+    }
+
+    // Ack: [byte code][long clientSeq][long version]
+    public static void writeMoveAck(DataOutputStream out, MoveAck ack) throws IOException {
+        out.writeByte(ack.getCode().ordinal());
+        out.writeLong(ack.getClientSeq());
+        out.writeLong(ack.getVersion());
+    }
+
+    public static MoveAck readMoveAck(DataInputStream in) throws IOException {
+        MoveAck.Code[] codes = MoveAck.Code.values();
+        int code = in.readByte();
+        if (code < 0 || code >= codes.length) throw new IOException("Bad ack code " + code);
+        return new MoveAck(codes[code], in.readLong(), in.readLong());
+    }
+
+    // Lobby lists skip chat history and the board; withDetails adds them (room view)
+    public static void writeRoom(DataOutputStream out, Room room, boolean withDetails) throws IOException {
+        out.writeUTF(room.getId());
+        out.writeUTF(room.getName());
+        out.writeUTF(room.getHostUsername());
+        writeString(out, room.getGuestUsername());
+        writeSettings(out, room.getSettings());
+        out.writeBoolean(room.isBotMode());
+        out.writeBoolean(room.isGameStarted());
+        out.writeShort(room.getCurrentRound());
+        out.writeShort(room.getHostScore());
+        out.writeShort(room.getGuestScore());
+        out.writeBoolean(withDetails);
+        if (withDetails) {
+            List<ChatMessage> chat = room.getChatHistory();
+            out.writeInt(chat.size());
+            for (ChatMessage message : chat) writeChat(out, message);
+            writeGameState(out, room.getGameState());
+        }
+    }
+
+    public static Room readRoom(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        String name = in.readUTF();
+        String host = in.readUTF();
+        String guest = readString(in);
+        Room room = new Room(id, name, host, readSettings(in));
+        room.setGuestUsername(guest);
+        room.setBotMode(in.readBoolean());
+        room.setGameStarted(in.readBoolean());
+        room.setCurrentRound(in.readShort());
+        room.setHostScore(in.readShort());
+        room.setGuestScore(in.readShort());
+        if (in.readBoolean()) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) room.addMessage(readChat(in));
+            room.setGameState(readGameState(in));
+        }
+        return room;
+    }
+
+    public static void writeRooms(DataOutputStream out, List<Room> rooms) throws IOException {
+        out.writeInt(rooms.size());
+        for (Room room : rooms) writeRoom(out, room, false);
+    }
+
+    public static List<Room> readRooms(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Room> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) rooms.add(readRoom(in));
+        return rooms;
+    }
+
+    public static void writeLobbyDelta(DataOutputStream out, LobbyDelta delta) throws IOException {
+        writeRooms(out, delta.getUpserts());
+        writeStrings(out, delta.getRemovedIds());
+    }
+
+    public static LobbyDelta readLobbyDelta(DataInputStream in) throws IOException {
+        List<Room> upserts = readRooms(in);
+        return new LobbyDelta(upserts, readStrings(in));
+    }
+
+    public static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) out.writeUTF(value);
+    }
+
+    public static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) values.add(in.readUTF());
+        return values;
+    }
+
+    public static void writeBlobs(DataOutputStream out, List<byte[]> blobs) throws IOException {
+        out.writeInt(blobs.size());
+        for (byte[] blob : blobs) {
+            out.writeInt(blob.length);
+            out.write(blob);
+        }
+    }
+
+    public static List<byte[]> readBlobs(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<byte[]> blobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] blob = new byte[in.readInt()];
+            in.readFully(blob);
+            blobs.add(blob);
+        }
+        return blobs;
+    }
+}
@@ -0,0 +1,391 @@
+package com.caro.common.net;
+
+import com.caro.common.model.Command;
+import com.caro.common.model.CommandResult;
+import com.caro.common.model.EventBatch;
+import com.caro.common.model.GameSettings;
+import com.caro.common.model.LeaderboardEntry;
+import com.caro.common.model.MatchPreferences;
+import com.caro.common.model.MoveAck;
+import com.caro.common.model.Replay;
+import com.caro.common.model.Room;
+import com.caro.common.model.RoomPage;
+import com.caro.common.model.RoomQuery;
+import com.caro.common.service.ClientCallback;
+import com.caro.common.service.GameService;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GameService over one TCP connection using the WireCodec framing.
+ *
+ * Any number of threads can have requests in flight at once; a reader thread matches
+ * responses by request id and hands pushes to the local ClientCallback, so the caller
+ * needs no exported RMI object and the server needs no connection back.
+ */
+public class WireGameClient implements GameService {
+    // Config: How long a request may wait for its response
+    private static final long CALL_TIMEOUT_MS = 30000;
+    // Config: Socket buffer sizes
+    private static final int SOCKET_BUFFER_SIZE = 64 * 1024;
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final Map<Integer, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger requestIds = new AtomicInteger();
+    private volatile ClientCallback callback;
+    private volatile boolean closed;
+
+    public WireGameClient(String host, int port, ClientCallback callback) throws IOException {
+        this.callback = callback;
+        this.socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.setReceiveBufferSize(SOCKET_BUFFER_SIZE);
+        socket.setSendBufferSize(SOCKET_BUFFER_SIZE);
+        socket.connect(new InetSocketAddress(host, port));
+        this.out = socket.getOutputStream();
+
+        Thread reader = new Thread(this::readLoop, "wire-client-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public void close() {
+        closed = true;
+        try { socket.close(); } catch (IOException e) { /* ignore */ }
+        failAll(new RemoteException("Connection closed."));
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // --- GameService ---
+
+    @Override
+    public long login(String username, ClientCallback callback) throws RemoteException {
+        // The server pushes on this connection; the callback only has to be a local object
+        if (callback != null) this.callback = callback;
+        DataInputStream in = call(WireCodec.LOGIN, out -> out.writeUTF(username));
+        return read(in::readLong);
+    }
+
+    @Override
+    public long login(String username, String password, ClientCallback callback) throws RemoteException {
+        if (callback != null) this.callback = callback;
+        DataInputStream in = call(WireCodec.LOGIN_PASSWORD, out -> {
+            out.writeUTF(username);
+            out.writeUTF(password);
+        });
+        return read(in::readLong);
+    }
+
+    @Override
+    public boolean resumeSession(long sessionToken, ClientCallback callback) throws RemoteException {
+        // Like login: pushes for the resumed session arrive on this connection
+        if (callback != null) this.callback = callback;
+        DataInputStream in = call(WireCodec.RESUME_SESSION, out -> out.writeLong(sessionToken));
+        return read(in::readBoolean);
+    }
+
+    @Override
+    public void logout(String username) throws RemoteException {
+        call(WireCodec.LOGOUT, out -> out.writeUTF(username));
+    }
+
+    @Override
+    public void sendHeartbeat(String username) throws RemoteException {
+        call(WireCodec.HEARTBEAT, out -> out.writeUTF(username));
+    }
+
+    @Override
+    public boolean isUdpHeartbeatEnabled() throws RemoteException {
+        return (Boolean) invoke("isUdpHeartbeatEnabled", new Class<?>[0]);
+    }
+
+    @Override
+    public EventBatch pollEvents(long sessionToken, long lastSeq, long maxWaitMs) throws RemoteException {
+        return (EventBatch) invoke("pollEvents", new Class<?>[]{long.class, long.class, long.class},
+                sessionToken, lastSeq, maxWaitMs);
+    }
+
+    @Override
+    public List<String> getOnlineUsers() throws RemoteException {
+        DataInputStream in = call(WireCodec.GET_ONLINE_USERS, null);
+        return read(() -> WireCodec.readStrings(in));
+    }
+
+    @Override
+    public List<Room> getAllRooms() throws RemoteException {
+        DataInputStream in = call(WireCodec.GET_ALL_ROOMS, null);
+        return read(() -> WireCodec.readRooms(in));
+    }
+
+    @Override
+    public RoomPage queryRooms(RoomQuery query) throws RemoteException {
+        return (RoomPage) invoke("queryRooms", new Class<?>[]{RoomQuery.class}, query);
+    }
+
+    @Override
+    public Replay getReplay(long gameId, int fromMove, int count) throws RemoteException {
+        return (Replay) invoke("getReplay", new Class<?>[]{long.class, int.class, int.class}, gameId, fromMove, count);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<LeaderboardEntry> getTopPlayers(int count) throws RemoteException {
+        return (List<LeaderboardEntry>) invoke("getTopPlayers", new Class<?>[]{int.class}, count);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<LeaderboardEntry> getPlayersAround(String username, int radius) throws RemoteException {
+        return (List<LeaderboardEntry>) invoke("getPlayersAround", new Class<?>[]{String.class, int.class}, username, radius);
+    }
+
+    @Override
+    public LeaderboardEntry getRanking(String username) throws RemoteException {
+        return (LeaderboardEntry) invoke("getRanking", new Class<?>[]{String.class}, username);
+    }
+
+    @Override
+    public void updateRoomSettings(String username, String roomId, GameSettings settings) throws RemoteException {
+        invoke("updateRoomSettings", new Class<?>[]{String.class, String.class, GameSettings.class}, username, roomId, settings);
+    }
+
+    @Override
+    public void createRoom(String username, GameSettings settings) throws RemoteException {
+        call(WireCodec.CREATE_ROOM, out -> {
+            out.writeUTF(username);
+            WireCodec.writeSettings(out, settings);
+        });
+    }
+
+    @Override
+    public void joinRoom(String username, String roomId) throws RemoteException {
+        call(WireCodec.JOIN_ROOM, out -> {
+            out.writeUTF(username);
+            out.writeUTF(roomId);
+        });
+    }
+
+    @Override
+    public void leaveRoom(String username, String roomId) throws RemoteException {
+        call(WireCodec.LEAVE_ROOM, out -> {
+            out.writeUTF(username);
+            out.writeUTF(roomId);
+        });
+    }
+
+    @Override
+    public void kickPlayer(String hostUsername, String roomId, String playerToKick) throws RemoteException {
+        invoke("kickPlayer", new Class<?>[]{String.class, String.class, String.class}, hostUsername, roomId, playerToKick);
+    }
+
+    @Override
+    public void quickMatch(String username, MatchPreferences preferences) throws RemoteException {
+        invoke("quickMatch", new Class<?>[]{String.class, MatchPreferences.class}, username, preferences);
+    }
+
+    @Override
+    public void cancelQuickMatch(String username) throws RemoteException {
+        invoke("cancelQuickMatch", new Class<?>[]{String.class}, username);
+    }
+
+    @Override
+    public void spectateRoom(String username, String roomId) throws RemoteException {
+        invoke("spectateRoom", new Class<?>[]{String.class, String.class}, username, roomId);
+    }
+
+    @Override
+    public void stopSpectating(String username) throws RemoteException {
+        invoke("stopSpectating", new Class<?>[]{String.class}, username);
+    }
+
+    @Override
+    public void addBot(String hostUsername, String roomId) throws RemoteException {
+        invoke("addBot", new Class<?>[]{String.class, String.class}, hostUsername, roomId);
+    }
+
+    @Override
+    public void startGame(String hostUsername, String roomId) throws RemoteException {
+        call(WireCodec.START_GAME, out -> {
+            out.writeUTF(hostUsername);
+            out.writeUTF(roomId);
+        });
+    }
+
+    @Override
+    public void placeMove(String username, String roomId, int row, int col) throws RemoteException {
+        call(WireCodec.PLACE_MOVE, out -> {
+            out.writeUTF(username);
+            out.writeUTF(roomId);
+            out.writeShort(row);
+            out.writeShort(col);
+        });
+    }
+
+    @Override
+    public MoveAck placeMove(String username, String roomId, int row, int col, long clientSeq, long expectedVersion)
+            throws RemoteException {
+        DataInputStream in = call(WireCodec.PLACE_MOVE_SEQ, out -> {
+            out.writeUTF(username);
+            out.writeUTF(roomId);
+            out.writeShort(row);
+            out.writeShort(col);
+            out.writeLong(clientSeq);
+            out.writeLong(expectedVersion);
+        });
+        return read(() -> WireCodec.readMoveAck(in));
+    }
+
+    @Override
+    public List<CommandResult> submitBatch(List<Command> commands) throws RemoteException {
+        @SuppressWarnings("unchecked")
+        List<CommandResult> results = (List<CommandResult>) invoke("submitBatch", new Class<?>[]{List.class}, commands);
+        return results;
+    }
+
+    @Override
+    public void sendChat(String username, String roomId, String message) throws RemoteException {
+        call(WireCodec.SEND_CHAT, out -> {
+            out.writeUTF(username);
+            out.writeUTF(roomId);
+            out.writeUTF(message);
+        });
+    }
+
+    // --- Requests ---
+
+    private interface Reader<T> {
+        T read() throws IOException;
+    }
+
+    private static <T> T read(Reader<T> reader) throws RemoteException {
+        try {
+            return reader.read();
+        } catch (IOException e) {
+            throw new RemoteException("Malformed response.", e);
+        }
+    }
+
+    // Methods without a dedicated op: signature plus serialized arguments
+    private Object invoke(String name, Class<?>[] types, Object... args) throws RemoteException {
+        String key;
+        try {
+            key = WireCodec.methodKey(GameService.class.getMethod(name, types));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        DataInputStream in = call(WireCodec.INVOKE, out -> {
+            out.writeUTF(key);
+            WireCodec.writeObject(out, args);
+        });
+        return read(() -> WireCodec.readObject(in));
+    }
+
+    private DataInputStream call(byte op, WireCodec.Body body) throws RemoteException {
+        if (closed) throw new RemoteException("Connection closed.");
+        int id = requestIds.incrementAndGet();
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        inFlight.put(id, response);
+
+        ByteBuffer frame = WireCodec.frame(WireCodec.REQUEST, id, op, body);
+        try {
+            synchronized (out) {
+                out.write(frame.array(), 0, frame.limit());
+                out.flush();
+            }
+            byte[] reply = response.get(CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            DataInputStream in = WireCodec.payload(reply);
+            if (WireCodec.kind(reply) == WireCodec.ERROR) throw new RemoteException(read(in::readUTF));
+            return in;
+        } catch (RemoteException e) {
+            throw e;
+        } catch (IOException e) {
+            close();
+            throw new RemoteException("Connection lost.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RemoteException ? (RemoteException) e.getCause()
+                    : new RemoteException("Call failed.", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RemoteException("Timed out waiting for the server.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted.");
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    // --- Reader ---
+
+    private void readLoop() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), SOCKET_BUFFER_SIZE))) {
+            while (!closed) {
+                int length = in.readInt();
+                if (length < WireCodec.HEADER_SIZE || length > WireCodec.MAX_FRAME_SIZE) {
+                    throw new IOException("Bad frame length " + length);
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+
+                if (WireCodec.kind(frame) == WireCodec.PUSH) {
+                    deliverPush(frame);
+                } else {
+                    CompletableFuture<byte[]> response = inFlight.get(WireCodec.requestId(frame));
+                    if (response != null) response.complete(frame);
+                }
+            }
+        } catch (EOFException e) {
+            // Server closed the connection
+        } catch (IOException e) {
+            if (!closed) System.err.println("Wire connection failed: " + e.getMessage());
+        }
+        close();
+    }
+
+    private void deliverPush(byte[] frame) {
+        ClientCallback target = callback;
+        if (target == null) return;
+        DataInputStream in = WireCodec.payload(frame);
+        try {
+            switch (WireCodec.op(frame)) {
+                case WireCodec.ON_LOBBY: target.onLobbyUpdate(WireCodec.readRooms(in)); break;
+                case WireCodec.ON_LOBBY_DELTA: target.onLobbyDelta(WireCodec.readLobbyDelta(in)); break;
+                case WireCodec.ON_USERS: target.onUserListUpdate(WireCodec.readStrings(in)); break;
+                case WireCodec.ON_ROOM_INFO: target.onRoomInfoUpdate(WireCodec.readRoom(in)); break;
+                case WireCodec.ON_GAME_STATE: target.onGameStateUpdate(WireCodec.readGameState(in)); break;
+                case WireCodec.ON_CHAT: target.onChatMessageReceived(WireCodec.readChat(in)); break;
+                case WireCodec.ON_GAME_ENDED: target.onGameEnded(in.readUTF()); break;
+                case WireCodec.ON_KICKED: target.onKicked(in.readUTF()); break;
+                case WireCodec.ON_SPECTATE: target.onSpectateEvents(WireCodec.readBlobs(in)); break;
+                case WireCodec.ON_PING: target.ping(); break;
+                default: System.err.println("Unknown push op " + WireCodec.op(frame));
+            }
+        } catch (Exception e) {
+            // A bad push must not kill the connection
+            e.printStackTrace();
+        }
+    }
+
+    private void failAll(RemoteException cause) {
+        for (CompletableFuture<byte[]> response : inFlight.values()) response.completeExceptionally(cause);
+    }
+}
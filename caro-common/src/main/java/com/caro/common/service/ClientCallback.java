@@ -2,6 +2,7 @@ package com.caro.common.service;
 
 import com.caro.common.model.ChatMessage;
 import com.caro.common.model.GameState;
+import com.caro.common.model.LobbyDelta;
 import com.caro.common.model.Room;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -12,6 +13,9 @@ public interface ClientCallback extends Remote {
     // Updates the Lobby list (called when any room changes)
     void onLobbyUpdate(List<Room> rooms) throws RemoteException;
 
+    // Applies on top of the last full lobby list (rooms added/changed/removed by id)
+    void onLobbyDelta(LobbyDelta delta) throws RemoteException;
+
     // Update the user list (called when players login or logout)
     void onUserListUpdate(List<String> users) throws RemoteException;
     
@@ -30,6 +34,9 @@ public interface ClientCallback extends Remote {
     // Called if server kicks you (timeout or host kicked)
     void onKicked(String reason) throws RemoteException;
     
+    // Spectator stream for a watched room: SpectateCodec-encoded events, oldest first
+    void onSpectateEvents(List<byte[]> events) throws RemoteException;
+    
     // Simple ping to check if client is alive
     void ping() throws RemoteException;
 }
@@ -1,7 +1,16 @@
 package com.caro.common.service;
 
+import com.caro.common.model.Command;
+import com.caro.common.model.CommandResult;
+import com.caro.common.model.EventBatch;
 import com.caro.common.model.GameSettings;
+import com.caro.common.model.LeaderboardEntry;
+import com.caro.common.model.MatchPreferences;
+import com.caro.common.model.MoveAck;
+import com.caro.common.model.Replay;
 import com.caro.common.model.Room;
+import com.caro.common.model.RoomPage;
+import com.caro.common.model.RoomQuery;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -10,28 +19,76 @@ import java.util.List;
 public interface GameService extends Remote {
     
     // Auth
-    // Returns true if login success, throws exception or false if fail
-    boolean login(String username, ClientCallback callback) throws RemoteException;
+    // Returns the session token on success, throws exception or 0 if fail. The token is
+    // only ever handed out here: keep it, it authenticates resumeSession, pollEvents and
+    // UDP heartbeats. A null callback selects poll mode: events are fetched with pollEvents instead.
+    // The first login with a name registers it with that password; later ones must match.
+    // Returns 0 for a wrong password.
+    long login(String username, String password, ClientCallback callback) throws RemoteException;
+    // Guest login without a password, only for names nobody has registered
+    long login(String username, ClientCallback callback) throws RemoteException;
     void logout(String username) throws RemoteException;
+    // Fails while the session is suspended (the server lost us): the client should resume
     void sendHeartbeat(String username) throws RemoteException;
+    // Reattaches to a login after a dropped connection, within GameConstants.SESSION_HOLD_SECONDS.
+    // Takes the token returned by login and the same kind of callback as login (null for
+    // poll mode). On success the room seat is kept and only missed events are delivered;
+    // false means the session is gone and the client has to log in again. Only a suspended
+    // session can be resumed: throws while the server still sees the old connection as live.
+    boolean resumeSession(long sessionToken, ClientCallback callback) throws RemoteException;
+
+    // True if the server accepts UDP heartbeats (see GameConstants.HEARTBEAT_UDP_PORT)
+    boolean isUdpHeartbeatEnabled() throws RemoteException;
+    // Poll mode: events after lastSeq, waiting up to maxWaitMs (capped by the server) for one.
+    // Takes the token returned by login; a poll also resumes the session if it was suspended.
+    EventBatch pollEvents(long sessionToken, long lastSeq, long maxWaitMs) throws RemoteException;
 
     List<String> getOnlineUsers() throws RemoteException;
 
     // Room Management
     List<Room> getAllRooms() throws RemoteException;
+    // One page of rooms matching the query (at most GameConstants.LOBBY_PAGE_SIZE)
+    RoomPage queryRooms(RoomQuery query) throws RemoteException;
     void updateRoomSettings(String username, String roomId, GameSettings settings) throws RemoteException;
     void createRoom(String username, GameSettings settings) throws RemoteException;
     void joinRoom(String username, String roomId) throws RemoteException;
     void leaveRoom(String username, String roomId) throws RemoteException;
     void kickPlayer(String hostUsername, String roomId, String playerToKick) throws RemoteException;
     
+    // Matchmaking: the result arrives as onRoomInfoUpdate once an opponent is found
+    void quickMatch(String username, MatchPreferences preferences) throws RemoteException;
+    void cancelQuickMatch(String username) throws RemoteException;
+
+    // Spectating: events arrive through ClientCallback.onSpectateEvents, starting with a snapshot
+    void spectateRoom(String username, String roomId) throws RemoteException;
+    void stopSpectating(String username) throws RemoteException;
+
     // PvE
     void addBot(String hostUsername, String roomId) throws RemoteException;
 
     // Game Logic
     void startGame(String hostUsername, String roomId) throws RemoteException;
     void placeMove(String username, String roomId, int row, int col) throws RemoteException;
+    // Sequenced move: clientSeq increases per move (1, 2, ...); a repeat of the last applied seq
+    // is acked as DUPLICATE, so retries are safe. expectedVersion < 0 skips the version check.
+    MoveAck placeMove(String username, String roomId, int row, int col, long clientSeq, long expectedVersion) throws RemoteException;
+    // Applies the commands in order in one round trip; one result per command, same order.
+    // A rejected command does not stop the rest. At most GameConstants.MAX_BATCH_SIZE commands.
+    List<CommandResult> submitBatch(List<Command> commands) throws RemoteException;
     
     // Chat
     void sendChat(String username, String roomId, String message) throws RemoteException;
+
+    // Replays: every finished game is recorded; its id is announced in the room chat.
+    // Returns up to count moves (at most GameConstants.REPLAY_PAGE_MOVES) from fromMove on,
+    // with the board before fromMove, so a viewer can seek anywhere in one call.
+    Replay getReplay(long gameId, int fromMove, int count) throws RemoteException;
+
+    // Ratings: registered players are rated (Elo) when a match against another one ends.
+    // At most GameConstants.LEADERBOARD_MAX_ENTRIES entries per call.
+    List<LeaderboardEntry> getTopPlayers(int count) throws RemoteException;
+    // The player's entry with up to 'radius' players above and below; empty if not ranked
+    List<LeaderboardEntry> getPlayersAround(String username, int radius) throws RemoteException;
+    // Rank 0 and the default rating for a player without rated games
+    LeaderboardEntry getRanking(String username) throws RemoteException;
 }
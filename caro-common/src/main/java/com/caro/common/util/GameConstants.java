@@ -3,6 +3,18 @@ package com.caro.common.util;
 public class GameConstants {
     public static final String RMI_ID = "CaroGameService";
     public static final int RMI_PORT = 1099;
+    // Binary transport (see com.caro.common.net.WireCodec), enabled on the server with -Dcaro.nio=true
+    public static final int NIO_PORT = 1101;
+
+    // UDP heartbeat packet: [int magic][long session token]
+    public static final int HEARTBEAT_UDP_PORT = 1100;
+    public static final int HEARTBEAT_PACKET_MAGIC = 0x43524842; // "CRHB"
+    public static final int HEARTBEAT_PACKET_SIZE = 12;
+    public static final int HEARTBEAT_INTERVAL_SECONDS = 5;
+    // Poll mode: how long one pollEvents call may wait (below the heartbeat timeout)
+    public static final long POLL_MAX_WAIT_MS = 5000;
+    // How long the server holds a dropped session, and its room seat, for resumeSession
+    public static final int SESSION_HOLD_SECONDS = 30;
     
     public static final int CELL_EMPTY = 0;
     public static final int CELL_X = 1; // Host usually
@@ -10,4 +22,15 @@ public class GameConstants {
     
     public static final int WIN_STREAK = 5; // The rule is 5 in a row
     public static final int TURN_TIMEOUT_SECONDS = 10;
+
+    public static final int DEFAULT_RATING = 1200;
+
+    // Max rooms returned by one GameService.queryRooms call
+    public static final int LOBBY_PAGE_SIZE = 50;
+    // Max commands accepted by one GameService.submitBatch call
+    public static final int MAX_BATCH_SIZE = 256;
+    // Max moves returned by one GameService.getReplay call
+    public static final int REPLAY_PAGE_MOVES = 256;
+    // Max players returned by one GameService.getTopPlayers / getPlayersAround call
+    public static final int LEADERBOARD_MAX_ENTRIES = 100;
 }
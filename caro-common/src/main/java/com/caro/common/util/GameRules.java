@@ -1,5 +1,7 @@
 package com.caro.common.util;
 
+import com.caro.common.model.GameState;
+
 public class GameRules {
     // Directions: Horizontal, Vertical, Diagonal \, Diagonal /
     private static final int[] dx = {1, 0, 1, 1};
@@ -28,6 +30,15 @@ public class GameRules {
         return false;
     }
 
+    // Pre-check for a move (right player, on the board, empty cell). The client uses it
+    // before predicting a move; the server remains the authority.
+    public static boolean isLegalMove(GameState state, String username, int r, int c) {
+        if (state == null || state.getWinnerUsername() != null) return false;
+        if (username == null || !username.equals(state.getCurrentTurnUsername())) return false;
+        int[][] board = state.getBoard();
+        return isValid(r, c, board.length) && board[r][c] == GameConstants.CELL_EMPTY;
+    }
+
     private static boolean isValid(int r, int c, int size) {
         return r >= 0 && r < size && c >= 0 && c < size;
     }
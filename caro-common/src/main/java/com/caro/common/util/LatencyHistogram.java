@@ -0,0 +1,63 @@
+package com.caro.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram with power-of-two buckets.
+ * Cheap enough to record on hot paths (a few atomic adds per sample);
+ * percentiles are approximate (upper bound of the bucket).
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final String unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram(String unit) {
+        this.unit = unit;
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        // Bucket i holds values in [2^(i-1), 2^i - 1]; bucket 0 holds zero
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() { return count.sum(); }
+    public long getMax() { return max.get(); }
+
+    public double getAverage() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100)
+    public long getPercentile(double percentile) {
+        long n = count.sum();
+        if (n == 0) return 0;
+        long target = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return i == 0 ? 0 : Math.min((1L << i) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d avg=%.1f%s p50<=%d%s p99<=%d%s max=%d%s",
+                getCount(), getAverage(), unit, getPercentile(50), unit, getPercentile(99), unit, getMax(), unit);
+    }
+}
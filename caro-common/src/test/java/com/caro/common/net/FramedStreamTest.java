@@ -0,0 +1,173 @@
+package com.caro.common.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FramedStreamTest {
+    private static final int THRESHOLD = 256;
+
+    // Records each write call, so the test can see how frames reach the socket
+    private static class RecordingStream extends OutputStream {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final List<Integer> writes = new ArrayList<>();
+
+        @Override
+        public void write(int b) {
+            writes.add(1);
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writes.add(len);
+            bytes.write(b, off, len);
+        }
+    }
+
+    private static byte[] compressible(int size) {
+        byte[] b = new byte[size];
+        for (int i = 0; i < size; i++) b[i] = (byte) ('a' + i % 5);
+        return b;
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] b = new byte[size];
+        new Random(seed).nextBytes(b);
+        return b;
+    }
+
+    private static FramedInputStream reader(byte[] wire) {
+        return new FramedInputStream(new BufferedInputStream(new ByteArrayInputStream(wire)));
+    }
+
+    @Test
+    void messagesRoundTrip() throws IOException {
+        List<byte[]> messages = new ArrayList<>();
+        messages.add(new byte[]{42});
+        messages.add(random(THRESHOLD - 1, 1));
+        messages.add(compressible(THRESHOLD));       // Compressed, just at the threshold
+        messages.add(random(THRESHOLD * 4, 2));       // Over the threshold but incompressible: sent as-is
+        messages.add(compressible(100_000));
+        messages.add(random(FramedOutputStream.MAX_FRAME, 3));
+        messages.add(compressible(3 * FramedOutputStream.MAX_FRAME + 17)); // Split into several frames
+
+        RecordingStream wire = new RecordingStream();
+        FramedOutputStream out = new FramedOutputStream(wire, THRESHOLD);
+        for (byte[] message : messages) {
+            // Mixed single-byte and bulk writes, as RMI does
+            out.write(message[0]);
+            out.write(message, 1, message.length - 1);
+            out.flush();
+        }
+        out.flush(); // Nothing buffered: no empty frame
+
+        DataInputStream in = new DataInputStream(reader(wire.bytes.toByteArray()));
+        for (byte[] message : messages) {
+            byte[] read = new byte[message.length];
+            in.readFully(read);
+            assertArrayEquals(message, read);
+        }
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    void eachFrameIsOneWrite() throws IOException {
+        RecordingStream wire = new RecordingStream();
+        FramedOutputStream out = new FramedOutputStream(wire, THRESHOLD);
+
+        out.write(random(100, 4));
+        out.flush();
+        assertEquals(List.of(4 + 100), wire.writes);
+
+        wire.writes.clear();
+        out.write(compressible(10_000));
+        out.flush();
+        assertEquals(1, wire.writes.size());
+        int sent = wire.writes.get(0);
+        assertTrue(sent < 10_000, "deflated frame of " + sent + " bytes");
+
+        // Header: length | COMPRESSED, then the inflated length
+        ByteBuffer frame = ByteBuffer.wrap(wire.bytes.toByteArray(), 4 + 100, sent);
+        int header = frame.getInt();
+        assertEquals(FramedOutputStream.COMPRESSED, header & FramedOutputStream.COMPRESSED);
+        assertEquals(sent - 4, header & ~FramedOutputStream.COMPRESSED);
+        assertEquals(10_000, frame.getInt());
+    }
+
+    @Test
+    void uncompressedWhenDisabled() throws IOException {
+        RecordingStream wire = new RecordingStream();
+        FramedOutputStream out = new FramedOutputStream(wire, 0);
+        out.write(compressible(10_000));
+        out.flush();
+        assertEquals(List.of(4 + 10_000), wire.writes);
+        assertEquals(10_000, ByteBuffer.wrap(wire.bytes.toByteArray()).getInt());
+    }
+
+    @Test
+    void readsFramesSplitAcrossReads() throws IOException {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        FramedOutputStream out = new FramedOutputStream(wire, THRESHOLD);
+        byte[] a = compressible(5000);
+        byte[] b = random(700, 5);
+        out.write(a);
+        out.flush();
+        out.write(b);
+        out.flush();
+
+        // A socket hands out data one byte at a time at worst
+        byte[] bytes = wire.toByteArray();
+        InputStream trickle = new InputStream() {
+            int pos;
+
+            @Override
+            public int read() {
+                return pos < bytes.length ? bytes[pos++] & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] target, int off, int len) {
+                if (pos == bytes.length) return -1;
+                target[off] = bytes[pos++];
+                return 1;
+            }
+        };
+        DataInputStream in = new DataInputStream(new FramedInputStream(trickle));
+        byte[] read = new byte[a.length + b.length];
+        in.readFully(read);
+        byte[] expected = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, expected, a.length, b.length);
+        assertArrayEquals(expected, read);
+    }
+
+    @Test
+    void badInput() {
+        // Length over the limit
+        byte[] huge = ByteBuffer.allocate(4).putInt(FramedOutputStream.MAX_FRAME + 100).array();
+        assertThrows(IOException.class, () -> reader(huge).read());
+        // Truncated body
+        byte[] truncated = ByteBuffer.allocate(6).putInt(10).put((byte) 1).put((byte) 2).array();
+        assertThrows(EOFException.class, () -> reader(truncated).read());
+        // Compressed frame whose body is not deflate data
+        byte[] corrupt = ByteBuffer.allocate(12).putInt(8 | FramedOutputStream.COMPRESSED).putInt(100).putInt(-1).array();
+        assertThrows(IOException.class, () -> reader(corrupt).read());
+    }
+}
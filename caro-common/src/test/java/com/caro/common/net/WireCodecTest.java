@@ -0,0 +1,173 @@
+package com.caro.common.net;
+
+import com.caro.common.model.ChatMessage;
+import com.caro.common.model.GameSettings;
+import com.caro.common.model.GameState;
+import com.caro.common.model.LobbyDelta;
+import com.caro.common.model.MoveAck;
+import com.caro.common.model.Room;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WireCodecTest {
+
+    private static DataInputStream roundTrip(WireCodec.Body body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        body.writeTo(out);
+        out.flush();
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static GameState state() {
+        GameState state = new GameState(15, "alice");
+        state.getBoard()[0][0] = 1;
+        state.getBoard()[7][8] = 2;
+        state.getBoard()[14][14] = 1;
+        state.setWinnerUsername("bob");
+        state.setDraw(false);
+        state.setVersion(123456789012L);
+        return state;
+    }
+
+    private static Room room() {
+        Room room = new Room("r-1", "alice's room", "alice", new GameSettings(15, 3, 30));
+        room.setGuestUsername("bob");
+        room.setGameStarted(true);
+        room.setCurrentRound(2);
+        room.setHostScore(1);
+        room.setGuestScore(0);
+        room.addMessage(new ChatMessage("alice", "hi", LocalDateTime.of(2026, 1, 2, 3, 4, 5)));
+        room.addMessage(new ChatMessage("Server", "bob joined.", null));
+        room.setGameState(state());
+        return room;
+    }
+
+    private static void assertStateEquals(GameState expected, GameState actual) {
+        assertEquals(expected.getBoard().length, actual.getBoard().length);
+        for (int r = 0; r < expected.getBoard().length; r++) assertArrayEquals(expected.getBoard()[r], actual.getBoard()[r]);
+        assertEquals(expected.getCurrentTurnUsername(), actual.getCurrentTurnUsername());
+        assertEquals(expected.getWinnerUsername(), actual.getWinnerUsername());
+        assertEquals(expected.isDraw(), actual.isDraw());
+        assertEquals(expected.getVersion(), actual.getVersion());
+    }
+
+    private static void assertRoomSummaryEquals(Room expected, Room actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getHostUsername(), actual.getHostUsername());
+        assertEquals(expected.getGuestUsername(), actual.getGuestUsername());
+        assertEquals(expected.getSettings().getBoardSize(), actual.getSettings().getBoardSize());
+        assertEquals(expected.getSettings().getTotalRounds(), actual.getSettings().getTotalRounds());
+        assertEquals(expected.getSettings().getTimePerTurnSeconds(), actual.getSettings().getTimePerTurnSeconds());
+        assertEquals(expected.isBotMode(), actual.isBotMode());
+        assertEquals(expected.isGameStarted(), actual.isGameStarted());
+        assertEquals(expected.getCurrentRound(), actual.getCurrentRound());
+        assertEquals(expected.getHostScore(), actual.getHostScore());
+        assertEquals(expected.getGuestScore(), actual.getGuestScore());
+    }
+
+    @Test
+    void frameHeader() throws IOException {
+        ByteBuffer frame = WireCodec.frame(WireCodec.RESPONSE, 0x01020304, WireCodec.PLACE_MOVE_SEQ, out -> out.writeLong(99));
+        assertEquals(4 + WireCodec.HEADER_SIZE + 8, frame.remaining());
+        assertEquals(frame.remaining() - 4, frame.getInt(0));
+
+        byte[] body = Arrays.copyOfRange(frame.array(), 4, frame.limit());
+        assertEquals(WireCodec.RESPONSE, WireCodec.kind(body));
+        assertEquals(0x01020304, WireCodec.requestId(body));
+        assertEquals(WireCodec.PLACE_MOVE_SEQ, WireCodec.op(body));
+        assertEquals(99, WireCodec.payload(body).readLong());
+
+        ByteBuffer empty = WireCodec.frame(WireCodec.PUSH, 0, WireCodec.ON_PING, null);
+        assertEquals(WireCodec.HEADER_SIZE, empty.getInt(0));
+    }
+
+    @Test
+    void gameState() throws IOException {
+        GameState state = state();
+        assertStateEquals(state, WireCodec.readGameState(roundTrip(out -> WireCodec.writeGameState(out, state))));
+        GameState fresh = new GameState(5, null);
+        fresh.setDraw(true);
+        assertStateEquals(fresh, WireCodec.readGameState(roundTrip(out -> WireCodec.writeGameState(out, fresh))));
+    }
+
+    @Test
+    void roomWithAndWithoutDetails() throws IOException {
+        Room room = room();
+        Room detailed = WireCodec.readRoom(roundTrip(out -> WireCodec.writeRoom(out, room, true)));
+        assertRoomSummaryEquals(room, detailed);
+        assertStateEquals(room.getGameState(), detailed.getGameState());
+        assertEquals(2, detailed.getChatHistory().size());
+        assertEquals("hi", detailed.getChatHistory().get(0).getContent());
+        assertEquals(LocalDateTime.of(2026, 1, 2, 3, 4, 5), detailed.getChatHistory().get(0).getTimestamp());
+        assertNull(detailed.getChatHistory().get(1).getTimestamp());
+
+        Room summary = WireCodec.readRoom(roundTrip(out -> WireCodec.writeRoom(out, room, false)));
+        assertRoomSummaryEquals(room, summary);
+        assertEquals(0, summary.getChatHistory().size());
+
+        Room open = new Room("r-2", "carol's room", "carol", new GameSettings(9, 1, 10));
+        assertRoomSummaryEquals(open, WireCodec.readRoom(roundTrip(out -> WireCodec.writeRoom(out, open, false))));
+    }
+
+    @Test
+    void lobbyDeltaAndLists() throws IOException {
+        LobbyDelta delta = new LobbyDelta(List.of(room()), List.of("gone-1", "gone-2"));
+        LobbyDelta read = WireCodec.readLobbyDelta(roundTrip(out -> WireCodec.writeLobbyDelta(out, delta)));
+        assertEquals(1, read.getUpserts().size());
+        assertRoomSummaryEquals(delta.getUpserts().get(0), read.getUpserts().get(0));
+        assertEquals(delta.getRemovedIds(), read.getRemovedIds());
+
+        assertEquals(List.of(), WireCodec.readStrings(roundTrip(out -> WireCodec.writeStrings(out, List.of()))));
+        List<String> users = List.of("alice", "bob", "élève");
+        assertEquals(users, WireCodec.readStrings(roundTrip(out -> WireCodec.writeStrings(out, users))));
+
+        List<byte[]> blobs = List.of(new byte[0], new byte[]{1, 2, 3}, new byte[300]);
+        List<byte[]> readBlobs = WireCodec.readBlobs(roundTrip(out -> WireCodec.writeBlobs(out, blobs)));
+        assertEquals(blobs.size(), readBlobs.size());
+        for (int i = 0; i < blobs.size(); i++) assertArrayEquals(blobs.get(i), readBlobs.get(i));
+    }
+
+    @Test
+    void smallValues() throws IOException {
+        assertNull(WireCodec.readString(roundTrip(out -> WireCodec.writeString(out, null))));
+        assertEquals("", WireCodec.readString(roundTrip(out -> WireCodec.writeString(out, ""))));
+
+        for (MoveAck.Code code : MoveAck.Code.values()) {
+            MoveAck ack = new MoveAck(code, 17, Long.MAX_VALUE);
+            MoveAck read = WireCodec.readMoveAck(roundTrip(out -> WireCodec.writeMoveAck(out, ack)));
+            assertEquals(code, read.getCode());
+            assertEquals(17, read.getClientSeq());
+            assertEquals(Long.MAX_VALUE, read.getVersion());
+        }
+        assertThrows(IOException.class, () -> WireCodec.readMoveAck(roundTrip(out -> {
+            out.writeByte(MoveAck.Code.values().length);
+            out.writeLong(0);
+            out.writeLong(0);
+        })));
+    }
+
+    @Test
+    void invokeObjectsAreFiltered() throws IOException {
+        GameSettings settings = (GameSettings) WireCodec.readObject(roundTrip(out -> WireCodec.writeObject(out, new GameSettings(15, 5, 20))));
+        assertEquals(15, settings.getBoardSize());
+        assertEquals(List.of(1, 2), WireCodec.readObject(roundTrip(out -> WireCodec.writeObject(out, List.of(1, 2)))));
+        // Anything outside the model and plain JDK value types is refused
+        assertThrows(IOException.class, () -> WireCodec.readObject(roundTrip(out -> WireCodec.writeObject(out, new java.io.File("x")))));
+    }
+}
@@ -1,5 +1,6 @@
 package com.caro.server.app;
 
+import com.caro.common.net.RmiTraffic;
 import com.caro.common.util.GameConstants;
 import com.caro.server.service.GameServiceImpl;
 
@@ -8,8 +9,13 @@ import java.net.NetworkInterface;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
 
 import com.caro.server.manager.HeartbeatMonitor;
+import com.caro.server.manager.TimerManager;
+import com.caro.server.metrics.MetricsRegistry;
+import com.caro.server.net.NioGameServer;
+import com.caro.server.net.UdpHeartbeatServer;
 
 public class ServerApp {
     public static void main(String[] args) {
@@ -30,12 +36,33 @@ public class ServerApp {
             
             HeartbeatMonitor monitor = new HeartbeatMonitor(gameService);
             monitor.start();
+
+            if (UdpHeartbeatServer.isEnabled()) {
+                new UdpHeartbeatServer().start();
+            }
+
+            if (NioGameServer.isEnabled()) {
+                new NioGameServer(gameService).start();
+            }
+
+            scheduleMetricsReport();
             
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    // Config: How often the metrics snapshot is printed
+    private static final int METRICS_INTERVAL_SECONDS = 60;
+
+    private static void scheduleMetricsReport() {
+        TimerManager.getInstance().schedule(() -> {
+            System.out.print(MetricsRegistry.getInstance().dump());
+            System.out.print(RmiTraffic.dump());
+            scheduleMetricsReport();
+        }, METRICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
     private static String getLocalIpAddress() {
         try {
             Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
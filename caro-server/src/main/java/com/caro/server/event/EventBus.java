@@ -0,0 +1,502 @@
+package com.caro.server.event;
+
+import com.caro.common.model.ClientEvent;
+import com.caro.common.model.LobbyDelta;
+import com.caro.common.net.RmiTraffic;
+import com.caro.common.service.ClientCallback;
+import com.caro.common.util.LatencyHistogram;
+import com.caro.server.metrics.MetricsRegistry;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-process pub/sub for everything the server pushes to clients.
+ *
+ * Topics hold usernames in copy-on-write sets. Publishing appends the event to each
+ * subscriber's mailbox; mailboxes are drained in batches on a small dispatcher pool whose
+ * queue is ordered by priority, so game moves jump ahead of lobby traffic. Each mailbox is
+ * drained by one thread at a time, which keeps per-client order. Superseded lobby/user-list
+ * snapshots in a batch are collapsed to the newest one.
+ *
+ * Polling sessions have no callback: their events go straight into the session's
+ * EventRing and the client collects them with pollEvents(). Callback sessions number
+ * their events in the same ring and remember the last one a callback returned from, so
+ * a suspended session (connection lost) keeps collecting events and resume() sends the
+ * client only what it missed.
+ *
+ * Small topics (a room's two players) are fanned out inline. Large topics (lobby,
+ * spectators) are fanned out by the dispatcher so the publisher never loops over thousands
+ * of subscribers.
+ */
+public class EventBus {
+    private static EventBus instance;
+
+    public static final String LOBBY = "lobby";
+    public static final String USERS = "users";
+
+    public static String roomTopic(String roomId) { return "room:" + roomId; }
+    public static String spectateTopic(String roomId) { return "spectate:" + roomId; }
+
+    public enum Priority { HIGH, NORMAL, LOW }
+
+    // Config: Dispatcher threads doing the actual RMI calls
+    private static final int DISPATCH_THREADS = 8;
+    // Config: Max events delivered per mailbox run
+    private static final int MAX_BATCH = 64;
+    // Config: Mailbox size at which a client is considered stuck and its backlog dropped
+    private static final int MAX_BACKLOG = 1024;
+    // Config: Topics up to this size are fanned out on the publishing thread
+    private static final int INLINE_FANOUT_LIMIT = 8;
+
+    private final ThreadPoolExecutor dispatcher;
+    private final AtomicLong runSequence = new AtomicLong();
+
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+    // Called with (username) when a backlog is dropped, so owners can resend a snapshot
+    private volatile Consumer<String> overflowListener = username -> {};
+
+    private final Map<ClientEvent.Type, LongAdder> delivered = new EnumMap<>(ClientEvent.Type.class);
+    private final LongAdder failed;
+    private final LongAdder coalesced;
+    private final LongAdder overflows;
+    private final LongAdder replayed;
+    private final LatencyHistogram deliveryLatency;
+
+    private EventBus() {
+        AtomicInteger counter = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(DISPATCH_THREADS, DISPATCH_THREADS, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "event-dispatch-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        for (ClientEvent.Type type : ClientEvent.Type.values()) {
+            delivered.put(type, metrics.counter("bus.delivered." + type.name().toLowerCase()));
+        }
+        this.failed = metrics.counter("bus.failed");
+        this.coalesced = metrics.counter("bus.coalesced");
+        this.overflows = metrics.counter("bus.overflows");
+        this.replayed = metrics.counter("bus.replayed");
+        this.deliveryLatency = metrics.histogram("bus.delivery.latency.us", "us");
+        metrics.gauge("bus.subscribers", subscribers::size);
+        metrics.gauge("bus.topics", topics::size);
+        metrics.gauge("bus.dispatch.queue", () -> dispatcher.getQueue().size());
+    }
+
+    public static synchronized EventBus getInstance() {
+        if (instance == null) instance = new EventBus();
+        return instance;
+    }
+
+    public void setOverflowListener(Consumer<String> listener) {
+        this.overflowListener = listener;
+    }
+
+    // --- Registration ---
+
+    public void register(String username, ClientCallback callback, EventRing ring) {
+        subscribers.put(username, new Subscriber(username, callback, ring));
+    }
+
+    public void registerPolling(String username, EventRing ring) {
+        subscribers.put(username, new Subscriber(username, null, ring));
+    }
+
+    public void unregister(String username) {
+        subscribers.remove(username);
+    }
+
+    // Connection lost: stop calling back, but keep numbering events for a resume
+    public void suspend(String username) {
+        Subscriber s = subscribers.get(username);
+        if (s != null) s.suspend();
+    }
+
+    // Delivers through the new callback, starting with whatever the old one did not take
+    public void resume(String username, ClientCallback callback) {
+        Subscriber s = subscribers.get(username);
+        if (s != null && s.callback != null) s.resume(callback);
+    }
+
+    public void subscribe(String topic, String username) {
+        topics.compute(topic, (name, t) -> {
+            if (t == null) t = new Topic(name);
+            t.members.add(username);
+            return t;
+        });
+    }
+
+    public void unsubscribe(String topic, String username) {
+        topics.computeIfPresent(topic, (name, t) -> {
+            t.members.remove(username);
+            return t.isIdle() ? null : t;
+        });
+    }
+
+    public boolean hasSubscribers(String topic) {
+        Topic t = topics.get(topic);
+        return t != null && !t.members.isEmpty();
+    }
+
+    public Set<String> getSubscribers(String topic) {
+        Topic t = topics.get(topic);
+        return t == null ? Set.of() : t.members;
+    }
+
+    // --- Publishing ---
+
+    public void publish(String topic, ClientEvent event, Priority priority) {
+        Topic t = topics.get(topic);
+        if (t == null || t.members.isEmpty()) return;
+        Envelope envelope = new Envelope(event, priority);
+        if (t.members.size() <= INLINE_FANOUT_LIMIT && !t.scheduled.get()) {
+            t.fanOut(envelope);
+        } else {
+            t.enqueue(new TopicEntry(envelope, null, null, false));
+        }
+    }
+
+    // Last event on a topic: delivered after everything already queued, then the topic is dropped
+    public void publishAndClose(String topic, ClientEvent event, Priority priority) {
+        Topic t = topics.get(topic);
+        if (t != null) t.enqueue(new TopicEntry(new Envelope(event, priority), null, null, true));
+    }
+
+    // Delivers to one member, ordered with the topic's other events (used for snapshots)
+    public void publishTo(String topic, String username, Supplier<ClientEvent> event, Priority priority) {
+        Topic t = topics.computeIfAbsent(topic, Topic::new);
+        t.enqueue(new TopicEntry(null, username, () -> new Envelope(event.get(), priority), false));
+    }
+
+    public void sendTo(String username, ClientEvent event, Priority priority) {
+        Subscriber s = subscribers.get(username);
+        if (s != null) s.offer(new Envelope(event, priority));
+    }
+
+    // --- Internals ---
+
+    private static final class Envelope {
+        final ClientEvent event;
+        final Priority priority;
+        final long createdNanos;
+        final long seq; // Position in the subscriber's ring, once queued for a callback
+
+        Envelope(ClientEvent event, Priority priority) {
+            this(event, priority, System.nanoTime(), 0);
+        }
+
+        private Envelope(ClientEvent event, Priority priority, long createdNanos, long seq) {
+            this.event = event;
+            this.priority = priority;
+            this.createdNanos = createdNanos;
+            this.seq = seq;
+        }
+
+        // Topic envelopes are shared by all members; each mailbox gets its own numbered copy
+        Envelope withSeq(long seq) {
+            return new Envelope(event, priority, createdNanos, seq);
+        }
+    }
+
+    private static final class TopicEntry {
+        final Envelope envelope;         // Broadcast to every member, or
+        final String target;             // a single member...
+        final Supplier<Envelope> lazy;   // ...built when the entry is reached
+        final boolean close;
+
+        TopicEntry(Envelope envelope, String target, Supplier<Envelope> lazy, boolean close) {
+            this.envelope = envelope;
+            this.target = target;
+            this.lazy = lazy;
+            this.close = close;
+        }
+    }
+
+    private final class Topic {
+        final String name;
+        final Set<String> members = new CopyOnWriteArraySet<>();
+        final Queue<TopicEntry> pending = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Topic(String name) {
+            this.name = name;
+        }
+
+        boolean isIdle() {
+            return members.isEmpty() && pending.isEmpty() && !scheduled.get();
+        }
+
+        void fanOut(Envelope envelope) {
+            for (String username : members) {
+                Subscriber s = subscribers.get(username);
+                if (s != null) s.offer(envelope);
+            }
+        }
+
+        void enqueue(TopicEntry entry) {
+            pending.add(entry);
+            schedule(entry.envelope != null ? entry.envelope.priority : Priority.NORMAL);
+        }
+
+        void schedule(Priority priority) {
+            if (scheduled.compareAndSet(false, true)) dispatcher.execute(new Run(priority, this::drain));
+        }
+
+        // One thread at a time per topic, so entries keep their order
+        void drain() {
+            TopicEntry entry;
+            while ((entry = pending.poll()) != null) {
+                if (entry.envelope != null) {
+                    fanOut(entry.envelope);
+                } else {
+                    Subscriber s = subscribers.get(entry.target);
+                    if (s != null) s.offer(entry.lazy.get());
+                }
+                if (entry.close) {
+                    members.clear();
+                    pending.clear();
+                    topics.remove(name, this);
+                }
+            }
+            scheduled.set(false);
+            if (!pending.isEmpty()) {
+                schedule(Priority.NORMAL);
+            } else {
+                topics.computeIfPresent(name, (k, t) -> t == this && isIdle() ? null : t);
+            }
+        }
+    }
+
+    private final class Subscriber {
+        final String username;
+        volatile ClientCallback callback; // Null for polling sessions
+        final EventRing ring;
+        final Queue<Envelope> mailbox = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // Callback sessions; guarded by this. Ring numbering and mailbox order must agree,
+        // so offer() appends to both under the lock.
+        boolean suspended;
+        long ackedSeq;   // Newest event a callback call returned for
+        boolean stalled; // A call failed: later successes can't vouch for the lost one
+        int generation;  // Bumped by resume(); drains of an older callback don't ack
+
+        Subscriber(String username, ClientCallback callback, EventRing ring) {
+            this.username = username;
+            this.callback = callback;
+            this.ring = ring;
+        }
+
+        void offer(Envelope envelope) {
+            if (callback == null) {
+                // No network call involved; the client pulls it on its next poll
+                ring.append(envelope.event);
+                delivered.get(envelope.event.getType()).increment();
+                return;
+            }
+            boolean overflow = false;
+            synchronized (this) {
+                long seq = ring.append(envelope.event);
+                if (suspended) return; // Kept in the ring until the client resumes
+                if (size.incrementAndGet() > MAX_BACKLOG) {
+                    // Client can't keep up: drop what is queued and let the owner resync it
+                    mailbox.clear();
+                    size.set(0);
+                    overflows.increment();
+                    overflow = true;
+                } else {
+                    mailbox.add(envelope.withSeq(seq));
+                }
+            }
+            if (overflow) {
+                overflowListener.accept(username);
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) dispatcher.execute(new Run(envelope.priority, this::drain));
+        }
+
+        synchronized void suspend() {
+            suspended = true;
+            mailbox.clear();
+            size.set(0);
+        }
+
+        void resume(ClientCallback newCallback) {
+            List<ClientEvent> missed;
+            synchronized (this) {
+                generation++;
+                mailbox.clear();
+                size.set(0);
+                missed = ring.since(ackedSeq);
+                if (missed != null) {
+                    long seq = ackedSeq;
+                    for (ClientEvent event : missed) mailbox.add(new Envelope(event, Priority.NORMAL).withSeq(++seq));
+                    size.set(missed.size());
+                    replayed.add(missed.size());
+                }
+                callback = newCallback;
+                suspended = false;
+                stalled = false;
+            }
+            System.out.println("Resuming " + username + ": "
+                    + (missed == null ? "too far behind, resyncing" : missed.size() + " missed events"));
+            // Too much was missed to replay: the owner sends fresh snapshots instead
+            if (missed == null) overflowListener.accept(username);
+            if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(new Run(Priority.NORMAL, this::drain));
+            }
+        }
+
+        synchronized void ack(int gen, long seq, boolean ok) {
+            if (gen != generation) return;
+            if (!ok) stalled = true;
+            else if (!stalled && seq > ackedSeq) ackedSeq = seq;
+        }
+
+        void drain() {
+            List<Envelope> batch = new ArrayList<>(MAX_BATCH);
+            ClientCallback target;
+            int gen;
+            // Taken together, so a batch always goes to the callback it was queued for
+            synchronized (this) {
+                target = callback;
+                gen = generation;
+                Envelope envelope;
+                while (batch.size() < MAX_BATCH && (envelope = mailbox.poll()) != null) batch.add(envelope);
+                size.addAndGet(-batch.size());
+            }
+
+            try {
+                deliver(batch, target, gen);
+            } finally {
+                scheduled.set(false);
+                Envelope next = mailbox.peek();
+                if (next != null && scheduled.compareAndSet(false, true)) {
+                    dispatcher.execute(new Run(next.priority, this::drain));
+                }
+            }
+        }
+
+        private void deliver(List<Envelope> batch, ClientCallback target, int gen) {
+            // Index of the newest snapshot of each kind; older ones are skipped
+            int lastLobby = -1;
+            int lastUsers = -1;
+            for (int i = 0; i < batch.size(); i++) {
+                ClientEvent.Type type = batch.get(i).event.getType();
+                if (type == ClientEvent.Type.LOBBY_UPDATE) lastLobby = i;
+                else if (type == ClientEvent.Type.USER_LIST) lastUsers = i;
+            }
+
+            List<byte[]> spectate = new ArrayList<>();
+            List<LobbyDelta> lobbyDeltas = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Envelope e = batch.get(i);
+                ClientEvent.Type type = e.event.getType();
+                // Deltas before a full lobby list are already contained in it
+                if ((type == ClientEvent.Type.LOBBY_UPDATE && i != lastLobby)
+                        || (type == ClientEvent.Type.LOBBY_DELTA && i < lastLobby)
+                        || (type == ClientEvent.Type.USER_LIST && i != lastUsers)) {
+                    coalesced.increment();
+                    continue;
+                }
+                // Consecutive lobby deltas go out merged, as one callback
+                if (type == ClientEvent.Type.LOBBY_DELTA) {
+                    lobbyDeltas.add((LobbyDelta) e.event.getPayload());
+                    boolean lastOfRun = i + 1 == batch.size()
+                            || batch.get(i + 1).event.getType() != ClientEvent.Type.LOBBY_DELTA;
+                    if (!lastOfRun) {
+                        coalesced.increment();
+                        continue;
+                    }
+                }
+                // Consecutive spectator events go out as one callback
+                if (type == ClientEvent.Type.SPECTATE) {
+                    spectate.add((byte[]) e.event.getPayload());
+                    boolean lastOfRun = i + 1 == batch.size()
+                            || batch.get(i + 1).event.getType() != ClientEvent.Type.SPECTATE;
+                    if (!lastOfRun) continue;
+                }
+
+                RmiTraffic.setLabel("callback." + type);
+                try {
+                    if (type == ClientEvent.Type.SPECTATE) {
+                        target.onSpectateEvents(new ArrayList<>(spectate));
+                        delivered.get(type).add(spectate.size());
+                        spectate.clear();
+                    } else if (type == ClientEvent.Type.LOBBY_DELTA) {
+                        target.onLobbyDelta(LobbyDelta.merge(lobbyDeltas));
+                        delivered.get(type).increment();
+                        lobbyDeltas.clear();
+                    } else {
+                        e.event.deliverTo(target);
+                        delivered.get(type).increment();
+                    }
+                    ack(gen, e.seq, true);
+                    deliveryLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - e.createdNanos));
+                } catch (RemoteException ex) {
+                    // Heartbeat expiry takes care of dead clients; just count it
+                    failed.increment();
+                    ack(gen, e.seq, false);
+                    spectate.clear();
+                    lobbyDeltas.clear();
+                    System.err.println("Failed to deliver " + type + " to " + username + ": " + ex.getMessage());
+                } catch (RuntimeException ex) {
+                    // Lost just the same: stall so a resume replays it
+                    failed.increment();
+                    ack(gen, e.seq, false);
+                    spectate.clear();
+                    lobbyDeltas.clear();
+                    ex.printStackTrace();
+                } finally {
+                    RmiTraffic.clearLabel();
+                }
+            }
+        }
+    }
+
+    // Dispatcher task ordered by priority, FIFO within the same priority
+    private final class Run implements Runnable, Comparable<Run> {
+        final Priority priority;
+        final long sequence = runSequence.incrementAndGet();
+        final Runnable task;
+
+        Run(Priority priority, Runnable task) {
+            this.priority = priority;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
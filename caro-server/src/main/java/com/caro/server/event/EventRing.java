@@ -0,0 +1,83 @@
+package com.caro.server.event;
+
+import com.caro.common.model.ClientEvent;
+import com.caro.common.model.EventBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size buffer of the latest events for one session.
+ *
+ * Every event gets the next sequence number; the client asks for everything after the
+ * last one it saw. When the client falls more than a buffer behind, the oldest events are
+ * overwritten and the next poll reports a gap instead of blocking the publisher.
+ *
+ * Polling sessions read it with poll(). For callback sessions it is the replay log: a
+ * resumed session is sent since() the last event its old callback took.
+ */
+public class EventRing {
+    // Config: Events kept per session
+    private static final int CAPACITY = 512;
+    // Config: Max events returned by one poll
+    private static final int MAX_BATCH = 256;
+
+    private final ClientEvent[] events = new ClientEvent[CAPACITY];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Sequence number the next appended event gets (first event is 1)
+    private long nextSeq = 1;
+
+    // Returns the event's sequence number
+    public long append(ClientEvent event) {
+        lock.lock();
+        try {
+            long seq = nextSeq++;
+            events[(int) (seq % CAPACITY)] = event;
+            notEmpty.signalAll();
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Everything after afterSeq, oldest first; null if some of it was already overwritten
+    public List<ClientEvent> since(long afterSeq) {
+        lock.lock();
+        try {
+            long oldest = Math.max(1, nextSeq - CAPACITY);
+            if (afterSeq + 1 < oldest || afterSeq >= nextSeq) return null;
+            List<ClientEvent> missed = new ArrayList<>((int) (nextSeq - afterSeq - 1));
+            for (long seq = afterSeq + 1; seq < nextSeq; seq++) missed.add(events[(int) (seq % CAPACITY)]);
+            return missed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Long poll: waits up to maxWaitMs for anything newer than lastSeq
+    public EventBatch poll(long lastSeq, long maxWaitMs) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        lock.lock();
+        try {
+            while (nextSeq - 1 <= lastSeq && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+
+            long oldest = Math.max(1, nextSeq - CAPACITY);
+            // A lastSeq from the future means the client talks to a new ring: start over
+            boolean resync = lastSeq + 1 < oldest || lastSeq >= nextSeq;
+            long from = resync ? oldest : lastSeq + 1;
+            long to = Math.min(nextSeq, from + MAX_BATCH);
+
+            List<ClientEvent> batch = new ArrayList<>((int) (to - from));
+            for (long seq = from; seq < to; seq++) batch.add(events[(int) (seq % CAPACITY)]);
+            return new EventBatch(batch, to - 1, resync);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
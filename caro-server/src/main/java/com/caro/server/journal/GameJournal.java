@@ -0,0 +1,319 @@
+package com.caro.server.journal;
+
+import com.caro.common.util.LatencyHistogram;
+import com.caro.server.metrics.MetricsRegistry;
+import com.caro.server.store.DataDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of finished games, in segment files under data/games.
+ *
+ * Game threads only hand over an encoded record (see GameRecord); one writer thread
+ * takes whatever has queued up, writes it with a single gathering write and fsyncs
+ * once per batch. A game's record therefore reaches disk right after its round ends,
+ * and a burst of endings costs one sync instead of one each. If the writer falls
+ * behind and the queue fills, records are dropped and counted rather than blocking a
+ * game.
+ *
+ * Segment: [int MAGIC][int VERSION] then frames of [int payload length][int CRC32 of
+ * payload][payload]. Frames are never split across segments; a new segment starts once
+ * the current one passes SEGMENT_BYTES. At startup a torn or corrupt tail of the newest
+ * segment is cut off and ids continue after the last good record.
+ *
+ * The framing has not changed between versions, only the records, so segments written by
+ * an older server are still scanned for ids; new records never go into one (a fresh
+ * segment is started instead) and ReplayStore leaves them out.
+ */
+public class GameJournal {
+    private static GameJournal instance;
+
+    static final int MAGIC = 0x4352474A; // "CRGJ"
+    // 2: records carry keyframes
+    static final int VERSION = 2;
+    static final int SEGMENT_HEADER = 8;
+    static final int FRAME_HEADER = 8;
+
+    // Config: Start a new segment file past this size
+    private static final long SEGMENT_BYTES = 64L << 20;
+    // Config: Finished games waiting for the writer; more than this are dropped
+    private static final int QUEUE_CAPACITY = 4096;
+    // Config: Most records written (and synced) together
+    private static final int MAX_BATCH = 256;
+
+    private final Path dir = DataDir.resolve("games");
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // Guarded by 'this' so ids enter the queue, and so the log, in order
+    private long nextId;
+
+    // Told about each record once it is on disk (ReplayStore indexes them)
+    public interface WriteListener {
+        void written(int segment, int offset, long id);
+    }
+
+    private volatile WriteListener writeListener;
+
+    // Writer thread only
+    private FileChannel segment;
+    private int segmentNumber;
+    private long segmentSize;
+
+    private final LongAdder gamesWritten;
+    private final LongAdder gamesDropped;
+    private final LongAdder bytesWritten;
+    private final LatencyHistogram flushLatency;
+    private final LatencyHistogram batchSize;
+
+    private GameJournal() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        gamesWritten = metrics.counter("journal.games");
+        gamesDropped = metrics.counter("journal.dropped");
+        bytesWritten = metrics.counter("journal.bytes");
+        flushLatency = metrics.histogram("journal.flush.latency.us", "us");
+        batchSize = metrics.histogram("journal.batch.size", "");
+        metrics.gauge("journal.queue", queue::size);
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open game journal in " + dir, e);
+        }
+        Thread writer = new Thread(this::runWriter, "game-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static synchronized GameJournal getInstance() {
+        if (instance == null) instance = new GameJournal();
+        return instance;
+    }
+
+    public void setWriteListener(WriteListener listener) {
+        this.writeListener = listener;
+    }
+
+    Path getDir() {
+        return dir;
+    }
+
+    /**
+     * Queues a finished game for writing and returns its id, or -1 if it was not kept
+     * (an abandoned game without moves, or the queue was full). Never blocks.
+     */
+    public long finish(GameRecord record, int result) {
+        if (result == GameRecord.ABANDONED && record.getMoveCount() == 0) return -1;
+        synchronized (this) {
+            long id = nextId;
+            if (!queue.offer(record.encode(id, result))) {
+                gamesDropped.increment();
+                return -1;
+            }
+            nextId++;
+            return id;
+        }
+    }
+
+    private void runWriter() {
+        List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Game journal write failed, " + batch.size() + " games lost: " + e.getMessage());
+                gamesDropped.add(batch.size());
+                discardPartialWrite();
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<byte[]> batch) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer[] frames = new ByteBuffer[batch.size()];
+        long total = 0;
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < frames.length; i++) {
+            byte[] payload = batch.get(i);
+            crc.reset();
+            crc.update(payload);
+            frames[i] = ByteBuffer.allocate(FRAME_HEADER + payload.length);
+            frames[i].putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+            total += frames[i].capacity();
+        }
+        if (segmentSize > SEGMENT_HEADER && segmentSize + total > SEGMENT_BYTES) openSegment(segmentNumber + 1);
+
+        long written = 0;
+        while (written < total) written += segment.write(frames);
+        segment.force(false);
+        long offset = segmentSize;
+        segmentSize += total;
+
+        WriteListener listener = writeListener;
+        if (listener != null) {
+            for (int i = 0; i < frames.length; i++) {
+                listener.written(segmentNumber, (int) offset, GameRecord.readVarint(ByteBuffer.wrap(batch.get(i))));
+                offset += frames[i].capacity();
+            }
+        }
+
+        gamesWritten.add(frames.length);
+        bytesWritten.add(total);
+        batchSize.record(frames.length);
+        flushLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    // A failed batch may have left part of a frame behind: cut it off so the offsets given
+    // to the write listener stay right and recovery does not stop there; failing that,
+    // carry on in a new segment
+    private void discardPartialWrite() {
+        try {
+            segment.truncate(segmentSize);
+            segment.position(segmentSize);
+            segment.force(false);
+            return;
+        } catch (IOException e) {
+            System.err.println("Game journal: cannot truncate segment " + segmentNumber + ": " + e.getMessage());
+        }
+        try {
+            openSegment(segmentNumber + 1);
+        } catch (IOException e) {
+            System.err.println("Game journal: cannot start segment " + (segmentNumber + 1) + ": " + e.getMessage());
+        }
+    }
+
+    private void openSegment(int number) throws IOException {
+        if (segment != null) segment.close();
+        segment = FileChannel.open(segmentPath(dir, number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) segment.write(header);
+        segment.force(true);
+        segmentNumber = number;
+        segmentSize = SEGMENT_HEADER;
+    }
+
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(dir);
+        List<Integer> numbers = segmentNumbers(dir);
+        if (numbers.isEmpty()) {
+            openSegment(1);
+            return;
+        }
+        // The newest segment may end in a half-written frame; older ones were complete when we moved on
+        int newest = numbers.get(numbers.size() - 1);
+        int newestVersion;
+        long lastId = -1;
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(segmentPath(dir, newest), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            newestVersion = version(channel);
+            long[] last = {-1};
+            long[] count = {0};
+            long validEnd = scan(channel, (offset, id, payload) -> {
+                last[0] = id;
+                count[0]++;
+            });
+            if (validEnd < channel.size()) {
+                System.err.println("Game journal: cutting " + (channel.size() - validEnd) + " torn bytes off segment " + newest);
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+            lastId = last[0];
+            records = count[0];
+        }
+        // An empty newest segment (just rolled): the last id is in the one before
+        for (int i = numbers.size() - 2; lastId < 0 && i >= 0; i--) {
+            try (FileChannel channel = FileChannel.open(segmentPath(dir, numbers.get(i)), StandardOpenOption.READ)) {
+                long[] last = {-1};
+                scan(channel, (offset, id, payload) -> last[0] = id);
+                lastId = last[0];
+            }
+        }
+        nextId = lastId + 1;
+
+        if (newestVersion == VERSION) {
+            segment = FileChannel.open(segmentPath(dir, newest), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            segmentNumber = newest;
+            segmentSize = segment.size();
+        } else {
+            System.out.println("Game journal: segment " + newest + " has version " + newestVersion + ", starting a new one");
+            openSegment(newest + 1);
+        }
+        System.out.println("Game journal: " + numbers.size() + " segments, " + records + " games in the newest, next id "
+                + nextId + " (" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms)");
+    }
+
+    // Called for every intact frame in a segment; the payload buffer is positioned at the
+    // record and limited to it
+    interface FrameVisitor {
+        void frame(int offset, long id, ByteBuffer payload);
+    }
+
+    // Format version from a segment's header, or 0 if the header is incomplete
+    static int version(FileChannel channel) throws IOException {
+        if (channel.size() < SEGMENT_HEADER) return 0;
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+        for (int n = 0; n >= 0 && header.hasRemaining(); ) n = channel.read(header, header.position());
+        if (header.getInt(0) != MAGIC) throw new IOException("Not a game journal segment");
+        return header.getInt(4);
+    }
+
+    /**
+     * Walks the frames of a segment and returns where the intact part ends: the segment
+     * header if it has none, else just past the last frame whose length and CRC check out.
+     * Accepts any version up to the current one.
+     */
+    static long scan(FileChannel channel, FrameVisitor visitor) throws IOException {
+        long size = channel.size();
+        if (size < SEGMENT_HEADER) return 0;
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (map.getInt(0) != MAGIC) throw new IOException("Not a game journal segment");
+        if (map.getInt(4) > VERSION) throw new IOException("Game journal segment version " + map.getInt(4) + " is newer than this server");
+        CRC32 crc = new CRC32();
+        int pos = SEGMENT_HEADER;
+        while (pos + FRAME_HEADER <= size) {
+            int length = map.getInt(pos);
+            int checksum = map.getInt(pos + 4);
+            if (length <= 0 || pos + FRAME_HEADER + (long) length > size) break;
+            ByteBuffer payload = map.duplicate().position(pos + FRAME_HEADER).limit(pos + FRAME_HEADER + length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) break;
+            visitor.frame(pos, GameRecord.readVarint(payload.duplicate()), payload);
+            pos += FRAME_HEADER + length;
+        }
+        return pos;
+    }
+
+    static Path segmentPath(Path dir, int number) {
+        return dir.resolve(String.format("games-%06d.seg", number));
+    }
+
+    // Segment numbers present in the directory, oldest first
+    static List<Integer> segmentNumbers(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.matches("games-\\d{6}\\.seg"))
+                    .map(name -> Integer.parseInt(name.substring(6, 12)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.caro.server.journal;
+
+import com.caro.common.model.Replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Moves of one game (one round of a match) as it is played, already in journal form.
+ *
+ * Each move is two varints: (cell index << 1 | side) and milliseconds since the previous
+ * move (or the start of the game), so a typical move costs 3-4 bytes. Appending only
+ * writes into a byte array; GameJournal writes the finished record out later. Callers
+ * hold the room lock, so nothing here is synchronized.
+ *
+ * Encoded record: varint id, varint start time (epoch ms), varint board size, varint
+ * round, host name, guest name, varint result, varint move count, varint byte length of
+ * the moves, the moves, then the keyframes: varint interval K, varint count, and per
+ * keyframe an int offset into the moves plus the board packed at 2 bits per cell. The
+ * keyframe for move n*K is the board before that move, so a reader can start at any
+ * move after decoding fewer than K others. Names are a varint byte length then UTF-8.
+ */
+public class GameRecord {
+    public static final int DRAW = Replay.DRAW;
+    public static final int HOST_WIN = Replay.HOST_WIN;
+    public static final int GUEST_WIN = Replay.GUEST_WIN;
+    // Stopped before anyone won (player left, room closed)
+    public static final int ABANDONED = Replay.ABANDONED;
+
+    public static final int SIDE_HOST = Replay.HOST;
+    public static final int SIDE_GUEST = Replay.GUEST;
+
+    // Config: Moves between keyframes; stored per record, so changing it only affects new games
+    static final int KEYFRAME_INTERVAL = 16;
+
+    private final String host;
+    private final String guest;
+    private final int boardSize;
+    private final int round;
+    private final long startMillis;
+    private long lastMoveNanos;
+
+    private byte[] moves = new byte[64];
+    private int length;
+    private int moveCount;
+
+    public GameRecord(String host, String guest, int boardSize, int round) {
+        this.host = host;
+        this.guest = guest;
+        this.boardSize = boardSize;
+        this.round = round;
+        this.startMillis = System.currentTimeMillis();
+        this.lastMoveNanos = System.nanoTime();
+    }
+
+    public void addMove(int row, int col, int side) {
+        long now = System.nanoTime();
+        long deltaMillis = (now - lastMoveNanos) / 1_000_000;
+        lastMoveNanos = now;
+        if (length + 2 * 10 > moves.length) moves = Arrays.copyOf(moves, moves.length * 2);
+        length = writeVarint(moves, length, (long) (row * boardSize + col) << 1 | side);
+        length = writeVarint(moves, length, deltaMillis);
+        moveCount++;
+    }
+
+    public int getMoveCount() { return moveCount; }
+
+    // Runs once per game, when it ends, so keyframes cost nothing per move
+    byte[] encode(long id, int result) {
+        byte[] hostName = host.getBytes(StandardCharsets.UTF_8);
+        byte[] guestName = guest == null ? new byte[0] : guest.getBytes(StandardCharsets.UTF_8);
+        int keyframes = moveCount == 0 ? 0 : (moveCount - 1) / KEYFRAME_INTERVAL;
+        int keyframeBytes = 4 + packedSize(boardSize);
+        byte[] out = new byte[11 * 10 + hostName.length + guestName.length + length + keyframes * keyframeBytes];
+        int pos = writeVarint(out, 0, id);
+        pos = writeVarint(out, pos, startMillis);
+        pos = writeVarint(out, pos, boardSize);
+        pos = writeVarint(out, pos, round);
+        pos = writeBytes(out, pos, hostName);
+        pos = writeBytes(out, pos, guestName);
+        pos = writeVarint(out, pos, result);
+        pos = writeVarint(out, pos, moveCount);
+        pos = writeVarint(out, pos, length);
+        System.arraycopy(moves, 0, out, pos, length);
+        pos += length;
+        pos = writeVarint(out, pos, KEYFRAME_INTERVAL);
+        pos = writeVarint(out, pos, keyframes);
+
+        byte[] board = new byte[boardSize * boardSize];
+        ByteBuffer in = ByteBuffer.wrap(moves, 0, length);
+        for (int move = 0; move < moveCount; move++) {
+            if (move > 0 && move % KEYFRAME_INTERVAL == 0) {
+                int offset = in.position();
+                out[pos++] = (byte) (offset >>> 24);
+                out[pos++] = (byte) (offset >>> 16);
+                out[pos++] = (byte) (offset >>> 8);
+                out[pos++] = (byte) offset;
+                pos = pack(board, out, pos);
+            }
+            long cellAndSide = readVarint(in);
+            readVarint(in); // Delay
+            board[(int) (cellAndSide >>> 1)] = (byte) ((cellAndSide & 1) + 1);
+        }
+        return Arrays.copyOf(out, pos);
+    }
+
+    static int packedSize(int boardSize) {
+        return (boardSize * boardSize + 3) / 4;
+    }
+
+    // Cell values 0-2, four per byte, first cell in the high bits
+    private static int pack(byte[] board, byte[] out, int pos) {
+        for (int i = 0; i < board.length; i += 4) {
+            int b = 0;
+            for (int j = 0; j < 4; j++) {
+                b = b << 2 | (i + j < board.length ? board[i + j] : 0);
+            }
+            out[pos++] = (byte) b;
+        }
+        return pos;
+    }
+
+    static void unpack(ByteBuffer in, byte[] board) {
+        for (int i = 0; i < board.length; i += 4) {
+            int b = in.get() & 0xFF;
+            for (int j = 0; j < 4 && i + j < board.length; j++) {
+                board[i + j] = (byte) (b >>> (6 - 2 * j) & 3);
+            }
+        }
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    private static int writeBytes(byte[] out, int pos, byte[] bytes) {
+        pos = writeVarint(out, pos, bytes.length);
+        System.arraycopy(bytes, 0, out, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    // Unsigned LEB128: 7 bits per byte, high bit set on all but the last
+    static int writeVarint(byte[] out, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+}
@@ -0,0 +1,190 @@
+package com.caro.server.journal;
+
+import com.caro.common.model.Replay;
+import com.caro.common.util.GameConstants;
+import com.caro.common.util.LatencyHistogram;
+import com.caro.server.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves recorded games (see GameJournal) straight from memory-mapped segment files.
+ *
+ * The only per-game heap state is one long per game id: segment number and frame offset.
+ * A read works on a duplicate of the segment's mapping, jumps to the keyframe at or
+ * before the requested move and decodes fewer than K moves from there, so the cost does
+ * not grow with the move index and concurrent readers share the page cache rather than
+ * each holding a copy of the record. The newest segment is remapped when a read reaches
+ * past what was mapped.
+ */
+public class ReplayStore {
+    private static ReplayStore instance;
+
+    private final GameJournal journal;
+    // Segment number -> read-only mapping of the segment
+    private final Map<Integer, MappedByteBuffer> maps = new ConcurrentHashMap<>();
+    // Game id -> segment << 32 | frame offset; 0 if not (yet) known. Replaced when it grows.
+    private volatile AtomicLongArray locations = new AtomicLongArray(1024);
+    private volatile int indexed;
+
+    private final LatencyHistogram readLatency;
+    private final LongAdder reads;
+
+    private ReplayStore() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        readLatency = metrics.histogram("replay.read.latency.us", "us");
+        reads = metrics.counter("replay.reads");
+        metrics.gauge("replay.games", () -> indexed);
+
+        journal = GameJournal.getInstance();
+        // Listen first, so a game written while the segments are scanned is not missed
+        journal.setWriteListener(this::index);
+        long start = System.nanoTime();
+        List<Integer> segments;
+        try {
+            segments = GameJournal.segmentNumbers(journal.getDir());
+            for (int number : segments) {
+                try (FileChannel channel = FileChannel.open(GameJournal.segmentPath(journal.getDir(), number), StandardOpenOption.READ)) {
+                    int version = GameJournal.version(channel);
+                    if (version != GameJournal.VERSION) {
+                        // Older records have no keyframes to seek by, so their games are not served
+                        if (version != 0) System.out.println("Replay store: skipping segment " + number + " (version " + version + ")");
+                        continue;
+                    }
+                    GameJournal.scan(channel, (offset, id, payload) -> index(number, offset, id));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot index game journal", e);
+        }
+        System.out.println("Replay store: " + indexed + " games in " + segments.size() + " segments indexed in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    public static synchronized ReplayStore getInstance() {
+        if (instance == null) instance = new ReplayStore();
+        return instance;
+    }
+
+    private synchronized void index(int segment, int offset, long id) {
+        if (id >= Integer.MAX_VALUE - 8) return;
+        AtomicLongArray current = locations;
+        if (id >= current.length()) {
+            AtomicLongArray grown = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, Math.max(id + 1, 2L * current.length())));
+            for (int i = 0; i < current.length(); i++) grown.set(i, current.get(i));
+            locations = current = grown;
+        }
+        if (current.getAndSet((int) id, (long) segment << 32 | offset) == 0) indexed++;
+    }
+
+    /**
+     * Up to 'count' moves of game 'gameId' starting at move 'fromMove', with the board as
+     * it stood before that move. Returns null for an unknown id; fromMove is clamped to the
+     * game, so asking past the end gives the final position and no moves.
+     */
+    public Replay read(long gameId, int fromMove, int count) throws IOException {
+        long start = System.nanoTime();
+        AtomicLongArray current = locations;
+        long location = gameId >= 0 && gameId < current.length() ? current.get((int) gameId) : 0;
+        if (location == 0) return null;
+        Replay replay = decode(frame((int) (location >>> 32), (int) location), fromMove, count);
+        reads.increment();
+        readLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return replay;
+    }
+
+    // One record's payload (see GameRecord) to a page of its moves, as read() describes
+    static Replay decode(ByteBuffer in, int fromMove, int count) {
+        long id = GameRecord.readVarint(in);
+        long startedAt = GameRecord.readVarint(in);
+        int boardSize = (int) GameRecord.readVarint(in);
+        int round = (int) GameRecord.readVarint(in);
+        String host = readString(in);
+        String guest = readString(in);
+        int result = (int) GameRecord.readVarint(in);
+        int moveCount = (int) GameRecord.readVarint(in);
+        int movesLength = (int) GameRecord.readVarint(in);
+        int movesStart = in.position();
+        in.position(movesStart + movesLength);
+        int interval = (int) GameRecord.readVarint(in);
+        int keyframes = (int) GameRecord.readVarint(in);
+        int keyframesStart = in.position();
+
+        int from = Math.max(0, Math.min(fromMove, moveCount));
+        int n = Math.max(0, Math.min(Math.min(count, GameConstants.REPLAY_PAGE_MOVES), moveCount - from));
+
+        // Nearest keyframe at or before 'from'; keyframe k (from 1) holds the board before move k * interval
+        byte[] board = new byte[boardSize * boardSize];
+        int keyframe = Math.min(from / interval, keyframes);
+        int move = 0;
+        in.position(movesStart);
+        if (keyframe > 0) {
+            ByteBuffer frame = in.duplicate();
+            frame.position(keyframesStart + (keyframe - 1) * (4 + GameRecord.packedSize(boardSize)));
+            int movesOffset = frame.getInt();
+            GameRecord.unpack(frame, board);
+            in.position(movesStart + movesOffset);
+            move = keyframe * interval;
+        }
+        for (; move < from; move++) {
+            long cellAndSide = GameRecord.readVarint(in);
+            GameRecord.readVarint(in);
+            board[(int) (cellAndSide >>> 1)] = (byte) ((cellAndSide & 1) + 1);
+        }
+
+        int[] cells = new int[n];
+        byte[] sides = new byte[n];
+        int[] delays = new int[n];
+        for (int i = 0; i < n; i++) {
+            long cellAndSide = GameRecord.readVarint(in);
+            cells[i] = (int) (cellAndSide >>> 1);
+            sides[i] = (byte) (cellAndSide & 1);
+            delays[i] = (int) Math.min(Integer.MAX_VALUE, GameRecord.readVarint(in));
+        }
+
+        return new Replay(id, host, guest, boardSize, round, result, startedAt, moveCount, from, board, cells, sides, delays);
+    }
+
+    // The record's payload, as a view over the mapped segment
+    private ByteBuffer frame(int segment, int offset) throws IOException {
+        MappedByteBuffer map = map(segment, offset + GameJournal.FRAME_HEADER);
+        int length = map.getInt(offset);
+        map = map(segment, (long) offset + GameJournal.FRAME_HEADER + length);
+        ByteBuffer payload = map.duplicate();
+        payload.position(offset + GameJournal.FRAME_HEADER).limit(offset + GameJournal.FRAME_HEADER + length);
+        return payload.slice();
+    }
+
+    private MappedByteBuffer map(int segment, long end) throws IOException {
+        MappedByteBuffer map = maps.get(segment);
+        if (map != null && map.capacity() >= end) return map;
+        synchronized (maps) {
+            map = maps.get(segment);
+            if (map == null || map.capacity() < end) {
+                try (FileChannel channel = FileChannel.open(GameJournal.segmentPath(journal.getDir(), segment), StandardOpenOption.READ)) {
+                    map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                if (map.capacity() < end) throw new IOException("Segment " + segment + " is shorter than its index");
+                maps.put(segment, map);
+            }
+            return map;
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[(int) GameRecord.readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,25 +1,22 @@
 package com.caro.server.manager;
 
+import com.caro.common.model.ClientEvent;
 import com.caro.common.model.Room;
-import com.caro.common.service.ClientCallback;
+import com.caro.server.event.EventBus;
 import com.caro.server.service.GameServiceImpl; // Needed to access broadcast logic? Or callback logic.
 // Ideally, we decouple this, but for simplicity, we will use Managers directly.
 
-import java.rmi.RemoteException;
-import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class HeartbeatMonitor {
 
     private final SessionManager sessionManager;
     private final RoomManager roomManager;
-    private final ScheduledExecutorService scheduler;
+    private final TimerManager timerManager;
+    private final EventBus eventBus;
     private final GameServiceImpl gameService;
+    private volatile boolean running;
     
-    // Config: How often to check
-    private static final int CHECK_INTERVAL_SECONDS = 3;
     // Config: How long before declaring dead
     private static final long TIMEOUT_THRESHOLD_MS = 10000; // 10 seconds
 
@@ -27,31 +24,59 @@ public class HeartbeatMonitor {
         this.gameService = service;
         this.sessionManager = SessionManager.getInstance();
         this.roomManager = RoomManager.getInstance();
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.timerManager = TimerManager.getInstance();
+        this.eventBus = EventBus.getInstance();
     }
 
     public void start() {
         System.out.println("Heartbeat Monitor started...");
-        scheduler.scheduleAtFixedRate(this::checkClients, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        running = true;
+        sessionManager.setSessionListener(this::watch);
+        sessionManager.setHoldExpiredListener(this::expireHold);
     }
     
     public void stop() {
-        scheduler.shutdown();
+        running = false;
+        sessionManager.setSessionListener(null);
+        sessionManager.setHoldExpiredListener(null);
     }
 
-    private void checkClients() {
-        long now = System.currentTimeMillis();
-        Map<String, Long> heartbeats = sessionManager.getHeartbeats();
+    // Each session gets one pending timeout at its current deadline, so only sessions
+    // whose deadline has passed are ever looked at (no full scan of all users).
+    private void watch(Session session) {
+        long deadline = session.getLastSeen() + TIMEOUT_THRESHOLD_MS;
+        long delay = Math.max(0, deadline - System.currentTimeMillis());
+        timerManager.schedule(() -> checkSession(session), delay, TimeUnit.MILLISECONDS);
+    }
 
-        // Iterate over a copy of the keySet to avoid ConcurrentModificationException
-        // (Though ConcurrentHashMap handles this well, it's good practice)
-        for (String username : heartbeats.keySet()) {
-            long lastSeen = heartbeats.get(username);
-            
-            if ((now - lastSeen) > TIMEOUT_THRESHOLD_MS) {
-                System.out.println("Heartbeat timeout for user: " + username + ". Disconnecting...");
-                handleDisconnect(username);
-            }
+    private void checkSession(Session session) {
+        if (!running) return;
+        String username = session.getUsername();
+
+        // Logged out or replaced by a newer login: stop tracking this slot
+        if (sessionManager.getSession(username) != session) return;
+        // Suspended: the seat hold decides now, and a resume starts a new watch
+        if (session.isSuspended()) return;
+
+        if ((System.currentTimeMillis() - session.getLastSeen()) > TIMEOUT_THRESHOLD_MS) {
+            // Not gone yet: the seat is held and a resume restarts tracking via watch()
+            System.out.println("Heartbeat timeout for user: " + username + ". Holding session...");
+            gameService.suspendSession(username);
+        } else {
+            // Heartbeat arrived since we scheduled: move to the new deadline
+            watch(session);
+        }
+    }
+
+    // The client did not resume in time: now it really is a disconnect
+    private void expireHold(Session session) {
+        if (!running) return;
+        String username = session.getUsername();
+        // Under the session lock, so a resume can't slip in halfway through
+        synchronized (session) {
+            if (!session.isSuspended() || sessionManager.getSession(username) != session) return;
+            System.out.println("Session hold expired for user: " + username + ". Disconnecting...");
+            handleDisconnect(username);
         }
     }
 
@@ -65,8 +90,8 @@ public class HeartbeatMonitor {
 
         // 2. Remove from session manager (This effectively "logs them out")
         sessionManager.removeUser(username);
+        SpectatorManager.getInstance().unsubscribe(username);
 
-        gameService.broadcastLobbyUpdate();
         gameService.broadcastUserList(); 
     }
     
@@ -77,44 +102,21 @@ public class HeartbeatMonitor {
             // Case A: Host Disconnected -> Destroy Room & Kick Guest
             System.out.println("Host " + disconnectedUser + " disconnected. Closing room " + room.getId());
             
-            String guest = room.getGuestUsername();
-            if (guest != null) {
-                notifyUser(guest, "The host disconnected. The room has been closed.");
-            }
-            
-            roomManager.removeRoom(room.getId());
-            
-            sessionManager.broadcastToAll(roomManager.getAllRooms());
+            // Same path as a host leaving: kicks the guest, journals the game, stops the clock
+            gameService.closeRoom(room, "The host disconnected. The room has been closed.");
         } else {
             // Case B: Guest Disconnected -> Kick Guest, Notify Host
             System.out.println("Guest " + disconnectedUser + " disconnected from room " + room.getId());
             
-            room.setGuestUsername(null); // Open the slot again
-            room.setGameStarted(false);  // Stop game if running
-            
             notifyUser(room.getHostUsername(), "The opponent disconnected.");
             
-            // Notify host to update their UI (Room View needs to show empty slot)
-            try {
-                ClientCallback hostCallback = sessionManager.getCallback(room.getHostUsername());
-                if (hostCallback != null) {
-                    hostCallback.onRoomInfoUpdate(room);
-                }
-            } catch (RemoteException e) {
-                // Host might be gone too? Next heartbeat will catch them.
-            }
+            // Opens the slot, stops the game and updates the host's room view and the lobby
+            gameService.releaseGuest(room);
         }
     }
     
     private void notifyUser(String username, String message) {
-        ClientCallback callback = sessionManager.getCallback(username);
-        if (callback != null) {
-            try {
-                callback.onKicked(message);
-            } catch (RemoteException e) {
-                // If we can't notify them, they are probably dead too.
-                // Do nothing, let the next heartbeat loop clean them up.
-            }
-        }
+        // If they can't be reached they are probably dead too; the next expiry cleans them up
+        eventBus.sendTo(username, ClientEvent.kicked(message), EventBus.Priority.NORMAL);
     }
 }
@@ -0,0 +1,233 @@
+package com.caro.server.manager;
+
+import com.caro.common.model.MatchPreferences;
+import com.caro.common.model.Room;
+import com.caro.common.util.GameConstants;
+import com.caro.common.util.LatencyHistogram;
+import com.caro.server.metrics.MetricsRegistry;
+import com.caro.server.service.GameServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Quick-match queues, bucketed by board size and then by rating band.
+ *
+ * quickMatch() only enqueues (lock-free). A single matcher thread wakes every
+ * MATCH_INTERVAL_MS, walks each board size's bands in rating order and pairs
+ * neighbours in one batch, then sends a single lobby broadcast for the whole batch.
+ */
+public class MatchmakingManager {
+
+    // Config: How often the matcher runs a batch
+    private static final long MATCH_INTERVAL_MS = 50;
+    // Config: Width of a rating band
+    private static final int RATING_BAND = 100;
+    // Config: Allowed rating gap grows by this much per second of waiting
+    private static final int GAP_WIDENING_PER_SECOND = 50;
+    // Config: After this long, a waiting player may also take a free slot in an open room
+    private static final long OPEN_ROOM_FALLBACK_MS = 5000;
+
+    private final GameServiceImpl gameService;
+    private final RoomManager roomManager;
+    private final SessionManager sessionManager;
+
+    // Board Size -> (Rating Band -> FIFO of requests)
+    private final Map<Integer, ConcurrentSkipListMap<Integer, Queue<MatchRequest>>> queues = new ConcurrentHashMap<>();
+    // Username -> waiting request (dedupe and cancel)
+    private final Map<String, MatchRequest> waiting = new ConcurrentHashMap<>();
+
+    private volatile ToIntFunction<String> ratingLookup = username -> GameConstants.DEFAULT_RATING;
+    private volatile boolean running;
+    private Thread matcher;
+
+    private final LatencyHistogram pairingLatency;
+    private final LatencyHistogram ratingGap;
+    private final LongAdder matchesMade;
+
+    public MatchmakingManager(GameServiceImpl gameService) {
+        this.gameService = gameService;
+        this.roomManager = RoomManager.getInstance();
+        this.sessionManager = SessionManager.getInstance();
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.pairingLatency = metrics.histogram("matchmaking.pairing.latency.ms", "ms");
+        this.ratingGap = metrics.histogram("matchmaking.rating.gap", "");
+        this.matchesMade = metrics.counter("matchmaking.matches");
+        metrics.gauge("matchmaking.queue.length", waiting::size);
+    }
+
+    public void setRatingLookup(ToIntFunction<String> ratingLookup) {
+        this.ratingLookup = ratingLookup;
+    }
+
+    public void start() {
+        running = true;
+        matcher = new Thread(this::matchLoop, "matchmaker");
+        matcher.setDaemon(true);
+        matcher.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (matcher != null) matcher.interrupt();
+    }
+
+    // Returns false if the user is already queued
+    public boolean enqueue(String username, MatchPreferences preferences) {
+        MatchRequest request = new MatchRequest(username, preferences, ratingLookup.applyAsInt(username));
+        if (waiting.putIfAbsent(username, request) != null) return false;
+        bucketFor(request).add(request);
+        return true;
+    }
+
+    public void cancel(String username) {
+        MatchRequest request = waiting.remove(username);
+        // The matcher drops cancelled requests when it next sees them
+        if (request != null) request.cancelled = true;
+    }
+
+    // --- Matcher Thread ---
+
+    private void matchLoop() {
+        while (running) {
+            try {
+                runBatch();
+                TimeUnit.MILLISECONDS.sleep(MATCH_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                // stop() interrupts us
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private int runBatch() {
+        int matched = 0;
+        long now = System.nanoTime();
+
+        for (ConcurrentSkipListMap<Integer, Queue<MatchRequest>> bands : queues.values()) {
+            List<MatchRequest> leftovers = new ArrayList<>();
+            MatchRequest carry = null;
+
+            // Bands are visited in rating order, so neighbours are close in rating
+            for (Queue<MatchRequest> band : bands.values()) {
+                for (int n = band.size(); n > 0; n--) {
+                    MatchRequest request = band.poll();
+                    if (request == null) break;
+                    if (!isStillWaiting(request)) continue;
+
+                    if (carry == null) {
+                        carry = request;
+                    } else if (compatible(carry, request, now)) {
+                        createMatch(carry, request, now);
+                        matched++;
+                        carry = null;
+                    } else {
+                        leftovers.add(carry);
+                        carry = request;
+                    }
+                }
+            }
+            if (carry != null) leftovers.add(carry);
+
+            for (MatchRequest request : leftovers) {
+                if (waitedMillis(request, now) >= OPEN_ROOM_FALLBACK_MS && joinOpenRoom(request, now)) {
+                    matched++;
+                } else {
+                    bucketFor(request).add(request);
+                }
+            }
+        }
+        return matched;
+    }
+
+    private boolean isStillWaiting(MatchRequest request) {
+        if (request.cancelled) return false;
+        // Disconnected while queued, or took a seat some other way
+        if (sessionManager.getSession(request.username) == null
+                || roomManager.getRoomByUsername(request.username) != null) {
+            waiting.remove(request.username, request);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean compatible(MatchRequest a, MatchRequest b, long now) {
+        int gap = Math.abs(a.rating - b.rating);
+        return gap <= allowedGap(a, now) && gap <= allowedGap(b, now);
+    }
+
+    private int allowedGap(MatchRequest request, long now) {
+        long waitedSeconds = waitedMillis(request, now) / 1000;
+        return (int) Math.min(Integer.MAX_VALUE,
+                request.preferences.getMaxRatingGap() + waitedSeconds * GAP_WIDENING_PER_SECOND);
+    }
+
+    private void createMatch(MatchRequest host, MatchRequest guest, long now) {
+        waiting.remove(host.username, host);
+        waiting.remove(guest.username, guest);
+
+        Room room = new Room(UUID.randomUUID().toString(), host.username + "'s room", host.username,
+                host.preferences.toSettings());
+        room.setGuestUsername(guest.username);
+        roomManager.addRoom(room);
+
+        recordMatch(host, now);
+        recordMatch(guest, now);
+        ratingGap.record(Math.abs(host.rating - guest.rating));
+        matchesMade.increment();
+
+        System.out.println("Quick match: " + host.username + " vs " + guest.username);
+        gameService.notifyMatchFound(room);
+    }
+
+    private boolean joinOpenRoom(MatchRequest request, long now) {
+        Room room = roomManager.findOpenRoom(request.preferences.getBoardSize());
+        if (room == null || room.getHostUsername().equals(request.username)) return false;
+        if (!roomManager.assignGuest(room, request.username)) return false;
+
+        waiting.remove(request.username, request);
+        recordMatch(request, now);
+        matchesMade.increment();
+        gameService.notifyMatchFound(room);
+        return true;
+    }
+
+    private void recordMatch(MatchRequest request, long now) {
+        pairingLatency.record(waitedMillis(request, now));
+    }
+
+    private long waitedMillis(MatchRequest request, long now) {
+        return TimeUnit.NANOSECONDS.toMillis(now - request.enqueuedNanos);
+    }
+
+    private Queue<MatchRequest> bucketFor(MatchRequest request) {
+        return queues
+                .computeIfAbsent(request.preferences.getBoardSize(), k -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(request.rating / RATING_BAND, k -> new ConcurrentLinkedQueue<>());
+    }
+
+    private static final class MatchRequest {
+        final String username;
+        final MatchPreferences preferences;
+        final int rating;
+        final long enqueuedNanos = System.nanoTime();
+        volatile boolean cancelled;
+
+        MatchRequest(String username, MatchPreferences preferences, int rating) {
+            this.username = username;
+            this.preferences = preferences;
+            this.rating = rating;
+        }
+    }
+}
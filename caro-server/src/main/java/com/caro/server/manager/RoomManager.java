@@ -1,18 +1,43 @@
 package com.caro.server.manager;
 
+import com.caro.common.model.GameSettings;
 import com.caro.common.model.Room;
-import com.caro.common.model.User;
+import com.caro.common.model.RoomPage;
+import com.caro.common.model.RoomQuery;
+import com.caro.common.util.GameConstants;
+import com.caro.server.event.EventBus;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 public class RoomManager {
     private static RoomManager instance;
-    
+
+    // The bot is not a real user and can sit in many rooms at once, so it is never indexed
+    private static final String BOT_USERNAME = "BOT";
+
     // Maps RoomID -> Room Object
     private final Map<String, Room> activeRooms = new ConcurrentHashMap<>();
+    // Maps Username -> RoomID (host or guest)
+    private final Map<String, String> userToRoom = new ConcurrentHashMap<>();
+
+    // Lobby indexes, all keyed by sortKey(room) so they share one order and one cursor format
+    private final Map<String, String> sortKeys = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Room> roomsByKey = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, Room> openRooms = new ConcurrentSkipListMap<>();
+    private final Map<Integer, NavigableMap<String, Room>> roomsByBoardSize = new ConcurrentHashMap<>();
+    private final Map<Integer, NavigableMap<String, Room>> openRoomsByBoardSize = new ConcurrentHashMap<>();
+
+    // Told about every change to a room while its lock is held (RoomStore journals them)
+    public interface ChangeListener {
+        void changed(Room room);
+        void removed(String roomId);
+    }
+
+    private volatile ChangeListener changeListener;
 
     private RoomManager() {}
 
@@ -21,12 +46,95 @@ public class RoomManager {
         return instance;
     }
 
+    public void setChangeListener(ChangeListener listener) {
+        this.changeListener = listener;
+    }
+
+    // Reports a change made outside this class (moves, scores, turns); ignored for closed rooms
+    public void changed(Room room) {
+        ChangeListener listener = changeListener;
+        if (listener == null) return;
+        synchronized (room) {
+            if (activeRooms.get(room.getId()) == room) listener.changed(room);
+        }
+    }
+
+    // All index changes for a room happen while holding that room's lock, so the
+    // indexes never disagree with the room's host/guest fields. Readers don't lock.
+
     public void addRoom(Room room) {
-        activeRooms.put(room.getId(), room);
+        synchronized (room) {
+            activeRooms.put(room.getId(), room);
+            String key = sortKey(room);
+            sortKeys.put(room.getId(), key);
+            roomsByKey.put(key, room);
+            bySize(roomsByBoardSize, room).put(key, room);
+            indexUser(room.getHostUsername(), room.getId());
+            indexUser(room.getGuestUsername(), room.getId());
+            if (room.getGuestUsername() == null) markOpen(room);
+            notifyChanged(room);
+        }
     }
 
     public void removeRoom(String roomId) {
-        activeRooms.remove(roomId);
+        Room room = activeRooms.get(roomId);
+        if (room == null) return;
+        synchronized (room) {
+            if (!activeRooms.remove(roomId, room)) return;
+            unindexUser(room.getHostUsername(), roomId);
+            unindexUser(room.getGuestUsername(), roomId);
+            markFull(room);
+            String key = sortKeys.remove(roomId);
+            roomsByKey.remove(key);
+            bySize(roomsByBoardSize, room).remove(key);
+            ChangeListener listener = changeListener;
+            if (listener != null) listener.removed(roomId);
+        }
+    }
+
+    // Atomically takes the guest slot. Returns false if the room is full or gone.
+    public boolean assignGuest(Room room, String username) {
+        synchronized (room) {
+            if (room.getGuestUsername() != null || activeRooms.get(room.getId()) != room) return false;
+            room.setGuestUsername(username);
+            indexUser(username, room.getId());
+            markFull(room);
+            notifyChanged(room);
+            return true;
+        }
+    }
+
+    // Frees the guest slot and returns who was in it (null if it was already empty)
+    public String removeGuest(Room room) {
+        synchronized (room) {
+            String guest = room.getGuestUsername();
+            if (guest == null) return null;
+            room.setGuestUsername(null);
+            unindexUser(guest, room.getId());
+            if (activeRooms.get(room.getId()) == room) {
+                markOpen(room);
+                notifyChanged(room);
+            }
+            return guest;
+        }
+    }
+
+    public void updateSettings(Room room, GameSettings settings) {
+        synchronized (room) {
+            boolean active = activeRooms.get(room.getId()) == room;
+            boolean open = active && room.getGuestUsername() == null;
+            String key = sortKeys.get(room.getId());
+            if (open) markFull(room);
+            if (active) bySize(roomsByBoardSize, room).remove(key);
+
+            room.getSettings().setBoardSize(settings.getBoardSize());
+            room.getSettings().setTotalRounds(settings.getTotalRounds());
+            room.getSettings().setTimePerTurnSeconds(settings.getTimePerTurnSeconds());
+
+            if (active) bySize(roomsByBoardSize, room).put(key, room);
+            if (open) markOpen(room);
+            if (active) notifyChanged(room);
+        }
     }
 
     public Room getRoom(String roomId) {
@@ -36,14 +144,125 @@ public class RoomManager {
     public List<Room> getAllRooms() {
         return new ArrayList<>(activeRooms.values());
     }
-    
+
     // Helper to find which room a user is currently in (useful for disconnect logic)
     public Room getRoomByUsername(String username) {
-        for (Room r : activeRooms.values()) {
-            if (username.equals(r.getHostUsername()) || username.equals(r.getGuestUsername())) {
-                return r;
+        if (username == null) return null;
+        String roomId = userToRoom.get(username);
+        return roomId == null ? null : activeRooms.get(roomId);
+    }
+
+    public List<Room> getOpenRooms(int boardSize) {
+        NavigableMap<String, Room> rooms = openRoomsByBoardSize.get(boardSize);
+        return rooms == null ? new ArrayList<>() : new ArrayList<>(rooms.values());
+    }
+
+    // Any room with a free slot for this board size, or null
+    public Room findOpenRoom(int boardSize) {
+        NavigableMap<String, Room> rooms = openRoomsByBoardSize.get(boardSize);
+        if (rooms == null) return null;
+        Map.Entry<String, Room> first = rooms.firstEntry();
+        return first == null ? null : first.getValue();
+    }
+
+    // Serves one lobby page. Starts from the narrowest index for the query, narrows it to
+    // the name prefix and cursor by range, then filters only the rooms it actually walks.
+    public RoomPage queryRooms(RoomQuery query) {
+        NavigableMap<String, Room> index;
+        if (query.getBoardSize() > 0) {
+            index = (query.isOpenOnly() ? openRoomsByBoardSize : roomsByBoardSize).get(query.getBoardSize());
+            if (index == null) return new RoomPage(new ArrayList<>(), null);
+        } else {
+            index = query.isOpenOnly() ? openRooms : roomsByKey;
+        }
+
+        // Key range: [prefix, prefix + MAX_VALUE], then start strictly after the cursor
+        String low = null;
+        String high = null;
+        boolean lowInclusive = true;
+        String prefix = query.getNamePrefix();
+        if (prefix != null && !prefix.isEmpty()) {
+            low = prefix.toLowerCase();
+            high = low + Character.MAX_VALUE;
+        }
+        String cursor = query.getCursor();
+        if (cursor != null && (low == null || cursor.compareTo(low) >= 0)) {
+            low = cursor;
+            lowInclusive = false;
+        }
+        if (high != null) {
+            if (low.compareTo(high) > 0) return new RoomPage(new ArrayList<>(), null);
+            index = index.subMap(low, lowInclusive, high, true);
+        } else if (low != null) {
+            index = index.tailMap(low, lowInclusive);
+        }
+
+        int limit = query.getLimit() <= 0 ? GameConstants.LOBBY_PAGE_SIZE
+                : Math.min(query.getLimit(), GameConstants.LOBBY_PAGE_SIZE);
+        List<Room> page = new ArrayList<>(limit);
+        String lastKey = null;
+        for (Map.Entry<String, Room> entry : index.entrySet()) {
+            Room room = entry.getValue();
+            if (!matches(room, query)) continue;
+            if (page.size() == limit) {
+                // There is at least one more match: hand out a cursor
+                return new RoomPage(page, lastKey);
             }
+            page.add(room);
+            lastKey = entry.getKey();
         }
-        return null;
+        return new RoomPage(page, null);
+    }
+
+    private boolean matches(Room room, RoomQuery query) {
+        if (query.getTotalRounds() > 0 && room.getSettings().getTotalRounds() != query.getTotalRounds()) return false;
+        switch (query.getOpponent()) {
+            case BOT: return room.isBotMode();
+            case HUMAN: return !room.isBotMode();
+            default: return true;
+        }
+    }
+
+    // --- Index Helpers (caller holds the room lock) ---
+
+    private void notifyChanged(Room room) {
+        ChangeListener listener = changeListener;
+        if (listener != null) listener.changed(room);
+    }
+
+    // Seating a player also subscribes them to the room's event topic
+    private void indexUser(String username, String roomId) {
+        if (username == null || BOT_USERNAME.equals(username)) return;
+        userToRoom.put(username, roomId);
+        EventBus.getInstance().subscribe(EventBus.roomTopic(roomId), username);
+    }
+
+    private void unindexUser(String username, String roomId) {
+        if (username == null) return;
+        // Only drop the entry if it still points at this room
+        userToRoom.remove(username, roomId);
+        EventBus.getInstance().unsubscribe(EventBus.roomTopic(roomId), username);
+    }
+
+    private void markOpen(Room room) {
+        String key = sortKeys.get(room.getId());
+        openRooms.put(key, room);
+        bySize(openRoomsByBoardSize, room).put(key, room);
+    }
+
+    private void markFull(Room room) {
+        String key = sortKeys.get(room.getId());
+        if (key == null) return;
+        openRooms.remove(key);
+        bySize(openRoomsByBoardSize, room).remove(key);
+    }
+
+    private NavigableMap<String, Room> bySize(Map<Integer, NavigableMap<String, Room>> index, Room room) {
+        return index.computeIfAbsent(room.getSettings().getBoardSize(), k -> new ConcurrentSkipListMap<>());
+    }
+
+    // Lobby order: room name (case-insensitive), then id to keep keys unique
+    private static String sortKey(Room room) {
+        return room.getName().toLowerCase() + '\u0000' + room.getId();
     }
 }
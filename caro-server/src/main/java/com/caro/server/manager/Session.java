@@ -0,0 +1,54 @@
+package com.caro.server.manager;
+
+import com.caro.common.service.ClientCallback;
+import com.caro.server.event.EventRing;
+import com.caro.server.timer.Timeout;
+
+// Preallocated per-login slot. Heartbeats only write 'lastSeen', no map insert or boxing.
+public class Session {
+    private final String username;
+    // Replaced when the client resumes over a new connection
+    private volatile ClientCallback callback;
+    private final boolean polling;
+    // Numbered events for this login: polling clients read them from here, callback
+    // sessions replay the ones they missed from here on resume
+    private final EventRing eventRing = new EventRing();
+    // Random secret sent only in the login reply. Identifies the session on channels that
+    // don't carry the username (e.g. UDP heartbeats); also what a reconnecting client
+    // presents to resume the session
+    private final long token;
+    private volatile long lastSeen;
+
+    // Connection lost but the session (and any room seat) is held until seatHold fires.
+    // State changes are made while holding this session's lock.
+    private volatile boolean suspended;
+    private volatile boolean closed;
+    private Timeout seatHold;
+
+    public Session(String username, ClientCallback callback, long token) {
+        this.username = username;
+        this.callback = callback;
+        this.polling = callback == null;
+        this.token = token;
+        this.lastSeen = System.currentTimeMillis();
+    }
+
+    public void touch() {
+        lastSeen = System.currentTimeMillis();
+    }
+
+    public String getUsername() { return username; }
+    public ClientCallback getCallback() { return callback; }
+    public void setCallback(ClientCallback callback) { this.callback = callback; }
+    public EventRing getEventRing() { return eventRing; }
+    public boolean isPolling() { return polling; }
+    public long getToken() { return token; }
+    public long getLastSeen() { return lastSeen; }
+
+    public boolean isSuspended() { return suspended; }
+    public void setSuspended(boolean suspended) { this.suspended = suspended; }
+    public boolean isClosed() { return closed; }
+    public void setClosed(boolean closed) { this.closed = closed; }
+    public Timeout getSeatHold() { return seatHold; }
+    public void setSeatHold(Timeout seatHold) { this.seatHold = seatHold; }
+}
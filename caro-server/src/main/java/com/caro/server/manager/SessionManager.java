@@ -1,19 +1,29 @@
 package com.caro.server.manager;
 
 import com.caro.common.service.ClientCallback;
-import java.rmi.RemoteException;
+import com.caro.common.util.GameConstants;
+import com.caro.server.event.EventBus;
+import com.caro.server.timer.Timeout;
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class SessionManager {
     private static SessionManager instance;
     
-    // Maps Username -> Callback Interface
-    private final Map<String, ClientCallback> activeClients = new ConcurrentHashMap<>();
-    // Maps Username -> Last Heartbeat Timestamp
-    private final Map<String, Long> lastHeartbeats = new ConcurrentHashMap<>();
+    // Maps Username -> Session (callback + last heartbeat timestamp)
+    private final Map<String, Session> activeClients = new ConcurrentHashMap<>();
+    // Maps Session Token -> Session (for the UDP heartbeat channel)
+    private final Map<Long, Session> sessionsByToken = new ConcurrentHashMap<>();
+    private final SecureRandom tokenGenerator = new SecureRandom();
+    // Notified for every new or resumed session (HeartbeatMonitor uses it to start tracking expiry)
+    private volatile Consumer<Session> sessionListener;
+    // Notified when a suspended session was not resumed in time
+    private volatile Consumer<Session> holdExpiredListener;
 
     private SessionManager() {}
 
@@ -22,53 +32,124 @@ public class SessionManager {
         return instance;
     }
 
-    public void registerUser(String username, ClientCallback callback) {
-        activeClients.put(username, callback);
-        lastHeartbeats.put(username, System.currentTimeMillis());
+    public void setSessionListener(Consumer<Session> listener) {
+        this.sessionListener = listener;
+    }
+
+    public void setHoldExpiredListener(Consumer<Session> listener) {
+        this.holdExpiredListener = listener;
+    }
+
+    public Session registerUser(String username, ClientCallback callback) {
+        long token;
+        do {
+            token = tokenGenerator.nextLong();
+        } while (token == 0 || sessionsByToken.containsKey(token));
+
+        Session session = new Session(username, callback, token);
+        Session previous = activeClients.put(username, session);
+        if (previous != null) sessionsByToken.remove(previous.getToken());
+        sessionsByToken.put(token, session);
+
+        // Every session gets a mailbox and follows the lobby and online-user list
+        EventBus bus = EventBus.getInstance();
+        if (session.isPolling()) bus.registerPolling(username, session.getEventRing());
+        else bus.register(username, callback, session.getEventRing());
+        bus.subscribe(EventBus.LOBBY, username);
+        bus.subscribe(EventBus.USERS, username);
         System.out.println("User registered: " + username);
+
+        Consumer<Session> listener = sessionListener;
+        if (listener != null) listener.accept(session);
+        return session;
     }
 
     public void removeUser(String username) {
-        activeClients.remove(username);
-        lastHeartbeats.remove(username);
+        Session session = activeClients.remove(username);
+        if (session != null) {
+            sessionsByToken.remove(session.getToken());
+            synchronized (session) {
+                session.setClosed(true);
+                cancelSeatHold(session);
+            }
+        }
+
+        EventBus bus = EventBus.getInstance();
+        bus.unsubscribe(EventBus.LOBBY, username);
+        bus.unsubscribe(EventBus.USERS, username);
+        bus.unregister(username);
         System.out.println("User removed: " + username);
     }
 
-    public ClientCallback getCallback(String username) {
-        return activeClients.get(username);
+    // Connection lost: keep the session for a resume and start the seat-hold clock.
+    // Returns false if there is no live session or it is already suspended.
+    public boolean suspend(String username) {
+        Session session = getSession(username);
+        if (session == null) return false;
+        synchronized (session) {
+            if (session.isSuspended() || session.isClosed()) return false;
+            session.setSuspended(true);
+            if (!session.isPolling()) EventBus.getInstance().suspend(username);
+            session.setSeatHold(TimerManager.getInstance().schedule(() -> {
+                Consumer<Session> listener = holdExpiredListener;
+                if (listener != null) listener.accept(session);
+            }, GameConstants.SESSION_HOLD_SECONDS, TimeUnit.SECONDS));
+        }
+        System.out.println("Session suspended: " + username);
+        return true;
     }
 
-    public void updateHeartbeat(String username) {
-        if (activeClients.containsKey(username)) {
-            lastHeartbeats.put(username, System.currentTimeMillis());
+    // Reattaches a client to its suspended session by token. A callback session gets the
+    // new callback and is sent the events it missed; a polling one just continues polling.
+    // Returns null if the session is gone, still live (a resume must not take over a
+    // working connection) or the transport kind changed.
+    public Session resume(long token, ClientCallback callback) {
+        Session session = sessionsByToken.get(token);
+        if (session == null || session.isPolling() != (callback == null)) return null;
+        synchronized (session) {
+            if (session.isClosed() || !session.isSuspended()) return null;
+            cancelSeatHold(session);
+            session.setSuspended(false);
+            session.touch();
+            if (!session.isPolling()) {
+                session.setCallback(callback);
+                EventBus.getInstance().resume(session.getUsername(), callback);
+            }
         }
+        System.out.println("Session resumed: " + session.getUsername());
+
+        // Expiry tracking stopped when the session was suspended
+        Consumer<Session> listener = sessionListener;
+        if (listener != null) listener.accept(session);
+        return session;
     }
-    
-    public Map<String, Long> getHeartbeats() {
-        return lastHeartbeats;
+
+    private void cancelSeatHold(Session session) {
+        Timeout hold = session.getSeatHold();
+        if (hold != null) hold.cancel();
+        session.setSeatHold(null);
     }
 
-    public void broadcastToAll(List<com.caro.common.model.Room> rooms) {
-        activeClients.forEach((username, callback) -> {
-            try {
-                callback.onLobbyUpdate(rooms);
-                System.out.println("Sent lobby update to: " + username);
-            } catch (RemoteException e) {
-                System.err.println("Failed to update user " + username + ": " + e.getMessage());
-                // No need to remove them here aggressively
-            }
-        });
+    public Session getSession(String username) {
+        if (username == null) return null;
+        return activeClients.get(username);
     }
 
-        public List<String> getActiveUsers() {
-        return new ArrayList<>(activeClients.keySet());
+    public Session getSessionByToken(long token) {
+        return sessionsByToken.get(token);
     }
-    
-    public void broadcastToAllUsers(List<String> users) {
-        activeClients.forEach((name, cb) -> {
-            try { cb.onUserListUpdate(users); } 
-            catch (Exception e) {}
-        });
+
+    public ClientCallback getCallback(String username) {
+        Session session = getSession(username);
+        return session == null ? null : session.getCallback();
     }
 
+    public void updateHeartbeat(String username) {
+        Session session = getSession(username);
+        if (session != null) session.touch();
+    }
+
+    public List<String> getActiveUsers() {
+        return new ArrayList<>(activeClients.keySet());
+    }
 }
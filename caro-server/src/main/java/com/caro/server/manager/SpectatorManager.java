@@ -0,0 +1,117 @@
+package com.caro.server.manager;
+
+import com.caro.common.codec.SpectateCodec;
+import com.caro.common.model.ClientEvent;
+import com.caro.common.model.Room;
+import com.caro.server.event.EventBus;
+import com.caro.server.metrics.MetricsRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans a room's move stream out to any number of spectators.
+ *
+ * The game thread only encodes the event once and publishes the byte[] on the room's
+ * spectate topic. The EventBus does the fan-out and batching, so a slow spectator never
+ * delays the players or the other spectators.
+ */
+public class SpectatorManager {
+    private static SpectatorManager instance;
+
+    private final EventBus eventBus;
+    private final RoomManager roomManager;
+
+    // Maps RoomID -> last sequence number published for that room
+    private final Map<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+    // Maps Username -> RoomID being watched
+    private final Map<String, String> watching = new ConcurrentHashMap<>();
+
+    private final LongAdder spectatorsResynced;
+
+    private SpectatorManager() {
+        this.eventBus = EventBus.getInstance();
+        this.roomManager = RoomManager.getInstance();
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.spectatorsResynced = metrics.counter("spectate.resyncs");
+        metrics.gauge("spectate.viewers", watching::size);
+    }
+
+    public static synchronized SpectatorManager getInstance() {
+        if (instance == null) instance = new SpectatorManager();
+        return instance;
+    }
+
+    public void subscribe(String username, String roomId) {
+        unsubscribe(username);
+        watching.put(username, roomId);
+        eventBus.subscribe(EventBus.spectateTopic(roomId), username);
+        sendSnapshot(username, roomId);
+    }
+
+    public void unsubscribe(String username) {
+        String roomId = watching.remove(username);
+        if (roomId != null) eventBus.unsubscribe(EventBus.spectateTopic(roomId), username);
+    }
+
+    public boolean hasSpectators(String roomId) {
+        return eventBus.hasSubscribers(EventBus.spectateTopic(roomId));
+    }
+
+    // Called when the bus dropped a spectator's backlog: start them over from a snapshot
+    public void resync(String username) {
+        String roomId = watching.get(username);
+        if (roomId == null) return;
+        spectatorsResynced.increment();
+        sendSnapshot(username, roomId);
+    }
+
+    // --- Publishing (called from game threads; cheap when nobody watches) ---
+
+    public void publishMove(Room room, int row, int col, int cell, String nextTurn) {
+        if (hasSpectators(room.getId())) publish(room, SpectateCodec.encodeMove(nextSeq(room.getId()), row, col, cell, nextTurn));
+    }
+
+    public void publishTurn(Room room, String nextTurn) {
+        if (hasSpectators(room.getId())) publish(room, SpectateCodec.encodeTurn(nextSeq(room.getId()), nextTurn));
+    }
+
+    public void publishRoundStart(Room room) {
+        if (hasSpectators(room.getId())) publish(room, SpectateCodec.encodeRoundStart(nextSeq(room.getId()), room));
+    }
+
+    public void publishGameEnded(Room room, String message) {
+        if (hasSpectators(room.getId())) publish(room, SpectateCodec.encodeGameEnded(nextSeq(room.getId()), room, message));
+    }
+
+    public void closeRoom(String roomId, String reason) {
+        AtomicLong seq = sequences.remove(roomId);
+        String topic = EventBus.spectateTopic(roomId);
+        for (String username : eventBus.getSubscribers(topic)) watching.remove(username, roomId);
+        long next = seq == null ? 1 : seq.incrementAndGet();
+        eventBus.publishAndClose(topic, ClientEvent.spectate(SpectateCodec.encodeClosed(next, reason)), EventBus.Priority.LOW);
+    }
+
+    // --- Internals ---
+
+    private void publish(Room room, byte[] payload) {
+        eventBus.publish(EventBus.spectateTopic(room.getId()), ClientEvent.spectate(payload), EventBus.Priority.LOW);
+    }
+
+    private long nextSeq(String roomId) {
+        return sequences.computeIfAbsent(roomId, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    // Built when the bus reaches it in topic order, so the snapshot lines up with live deltas
+    private void sendSnapshot(String username, String roomId) {
+        eventBus.publishTo(EventBus.spectateTopic(roomId), username, () -> {
+            Room room = roomManager.getRoom(roomId);
+            if (room == null) return ClientEvent.spectate(SpectateCodec.encodeClosed(0, "Room no longer exists."));
+            AtomicLong seq = sequences.get(roomId);
+            return ClientEvent.spectate(SpectateCodec.encodeSnapshot(seq == null ? 0 : seq.get(), room));
+        }, EventBus.Priority.LOW);
+    }
+}
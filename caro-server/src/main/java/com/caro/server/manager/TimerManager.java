@@ -0,0 +1,53 @@
+package com.caro.server.manager;
+
+import com.caro.server.metrics.MetricsRegistry;
+import com.caro.server.timer.Timeout;
+import com.caro.server.timer.TimingWheel;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimerManager {
+    private static TimerManager instance;
+
+    // Config: Wheel resolution. Turn timers are whole seconds, so 100ms is plenty.
+    private static final long TICK_MS = 100;
+    // Config: 512 ticks * 100ms = ~51s per wheel revolution
+    private static final int WHEEL_SIZE = 512;
+    // Config: Threads that run expired tasks (timeouts, round transitions, bot moves)
+    private static final int WORKER_THREADS = 4;
+
+    private final ExecutorService workers;
+    private final TimingWheel wheel;
+
+    private TimerManager() {
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(WORKER_THREADS, r -> {
+            Thread t = new Thread(r, "game-timer-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.wheel = new TimingWheel("game-timer-ticker", TICK_MS, TimeUnit.MILLISECONDS, WHEEL_SIZE, workers);
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("timer.precision.ms", wheel::getTickMillis);
+        metrics.gauge("timer.pending", wheel::getPendingTimeouts);
+        metrics.gauge("timer.lag.ms", wheel::getLagHistogram);
+    }
+
+    public static synchronized TimerManager getInstance() {
+        if (instance == null) instance = new TimerManager();
+        return instance;
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return wheel.schedule(task, delay, unit);
+    }
+
+    public void shutdown() {
+        wheel.stop();
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,44 @@
+package com.caro.server.metrics;
+
+import com.caro.common.util.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public class MetricsRegistry {
+    private static MetricsRegistry instance;
+
+    // Sorted maps so the dump is stable and easy to read
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Supplier<?>> gauges = new ConcurrentSkipListMap<>();
+
+    private MetricsRegistry() {}
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) instance = new MetricsRegistry();
+        return instance;
+    }
+
+    public LatencyHistogram histogram(String name, String unit) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram(unit));
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    public void gauge(String name, Supplier<?> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public String dump() {
+        StringBuilder sb = new StringBuilder("--- Server Metrics ---\n");
+        gauges.forEach((name, g) -> sb.append(name).append(" = ").append(g.get()).append('\n'));
+        counters.forEach((name, c) -> sb.append(name).append(" = ").append(c.sum()).append('\n'));
+        histograms.forEach((name, h) -> sb.append(name).append(": ").append(h).append('\n'));
+        return sb.toString();
+    }
+}
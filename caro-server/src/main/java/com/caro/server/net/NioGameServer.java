@@ -0,0 +1,459 @@
+package com.caro.server.net;
+
+import com.caro.common.model.ChatMessage;
+import com.caro.common.model.GameState;
+import com.caro.common.model.LobbyDelta;
+import com.caro.common.model.MoveAck;
+import com.caro.common.model.Room;
+import com.caro.common.net.WireCodec;
+import com.caro.common.service.ClientCallback;
+import com.caro.common.service.GameService;
+import com.caro.common.util.GameConstants;
+import com.caro.common.util.LatencyHistogram;
+import com.caro.server.manager.Session;
+import com.caro.server.manager.SessionManager;
+import com.caro.server.metrics.MetricsRegistry;
+import com.caro.server.service.GameServiceImpl;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GameService on a single selector thread with the WireCodec binary framing.
+ *
+ * One thread owns every socket: it accepts, reads whole frames and writes queued output.
+ * Decoded requests run on a small worker pool, one at a time per connection so a client's
+ * requests keep their order while other connections proceed. Pushes reuse the same
+ * connection through a local (non-exported) ClientCallback, so the EventBus treats NIO
+ * and RMI clients alike. Enabled with -Dcaro.nio=true and runs next to the RMI endpoint.
+ */
+public class NioGameServer {
+    // Config: Threads executing decoded requests
+    private static final int WORKER_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+    // Config: Initial per-connection read buffer (grows up to MAX_FRAME_SIZE for big frames)
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    // Config: Queued output above which a connection counts as stuck and pushes fail
+    private static final long MAX_PENDING_OUTPUT = 4L * 1024 * 1024;
+
+    private final GameServiceImpl gameService;
+    private final SessionManager sessionManager;
+    private final ExecutorService workers;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    // Connections with output waiting for the selector to write it
+    private final Queue<Connection> writeRequests = new ConcurrentLinkedQueue<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    // INVOKE lookup: WireCodec.methodKey -> GameService method
+    private final Map<String, Method> methods = new HashMap<>();
+
+    private final LatencyHistogram requestLatency;
+    private final LongAdder bytesIn;
+    private final LongAdder bytesOut;
+
+    public NioGameServer(GameServiceImpl gameService) throws IOException {
+        this.gameService = gameService;
+        this.sessionManager = SessionManager.getInstance();
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(WORKER_THREADS, r -> {
+            Thread t = new Thread(r, "nio-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (Method method : GameService.class.getMethods()) methods.put(WireCodec.methodKey(method), method);
+
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress(GameConstants.NIO_PORT), 1024);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.requestLatency = metrics.histogram("nio.request.latency.us", "us");
+        this.bytesIn = metrics.counter("nio.bytes.in");
+        this.bytesOut = metrics.counter("nio.bytes.out");
+        metrics.gauge("nio.connections", connections::size);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("caro.nio");
+    }
+
+    public void start() {
+        Thread thread = new Thread(this::selectLoop, "nio-selector");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("NIO game server listening on port " + GameConstants.NIO_PORT);
+    }
+
+    private void selectLoop() {
+        while (serverChannel.isOpen()) {
+            try {
+                selector.select();
+
+                Connection pending;
+                while ((pending = writeRequests.poll()) != null) pending.flush();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable()) connection.read();
+                    if (key.isValid() && key.isWritable()) connection.flush();
+                }
+            } catch (IOException e) {
+                System.err.println("NIO selector error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+        }
+    }
+
+    // --- Connection ---
+
+    private final class Connection {
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        // Output: filled by any thread, written only by the selector thread
+        final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+        final AtomicLong pendingOutput = new AtomicLong();
+        final AtomicBoolean writeRequested = new AtomicBoolean();
+
+        // Requests: run one at a time on the worker pool, in arrival order
+        final Queue<byte[]> requests = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        final PushCallback callback = new PushCallback(this);
+        volatile String username;
+        volatile boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        // Selector thread
+        void read() {
+            try {
+                int n = channel.read(in);
+                if (n < 0) {
+                    close();
+                    return;
+                }
+                bytesIn.add(n);
+                in.flip();
+                while (in.remaining() >= 4) {
+                    int length = in.getInt(in.position());
+                    if (length < WireCodec.HEADER_SIZE || length > WireCodec.MAX_FRAME_SIZE) {
+                        System.err.println("Closing connection: bad frame length " + length);
+                        close();
+                        return;
+                    }
+                    if (in.remaining() < 4 + length) {
+                        if (in.capacity() < 4 + length) grow(4 + length);
+                        break;
+                    }
+                    in.position(in.position() + 4);
+                    byte[] frame = new byte[length];
+                    in.get(frame);
+                    submit(frame);
+                }
+                in.compact();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void grow(int size) {
+            ByteBuffer bigger = ByteBuffer.allocate(size);
+            bigger.put(in);
+            bigger.flip();
+            in = bigger;
+        }
+
+        void submit(byte[] frame) {
+            requests.add(frame);
+            if (draining.compareAndSet(false, true)) workers.execute(this::drain);
+        }
+
+        // Worker thread
+        void drain() {
+            byte[] frame;
+            while ((frame = requests.poll()) != null) {
+                if (closed) {
+                    requests.clear();
+                    break;
+                }
+                handle(frame);
+            }
+            draining.set(false);
+            if (!requests.isEmpty() && draining.compareAndSet(false, true)) workers.execute(this::drain);
+        }
+
+        void handle(byte[] frame) {
+            long start = System.nanoTime();
+            int id = WireCodec.requestId(frame);
+            if (WireCodec.kind(frame) != WireCodec.REQUEST) {
+                sendError(id, "Expected a request frame.");
+                return;
+            }
+            try {
+                WireCodec.Body response = dispatch(WireCodec.op(frame), WireCodec.payload(frame));
+                send(WireCodec.frame(WireCodec.RESPONSE, id, WireCodec.op(frame), response));
+            } catch (RemoteException e) {
+                sendError(id, e.getMessage());
+            } catch (IOException e) {
+                sendError(id, "Malformed request: " + e.getMessage());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                sendError(id, "Internal server error.");
+            }
+            requestLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+
+        WireCodec.Body dispatch(byte op, DataInputStream in) throws IOException {
+            String user;
+            switch (op) {
+                case WireCodec.LOGIN:
+                    user = in.readUTF();
+                    long guestToken = gameService.login(user, callback);
+                    if (guestToken != 0) username = user;
+                    return out -> out.writeLong(guestToken);
+                case WireCodec.LOGIN_PASSWORD:
+                    user = in.readUTF();
+                    long accountToken = gameService.login(user, in.readUTF(), callback);
+                    if (accountToken != 0) username = user;
+                    return out -> out.writeLong(accountToken);
+                case WireCodec.RESUME_SESSION:
+                    long token = in.readLong();
+                    boolean resumed = gameService.resumeSession(token, callback);
+                    Session session = sessionManager.getSessionByToken(token);
+                    if (resumed && session != null) username = session.getUsername();
+                    return out -> out.writeBoolean(resumed);
+                case WireCodec.LOGOUT:
+                    gameService.logout(in.readUTF());
+                    username = null;
+                    return null;
+                case WireCodec.HEARTBEAT:
+                    gameService.sendHeartbeat(in.readUTF());
+                    return null;
+                case WireCodec.CREATE_ROOM:
+                    user = in.readUTF();
+                    gameService.createRoom(user, WireCodec.readSettings(in));
+                    return null;
+                case WireCodec.JOIN_ROOM:
+                    gameService.joinRoom(in.readUTF(), in.readUTF());
+                    return null;
+                case WireCodec.LEAVE_ROOM:
+                    gameService.leaveRoom(in.readUTF(), in.readUTF());
+                    return null;
+                case WireCodec.START_GAME:
+                    gameService.startGame(in.readUTF(), in.readUTF());
+                    return null;
+                case WireCodec.PLACE_MOVE:
+                    gameService.placeMove(in.readUTF(), in.readUTF(), in.readShort(), in.readShort());
+                    return null;
+                case WireCodec.PLACE_MOVE_SEQ:
+                    MoveAck ack = gameService.placeMove(in.readUTF(), in.readUTF(), in.readShort(), in.readShort(),
+                            in.readLong(), in.readLong());
+                    return out -> WireCodec.writeMoveAck(out, ack);
+                case WireCodec.SEND_CHAT:
+                    gameService.sendChat(in.readUTF(), in.readUTF(), in.readUTF());
+                    return null;
+                case WireCodec.GET_ALL_ROOMS:
+                    List<Room> rooms = gameService.getAllRooms();
+                    return out -> WireCodec.writeRooms(out, rooms);
+                case WireCodec.GET_ONLINE_USERS:
+                    List<String> users = gameService.getOnlineUsers();
+                    return out -> WireCodec.writeStrings(out, users);
+                case WireCodec.INVOKE:
+                    Object result = invoke(in.readUTF(), (Object[]) WireCodec.readObject(in));
+                    return out -> WireCodec.writeObject(out, result);
+                default:
+                    throw new RemoteException("Unknown op " + op);
+            }
+        }
+
+        Object invoke(String methodKey, Object[] args) throws RemoteException {
+            Method method = methods.get(methodKey);
+            // Login and resume need this connection's callback, so they only go through their ops
+            if (method == null || method.getName().equals("login") || method.getName().equals("resumeSession")) {
+                throw new RemoteException("Unsupported method " + methodKey);
+            }
+            try {
+                return method.invoke(gameService, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RemoteException) throw (RemoteException) e.getCause();
+                throw new RemoteException("Call failed.", e.getCause());
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                throw new RemoteException("Bad arguments for " + methodKey);
+            }
+        }
+
+        void sendError(int id, String message) {
+            send(WireCodec.frame(WireCodec.ERROR, id, (byte) 0, out -> out.writeUTF(message == null ? "Error" : message)));
+        }
+
+        // Any thread
+        boolean send(ByteBuffer frame) {
+            if (closed) return false;
+            if (pendingOutput.addAndGet(frame.remaining()) > MAX_PENDING_OUTPUT) {
+                pendingOutput.addAndGet(-frame.remaining());
+                return false;
+            }
+            out.add(frame);
+            if (writeRequested.compareAndSet(false, true)) {
+                writeRequests.add(this);
+                selector.wakeup();
+            }
+            return true;
+        }
+
+        // Selector thread
+        void flush() {
+            try {
+                while (true) {
+                    ByteBuffer frame;
+                    while ((frame = out.peek()) != null) {
+                        int n = channel.write(frame);
+                        bytesOut.add(n);
+                        pendingOutput.addAndGet(-n);
+                        if (frame.hasRemaining()) {
+                            // Socket buffer is full: wait for OP_WRITE
+                            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                            return;
+                        }
+                        out.poll();
+                    }
+                    key.interestOps(SelectionKey.OP_READ);
+                    writeRequested.set(false);
+                    // Something queued after the last peek but before the flag was cleared
+                    if (out.isEmpty() || !writeRequested.compareAndSet(false, true)) return;
+                }
+            } catch (IOException | java.nio.channels.CancelledKeyException e) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            connections.remove(this);
+            if (key != null) key.cancel();
+            try { channel.close(); } catch (IOException e) { /* ignore */ }
+            out.clear();
+
+            // The socket is gone, so there is no point waiting for the heartbeat timeout;
+            // the session is held for a resume on a new connection
+            String user = username;
+            if (user != null && sessionManager.getCallback(user) == callback) {
+                workers.execute(() -> gameService.suspendSession(user));
+            }
+        }
+    }
+
+    // Pushes for one connection, encoded straight into frames on the caller's thread
+    private static final class PushCallback implements ClientCallback {
+        private final Connection connection;
+
+        PushCallback(Connection connection) {
+            this.connection = connection;
+        }
+
+        private void push(byte op, WireCodec.Body body) throws RemoteException {
+            if (!connection.send(WireCodec.frame(WireCodec.PUSH, 0, op, body))) {
+                throw new RemoteException(connection.closed ? "Connection closed." : "Client is not reading.");
+            }
+        }
+
+        @Override
+        public void onLobbyUpdate(List<Room> rooms) throws RemoteException {
+            push(WireCodec.ON_LOBBY, out -> WireCodec.writeRooms(out, rooms));
+        }
+
+        @Override
+        public void onLobbyDelta(LobbyDelta delta) throws RemoteException {
+            push(WireCodec.ON_LOBBY_DELTA, out -> WireCodec.writeLobbyDelta(out, delta));
+        }
+
+        @Override
+        public void onUserListUpdate(List<String> users) throws RemoteException {
+            push(WireCodec.ON_USERS, out -> WireCodec.writeStrings(out, users));
+        }
+
+        @Override
+        public void onRoomInfoUpdate(Room room) throws RemoteException {
+            push(WireCodec.ON_ROOM_INFO, out -> WireCodec.writeRoom(out, room, true));
+        }
+
+        @Override
+        public void onGameStateUpdate(GameState state) throws RemoteException {
+            push(WireCodec.ON_GAME_STATE, out -> WireCodec.writeGameState(out, state));
+        }
+
+        @Override
+        public void onChatMessageReceived(ChatMessage message) throws RemoteException {
+            push(WireCodec.ON_CHAT, out -> WireCodec.writeChat(out, message));
+        }
+
+        @Override
+        public void onGameEnded(String winnerUsername) throws RemoteException {
+            push(WireCodec.ON_GAME_ENDED, out -> out.writeUTF(winnerUsername));
+        }
+
+        @Override
+        public void onKicked(String reason) throws RemoteException {
+            push(WireCodec.ON_KICKED, out -> out.writeUTF(reason));
+        }
+
+        @Override
+        public void onSpectateEvents(List<byte[]> events) throws RemoteException {
+            push(WireCodec.ON_SPECTATE, out -> WireCodec.writeBlobs(out, events));
+        }
+
+        @Override
+        public void ping() throws RemoteException {
+            push(WireCodec.ON_PING, null);
+        }
+    }
+}
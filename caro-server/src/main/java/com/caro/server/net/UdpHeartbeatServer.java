@@ -0,0 +1,92 @@
+package com.caro.server.net;
+
+import com.caro.common.util.GameConstants;
+import com.caro.server.manager.Session;
+import com.caro.server.manager.SessionManager;
+import com.caro.server.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional liveness channel: clients send a 12-byte datagram carrying their session
+ * token instead of an RMI sendHeartbeat call. One thread, one preallocated buffer,
+ * no per-packet allocation.
+ *
+ * Enable with -Dcaro.udpHeartbeat=true on the server.
+ */
+public class UdpHeartbeatServer {
+
+    private static final boolean ENABLED = Boolean.getBoolean("caro.udpHeartbeat");
+
+    private final SessionManager sessionManager;
+    private final LongAdder received;
+    private final LongAdder rejected;
+    private DatagramChannel channel;
+    private Thread worker;
+
+    public UdpHeartbeatServer() {
+        this.sessionManager = SessionManager.getInstance();
+        this.received = MetricsRegistry.getInstance().counter("heartbeat.udp.received");
+        this.rejected = MetricsRegistry.getInstance().counter("heartbeat.udp.rejected");
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public void start() throws IOException {
+        channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(GameConstants.HEARTBEAT_UDP_PORT));
+
+        worker = new Thread(this::receiveLoop, "udp-heartbeat");
+        worker.setDaemon(true);
+        worker.start();
+        System.out.println("UDP heartbeat channel listening on port " + GameConstants.HEARTBEAT_UDP_PORT);
+    }
+
+    public void stop() {
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    private void receiveLoop() {
+        // One spare byte so oversized packets can be told apart from valid ones
+        ByteBuffer buffer = ByteBuffer.allocateDirect(GameConstants.HEARTBEAT_PACKET_SIZE + 1);
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                if (channel.receive(buffer) == null) continue;
+                buffer.flip();
+                handlePacket(buffer);
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                System.err.println("UDP heartbeat receive failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handlePacket(ByteBuffer packet) {
+        if (packet.remaining() != GameConstants.HEARTBEAT_PACKET_SIZE
+                || packet.getInt() != GameConstants.HEARTBEAT_PACKET_MAGIC) {
+            rejected.increment();
+            return;
+        }
+
+        Session session = sessionManager.getSessionByToken(packet.getLong());
+        if (session == null) {
+            rejected.increment();
+            return;
+        }
+        session.touch();
+        received.increment();
+    }
+}
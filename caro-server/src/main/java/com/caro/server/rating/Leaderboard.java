@@ -0,0 +1,139 @@
+package com.caro.server.rating;
+
+import com.caro.common.model.LeaderboardEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Rated players in rating order, kept up to date one rating change at a time.
+ *
+ * Two structures share the work: a skip list of (rating, name) in leaderboard order, for
+ * listing the top and the neighbours of a player, and a Fenwick tree counting players
+ * per rating value, so a rank is a prefix sum instead of a walk. Every query is a
+ * logarithmic search plus the entries it returns; nothing is ever sorted. Ratings are
+ * clamped to [0, MAX_RATING], so the tree has a fixed MAX_RATING + 1 slots.
+ *
+ * Changes are serialized; queries take no lock and may see a change half applied (a
+ * player briefly missing or counted twice), which a leaderboard can live with.
+ */
+public class Leaderboard {
+    public static final int MAX_RATING = 4095;
+
+    // Highest rating first, then by name so entries are unique and the order is stable
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt((Entry e) -> -e.rating)
+            .thenComparing(e -> e.username);
+
+    private static class Entry {
+        final String username;
+        final int rating;
+
+        Entry(String username, int rating) {
+            this.username = username;
+            this.rating = rating;
+        }
+    }
+
+    private final Map<String, Integer> ratings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> order = new ConcurrentSkipListSet<>(ORDER);
+    // Fenwick tree, 1-based; slot i counts players rated MAX_RATING + 1 - i, so a prefix
+    // sum counts everyone rated higher
+    private final AtomicIntegerArray tree = new AtomicIntegerArray(MAX_RATING + 2);
+
+    public synchronized void put(String username, int rating) {
+        rating = Math.max(0, Math.min(MAX_RATING, rating));
+        Integer old = ratings.put(username, rating);
+        if (old != null) {
+            if (old == rating) return;
+            order.remove(new Entry(username, old));
+            add(old, -1);
+        }
+        order.add(new Entry(username, rating));
+        add(rating, 1);
+    }
+
+    public synchronized void remove(String username) {
+        Integer old = ratings.remove(username);
+        if (old == null) return;
+        order.remove(new Entry(username, old));
+        add(old, -1);
+    }
+
+    public int size() {
+        return ratings.size();
+    }
+
+    // -1 if the player is not on the board
+    public int ratingOf(String username) {
+        Integer rating = ratings.get(username);
+        return rating == null ? -1 : rating;
+    }
+
+    // 1 for the best; players with the same rating share a rank. 0 if not on the board.
+    public int rank(String username) {
+        Integer rating = ratings.get(username);
+        return rating == null ? 0 : rankOf(rating);
+    }
+
+    public List<LeaderboardEntry> top(int count) {
+        List<LeaderboardEntry> result = new ArrayList<>(Math.max(0, Math.min(count, size())));
+        int position = 0;
+        int rank = 0;
+        int previous = -1;
+        for (Iterator<Entry> it = order.iterator(); it.hasNext() && result.size() < count; ) {
+            Entry e = it.next();
+            position++;
+            // Ties share the rank of the first of them
+            if (e.rating != previous) rank = position;
+            previous = e.rating;
+            result.add(new LeaderboardEntry(rank, e.username, e.rating));
+        }
+        return result;
+    }
+
+    // The player and up to 'radius' players on either side, in leaderboard order
+    public List<LeaderboardEntry> around(String username, int radius) {
+        Integer rating = ratings.get(username);
+        if (rating == null) return new ArrayList<>();
+        Entry self = new Entry(username, rating);
+
+        List<LeaderboardEntry> above = new ArrayList<>(radius);
+        for (Iterator<Entry> it = order.headSet(self, false).descendingIterator(); it.hasNext() && above.size() < radius; ) {
+            Entry e = it.next();
+            above.add(new LeaderboardEntry(rankOf(e.rating), e.username, e.rating));
+        }
+        List<LeaderboardEntry> result = new ArrayList<>(2 * radius + 1);
+        for (int i = above.size() - 1; i >= 0; i--) result.add(above.get(i));
+        int below = 0;
+        for (Iterator<Entry> it = order.tailSet(self, true).iterator(); it.hasNext() && below <= radius; below++) {
+            Entry e = it.next();
+            result.add(new LeaderboardEntry(rankOf(e.rating), e.username, e.rating));
+        }
+        return result;
+    }
+
+    private int rankOf(int rating) {
+        return 1 + prefix(slot(rating) - 1);
+    }
+
+    private static int slot(int rating) {
+        return MAX_RATING + 1 - rating;
+    }
+
+    private void add(int rating, int delta) {
+        for (int i = slot(rating); i < tree.length(); i += i & -i) tree.addAndGet(i, delta);
+    }
+
+    private int prefix(int i) {
+        int sum = 0;
+        for (; i > 0; i -= i & -i) sum += tree.get(i);
+        return sum;
+    }
+}
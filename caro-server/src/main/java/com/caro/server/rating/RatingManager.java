@@ -0,0 +1,162 @@
+package com.caro.server.rating;
+
+import com.caro.common.model.LeaderboardEntry;
+import com.caro.common.util.GameConstants;
+import com.caro.server.metrics.MetricsRegistry;
+import com.caro.server.store.UserRecord;
+import com.caro.server.store.UserStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Elo ratings for registered players, stored in their account records (UserStore) and
+ * mirrored in a Leaderboard that is filled once at startup and then updated per match.
+ *
+ * Guests and the bot are not rated, so only a match between two accounts counts. Match
+ * results are applied on one thread, in the order they come in: the account writes are
+ * synced to disk and should not hold up the game, and one writer means two matches
+ * ending at once cannot both start from the same old rating.
+ */
+public class RatingManager {
+    private static RatingManager instance;
+
+    // Config: Elo K-factor while a player has fewer than PROVISIONAL_GAMES rated matches, then after
+    private static final int PROVISIONAL_K = 40;
+    private static final int ESTABLISHED_K = 20;
+    private static final int PROVISIONAL_GAMES = 30;
+
+    private final UserStore userStore;
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final ExecutorService updater;
+    private final LongAdder ratedMatches;
+
+    // New ratings after a match, for announcing it
+    public static class Update {
+        private final String host;
+        private final String guest;
+        private final int hostRating;
+        private final int hostDelta;
+        private final int guestRating;
+        private final int guestDelta;
+
+        Update(String host, int hostRating, int hostDelta, String guest, int guestRating, int guestDelta) {
+            this.host = host;
+            this.hostRating = hostRating;
+            this.hostDelta = hostDelta;
+            this.guest = guest;
+            this.guestRating = guestRating;
+            this.guestDelta = guestDelta;
+        }
+
+        public String describe() {
+            return "Ratings: " + host + " " + hostRating + " (" + signed(hostDelta) + "), "
+                    + guest + " " + guestRating + " (" + signed(guestDelta) + ")";
+        }
+
+        private static String signed(int delta) {
+            return delta >= 0 ? "+" + delta : String.valueOf(delta);
+        }
+    }
+
+    private RatingManager() {
+        userStore = UserStore.getInstance();
+        updater = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "rating-updater");
+            t.setDaemon(true);
+            return t;
+        });
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        ratedMatches = metrics.counter("ratings.matches");
+        metrics.gauge("ratings.players", leaderboard::size);
+
+        long start = System.nanoTime();
+        try {
+            userStore.forEachRating((username, rating) -> {
+                if (rating > 0) leaderboard.put(username, rating);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load ratings", e);
+        }
+        System.out.println("Ratings: " + leaderboard.size() + " rated players loaded in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    public static synchronized RatingManager getInstance() {
+        if (instance == null) instance = new RatingManager();
+        return instance;
+    }
+
+    // Current rating, or the default for anyone not rated yet (including guests)
+    public int getRating(String username) {
+        int rating = leaderboard.ratingOf(username);
+        return rating < 0 ? GameConstants.DEFAULT_RATING : rating;
+    }
+
+    /**
+     * Rates a finished match; hostScore is 1 for a host win, 0 for a loss, 0.5 for a draw.
+     * Completes with the new ratings, or null if the match was not rated.
+     */
+    public CompletableFuture<Update> recordMatch(String host, String guest, double hostScore) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return rate(host, guest, hostScore);
+            } catch (IOException e) {
+                System.err.println("Rating update for " + host + " vs " + guest + " failed: " + e.getMessage());
+                return null;
+            }
+        }, updater);
+    }
+
+    // Updater thread only
+    private Update rate(String host, String guest, double hostScore) throws IOException {
+        if (host == null || guest == null || host.equals(guest)) return null;
+        UserRecord a = userStore.find(host);
+        UserRecord b = userStore.find(guest);
+        if (a == null || b == null) return null;
+
+        int ratingA = a.getRating() > 0 ? a.getRating() : GameConstants.DEFAULT_RATING;
+        int ratingB = b.getRating() > 0 ? b.getRating() : GameConstants.DEFAULT_RATING;
+        double expectedA = 1 / (1 + Math.pow(10, (ratingB - ratingA) / 400.0));
+        int newA = clamp(ratingA + (int) Math.round(kFactor(a) * (hostScore - expectedA)));
+        int newB = clamp(ratingB + (int) Math.round(kFactor(b) * ((1 - hostScore) - (1 - expectedA))));
+
+        a.setRating(newA);
+        a.setRatedGames(a.getRatedGames() + 1);
+        b.setRating(newB);
+        b.setRatedGames(b.getRatedGames() + 1);
+        userStore.update(a);
+        userStore.update(b);
+        leaderboard.put(host, newA);
+        leaderboard.put(guest, newB);
+        ratedMatches.increment();
+        return new Update(host, newA, newA - ratingA, guest, newB, newB - ratingB);
+    }
+
+    private static int kFactor(UserRecord record) {
+        return record.getRatedGames() < PROVISIONAL_GAMES ? PROVISIONAL_K : ESTABLISHED_K;
+    }
+
+    // Never 0, which marks an unrated account
+    private static int clamp(int rating) {
+        return Math.max(1, Math.min(Leaderboard.MAX_RATING, rating));
+    }
+
+    public List<LeaderboardEntry> getTopPlayers(int count) {
+        return leaderboard.top(Math.max(0, Math.min(count, GameConstants.LEADERBOARD_MAX_ENTRIES)));
+    }
+
+    public List<LeaderboardEntry> getPlayersAround(String username, int radius) {
+        return leaderboard.around(username, Math.max(0, Math.min(radius, (GameConstants.LEADERBOARD_MAX_ENTRIES - 1) / 2)));
+    }
+
+    public LeaderboardEntry getRanking(String username) {
+        return new LeaderboardEntry(leaderboard.rank(username), username, getRating(username));
+    }
+}
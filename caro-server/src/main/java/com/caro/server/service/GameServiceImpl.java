@@ -1,127 +1,305 @@
 package com.caro.server.service;
 
 import com.caro.common.model.*;
+import com.caro.common.net.TunedSocketFactory;
 import com.caro.common.service.ClientCallback;
 import com.caro.common.service.GameService;
 import com.caro.common.util.GameConstants;
 import com.caro.common.util.GameRules;
+import com.caro.common.util.LatencyHistogram;
 import com.caro.server.bot.BotEngine;
+import com.caro.server.event.EventBus;
+import com.caro.server.journal.GameJournal;
+import com.caro.server.journal.GameRecord;
+import com.caro.server.journal.ReplayStore;
+import com.caro.server.manager.MatchmakingManager;
 import com.caro.server.manager.RoomManager;
+import com.caro.server.manager.Session;
 import com.caro.server.manager.SessionManager;
-
+import com.caro.server.manager.SpectatorManager;
+import com.caro.server.manager.TimerManager;
+import com.caro.server.metrics.MetricsRegistry;
+import com.caro.server.net.UdpHeartbeatServer;
+import com.caro.server.rating.RatingManager;
+import com.caro.server.store.RoomStore;
+import com.caro.server.store.UserStore;
+import com.caro.server.timer.Timeout;
+
+import java.io.IOException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class GameServiceImpl extends UnicastRemoteObject implements GameService {
 
     private final SessionManager sessionManager;
     private final RoomManager roomManager;
-
-    private final ScheduledExecutorService gameScheduler = Executors.newScheduledThreadPool(4);
-    private final Map<String, ScheduledFuture<?>> roomTimers = new ConcurrentHashMap<>();
+    private final TimerManager timerManager;
+    private final MatchmakingManager matchmakingManager;
+    private final SpectatorManager spectatorManager;
+    private final EventBus eventBus;
+    private final UserStore userStore;
+    private final GameJournal journal;
+    private final ReplayStore replayStore;
+    private final RoomStore roomStore;
+    private final RatingManager ratingManager;
+    private final LatencyHistogram loginLatency;
+
+    // Config: Pause after a round before the next one (the round-end message says 5 seconds)
+    private static final int ROUND_BREAK_SECONDS = 5;
+
+    // Maps RoomID -> pending turn timeout
+    private final Map<String, Timeout> roomTimers = new ConcurrentHashMap<>();
+    // Maps RoomID -> moves of the game in progress, journaled when it ends
+    private final Map<String, GameRecord> roomRecords = new ConcurrentHashMap<>();
 
     public GameServiceImpl() throws RemoteException {
-        super();
+        // Tuned sockets; the stub carries the client half, so callers need no setup
+        super(0, new TunedSocketFactory(), new TunedSocketFactory());
         this.sessionManager = SessionManager.getInstance();
         this.roomManager = RoomManager.getInstance();
+        this.timerManager = TimerManager.getInstance();
+        this.spectatorManager = SpectatorManager.getInstance();
+        this.eventBus = EventBus.getInstance();
+        this.eventBus.setOverflowListener(this::resync);
+        this.userStore = UserStore.getInstance(); // Loads the accounts now rather than on the first login
+        this.loginLatency = MetricsRegistry.getInstance().histogram("login.latency.us", "us");
+        this.journal = GameJournal.getInstance();
+        this.replayStore = ReplayStore.getInstance();
+        this.roomStore = RoomStore.getInstance();
+        this.ratingManager = RatingManager.getInstance();
+        this.matchmakingManager = new MatchmakingManager(this);
+        this.matchmakingManager.setRatingLookup(ratingManager::getRating);
+        recoverRooms();
+        this.matchmakingManager.start();
+    }
+
+    // Puts back the rooms that were active when the server went down, turn clocks
+    // included, then journals every room change from here on
+    private void recoverRooms() {
+        long start = System.nanoTime();
+        List<Room> rooms = roomStore.recover();
+        rooms.parallelStream().forEach(roomManager::addRoom);
+        roomStore.start(roomManager);
+        for (Room room : rooms) resumeRoom(room);
+        System.out.println("Recovered " + rooms.size() + " rooms in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        if (!rooms.isEmpty()) {
+            // Players get the usual seat hold to log back in
+            timerManager.schedule(() -> releaseAbsentSeats(rooms), GameConstants.SESSION_HOLD_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void resumeRoom(Room room) {
+        synchronized (room) {
+            if (!room.isGameStarted()) return;
+            long deadline = room.getTurnDeadline();
+            if (deadline == 0) {
+                // Between rounds: the pending next round went down with the server
+                timerManager.schedule(() -> advanceMatch(room.getId()), ROUND_BREAK_SECONDS, TimeUnit.SECONDS);
+                return;
+            }
+            startTurnTimer(room, Math.max(0, deadline - System.currentTimeMillis()));
+            if (room.isBotMode() && "BOT".equals(room.getGameState().getCurrentTurnUsername())) {
+                triggerBotMove(room);
+            }
+            roomManager.changed(room);
+        }
+    }
+
+    private void releaseAbsentSeats(List<Room> rooms) {
+        for (Room room : rooms) {
+            if (roomManager.getRoom(room.getId()) != room) continue;
+            try {
+                String guest = room.getGuestUsername();
+                if (guest != null && !"BOT".equals(guest) && sessionManager.getSession(guest) == null) {
+                    leaveRoom(guest, room.getId());
+                }
+                if (sessionManager.getSession(room.getHostUsername()) == null) {
+                    leaveRoom(room.getHostUsername(), room.getId());
+                }
+            } catch (RemoteException | RuntimeException e) {
+                System.err.println("Releasing seats of recovered room " + room.getId() + " failed: " + e.getMessage());
+            }
+        }
     }
 
     @Override
-    public boolean login(String username, ClientCallback callback) throws RemoteException {
-        if (username == null || username.trim().isEmpty()) return false;
-        
-        // TODO: Add JSON check against users.json here
-        // For now, we allow login if name not taken
-        if (sessionManager.getCallback(username) != null) {
+    public long login(String username, String password, ClientCallback callback) throws RemoteException {
+        if (username == null || username.trim().isEmpty() || password == null || password.isEmpty()) return 0;
+        long start = System.nanoTime();
+        // Cheap rejection before spending a password check on it
+        if (sessionManager.getSession(username) != null) {
             throw new RemoteException("User already logged in.");
         }
 
-        sessionManager.registerUser(username, callback);
+        UserStore.Result result;
+        try {
+            result = userStore.authenticate(username, password);
+        } catch (IOException e) {
+            System.err.println("User store error for " + username + ": " + e.getMessage());
+            throw new RemoteException("Account storage unavailable, try again later.");
+        }
+        if (result == UserStore.Result.BUSY) throw new RemoteException("Server busy, try again.");
+        if (result == UserStore.Result.WRONG_PASSWORD) {
+            System.out.println("Wrong password for " + username);
+            return 0;
+        }
+        if (result == UserStore.Result.REGISTERED) System.out.println("Registered account " + username);
+
+        long token = startSession(username, callback);
+        loginLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return token;
+    }
+
+    @Override
+    public long login(String username, ClientCallback callback) throws RemoteException {
+        if (username == null || username.trim().isEmpty()) return 0;
+        if (userStore.exists(username)) {
+            throw new RemoteException("This name is registered; log in with its password.");
+        }
+        return startSession(username, callback);
+    }
+
+    // Returns the new session's token
+    private long startSession(String username, ClientCallback callback) throws RemoteException {
+        if (sessionManager.getSession(username) != null) {
+            throw new RemoteException("User already logged in.");
+        }
+
+        Session session = sessionManager.registerUser(username, callback);
         List<Room> rooms = roomManager.getAllRooms();
-        System.out.println("User " + username + " logged in. Sending " + rooms.size() + " rooms.");
-        // Push initial lobby state to the new user
-        callback.onLobbyUpdate(roomManager.getAllRooms());
-        broadcastLobbyUpdate();
+        System.out.println("User " + username + " logged in" + (session.isPolling() ? " (poll mode)" : "")
+                + ". Sending " + rooms.size() + " rooms.");
+        // Push initial lobby state to the new user (the room list itself didn't change)
+        eventBus.sendTo(username, ClientEvent.lobby(rooms), EventBus.Priority.LOW);
+        // Still seated from before a server restart: put them straight back in the room
+        Room room = roomManager.getRoomByUsername(username);
+        if (room != null) {
+            // A new client process numbers its moves from 1 again
+            synchronized (room) {
+                room.setLastMoveSeq(username, 0);
+            }
+            eventBus.sendTo(username, ClientEvent.roomInfo(room), EventBus.Priority.NORMAL);
+            if (room.isGameStarted()) {
+                eventBus.sendTo(username, ClientEvent.gameState(room.getGameState()), EventBus.Priority.HIGH);
+            }
+        }
         broadcastUserList();
-        return true;
+        return session.getToken();
     }
 
     @Override
     public void createRoom(String username, GameSettings settings) throws RemoteException {
+        touch(username);
+        // A seat ends any quick-match wait, or the matcher could seat them a second time
+        matchmakingManager.cancel(username);
         String roomId = UUID.randomUUID().toString();
         String roomName = username + "'s room";
         
         Room room = new Room(roomId, roomName, username, settings);
         roomManager.addRoom(room);
 
-        ClientCallback hostCallback = sessionManager.getCallback(username);
-        if (hostCallback != null) {
-            hostCallback.onRoomInfoUpdate(room); 
-            // The client needs to handle this by switching scene if they are currently in Lobby
-        }
+        // The client needs to handle this by switching scene if they are currently in Lobby
+        notifyRoomUpdate(room);
         
-        broadcastLobbyUpdate();
+        broadcastLobbyChange(room);
     }
 
     @Override
     public void joinRoom(String username, String roomId) throws RemoteException {
+        touch(username);
         Room room = roomManager.getRoom(roomId);
         if (room == null) throw new RemoteException("Room not found.");
         
-        if (room.getGuestUsername() != null) throw new RemoteException("Room is full.");
+        // Check-and-take in one step so two joiners can't both get the slot
+        if (!roomManager.assignGuest(room, username)) throw new RemoteException("Room is full.");
+        matchmakingManager.cancel(username);
         
-        room.setGuestUsername(username);
+        // Notify the Host that someone joined; on the guest this sets the room data
+        // and refreshes the UI
+        notifyRoomUpdate(room);
         
-        // Notify the Host that someone joined
-        ClientCallback hostCallback = sessionManager.getCallback(room.getHostUsername());
-        if (hostCallback != null) {
-            hostCallback.onRoomInfoUpdate(room);
+        broadcastLobbyChange(room); // Update lobby for everyone else (room is now 2/2)
+    }
+
+    @Override
+    public void quickMatch(String username, MatchPreferences preferences) throws RemoteException {
+        touch(username);
+        if (sessionManager.getSession(username) == null) throw new RemoteException("Not logged in.");
+        if (roomManager.getRoomByUsername(username) != null) throw new RemoteException("Already in a room.");
+        if (preferences == null || preferences.getBoardSize() < GameConstants.WIN_STREAK) {
+            throw new RemoteException("Invalid match preferences.");
         }
-        
-        ClientCallback guestCallback = sessionManager.getCallback(username);
-        if (guestCallback != null) {
-            // This will trigger 'onRoomInfoUpdate' on the guest client,
-            // which sets the room data and refreshes the UI
-            guestCallback.onRoomInfoUpdate(room);
+        matchmakingManager.enqueue(username, preferences);
+    }
+
+    @Override
+    public void cancelQuickMatch(String username) throws RemoteException {
+        touch(username);
+        matchmakingManager.cancel(username);
+    }
+
+    @Override
+    public void spectateRoom(String username, String roomId) throws RemoteException {
+        touch(username);
+        if (sessionManager.getSession(username) == null) throw new RemoteException("Not logged in.");
+        Room room = roomManager.getRoom(roomId);
+        if (room == null) throw new RemoteException("Room not found.");
+        if (username.equals(room.getHostUsername()) || username.equals(room.getGuestUsername())) {
+            throw new RemoteException("Players cannot spectate their own room.");
         }
-        
-        broadcastLobbyUpdate(); // Update lobby for everyone else (room is now 2/2)
+        spectatorManager.subscribe(username, roomId);
+    }
+
+    @Override
+    public void stopSpectating(String username) throws RemoteException {
+        touch(username);
+        spectatorManager.unsubscribe(username);
+    }
+
+    // Called by the matcher thread once a room has been created for a pair
+    public void notifyMatchFound(Room room) {
+        notifyRoomUpdate(room);
+        broadcastLobbyChange(room);
     }
 
     @Override
     public void updateRoomSettings(String username, String roomId, GameSettings settings) throws RemoteException {
+        touch(username);
         Room room = roomManager.getRoom(roomId);
         if (room != null && room.getHostUsername().equals(username)) {
-            // Update the server-side room object
-            // Note: create a setter in Room.java if missing: room.setSettings(settings);
-            // Or modify the existing object directly if mutable.
-            room.getSettings().setBoardSize(settings.getBoardSize());
-            room.getSettings().setTotalRounds(settings.getTotalRounds());
-            room.getSettings().setTimePerTurnSeconds(settings.getTimePerTurnSeconds());
+            // Update the server-side room object (keeps the board-size index in sync)
+            roomManager.updateSettings(room, settings);
             
             // Notify everyone in the room
-            ClientCallback host = sessionManager.getCallback(room.getHostUsername());
-            ClientCallback guest = sessionManager.getCallback(room.getGuestUsername());
-            
-            if (host != null) host.onRoomInfoUpdate(room);
-            if (guest != null) guest.onRoomInfoUpdate(room);
+            notifyRoomUpdate(room);
         }
     }
 
 
     @Override
     public void sendChat(String username, String roomId, String message) throws RemoteException {
+        touch(username);
+        applyChat(username, roomId, message);
+    }
+
+    private CommandResult applyChat(String username, String roomId, String message) {
         Room room = roomManager.getRoom(roomId);
-        if (room == null) return;
+        if (room == null) return CommandResult.rejected("No such room");
         
         ChatMessage msg = new ChatMessage(username, message);
         room.addMessage(msg);
         
         notifyRoom(room, msg);
+        return CommandResult.ok();
     }
 
     // --- Helper Methods ---
@@ -130,88 +308,180 @@ public class GameServiceImpl extends UnicastRemoteObject implements GameService
         List<Room> rooms = roomManager.getAllRooms();
         System.out.println("Broadcasting update: " + rooms.size() + " rooms active.");
 
-        // Use SessionManager to send to EVERYONE
-        SessionManager.getInstance().broadcastToAll(rooms);
+        // Everyone logged in follows the lobby topic
+        eventBus.publish(EventBus.LOBBY, ClientEvent.lobby(rooms), EventBus.Priority.LOW);
+    }
+
+    // One room's lobby entry changed (or is new); clients patch it in by id
+    public void broadcastLobbyChange(Room room) {
+        eventBus.publish(EventBus.LOBBY, ClientEvent.lobbyDelta(LobbyDelta.upsert(room)), EventBus.Priority.LOW);
+    }
+
+    public void broadcastLobbyRemoval(String roomId) {
+        eventBus.publish(EventBus.LOBBY, ClientEvent.lobbyDelta(LobbyDelta.removal(roomId)), EventBus.Priority.LOW);
     }
     
     private void notifyRoom(Room room, ChatMessage msg) {
-         try {
-             ClientCallback host = sessionManager.getCallback(room.getHostUsername());
-             ClientCallback guest = sessionManager.getCallback(room.getGuestUsername());
-             
-             if (host != null) host.onChatMessageReceived(msg);
-             if (guest != null) guest.onChatMessageReceived(msg);
-         } catch (RemoteException e) {
-             e.printStackTrace();
-         }
-    }
-
-    private void closeRoom(Room room) {
+        eventBus.publish(EventBus.roomTopic(room.getId()), ClientEvent.chat(msg), EventBus.Priority.NORMAL);
+    }
+
+    // Bus dropped this user's backlog (or a poller fell behind its ring): resend everything they could be showing
+    private void resync(String username) {
+        System.out.println("Resyncing " + username + " after lost events.");
+        eventBus.sendTo(username, ClientEvent.lobby(roomManager.getAllRooms()), EventBus.Priority.LOW);
+        eventBus.sendTo(username, ClientEvent.users(sessionManager.getActiveUsers()), EventBus.Priority.LOW);
+        Room room = roomManager.getRoomByUsername(username);
+        if (room != null) {
+            // A new client process numbers its moves from 1 again
+            synchronized (room) {
+                room.setLastMoveSeq(username, 0);
+            }
+            eventBus.sendTo(username, ClientEvent.roomInfo(room), EventBus.Priority.NORMAL);
+            if (room.isGameStarted()) {
+                eventBus.sendTo(username, ClientEvent.gameState(room.getGameState()), EventBus.Priority.HIGH);
+            }
+        }
+        spectatorManager.resync(username);
+    }
+
+    // The host left or lost their session. Also used by HeartbeatMonitor, so the game is
+    // journaled and the turn clock stopped however the room goes away.
+    public void closeRoom(Room room, String reason) {
         // 1. Remove from Manager
         roomManager.removeRoom(room.getId());
+        Timeout timer = roomTimers.remove(room.getId());
+        if (timer != null) timer.cancel();
+        finishRecord(room, GameRecord.ABANDONED);
+        spectatorManager.closeRoom(room.getId(), reason);
         
         // 2. Kick Guest if present
         if (room.getGuestUsername() != null) {
-            ClientCallback guest = sessionManager.getCallback(room.getGuestUsername());
-            if (guest != null) {
-                try {
-                    // Send a specific message or just an empty room update?
-                    // Better: Send a "Kicked" signal or force them to lobby.
-                    guest.onKicked("Host closed the room.");
-                } catch (RemoteException e) {
-                    e.printStackTrace();
-                }
-            }
+            // Send a specific message or just an empty room update?
+            // Better: Send a "Kicked" signal or force them to lobby.
+            eventBus.sendTo(room.getGuestUsername(), ClientEvent.kicked(reason), EventBus.Priority.NORMAL);
         }
         
         // 3. Broadcast to lobby (Room is gone)
-        broadcastLobbyUpdate();
+        broadcastLobbyRemoval(room.getId());
     }
     
     // Implement other methods (leaveRoom, placeMove, etc.) similarly...
     @Override
     public void logout(String username) throws RemoteException {
         sessionManager.removeUser(username);
+        matchmakingManager.cancel(username);
+        spectatorManager.unsubscribe(username);
         // Also handle if they were in a room?
         Room r = roomManager.getRoomByUsername(username);
         if (r != null) {
-            leaveRoom(username, r.getId());
+            leaveRoom(username, r.getId()); // Updates the lobby entry
         }
-        broadcastLobbyUpdate();
         broadcastUserList();
     }
 
     @Override
     public void sendHeartbeat(String username) throws RemoteException {
+        Session session = sessionManager.getSession(username);
+        if (session != null && session.isSuspended()) throw new RemoteException("Session suspended; resume it.");
+        sessionManager.updateHeartbeat(username);
+    }
+
+    @Override
+    public boolean resumeSession(long sessionToken, ClientCallback callback) throws RemoteException {
+        Session session = sessionManager.resume(sessionToken, callback);
+        if (session == null) {
+            // The server has not noticed the drop yet: worth retrying, unlike a lost session
+            Session live = sessionManager.getSessionByToken(sessionToken);
+            if (live != null && !live.isSuspended() && !live.isClosed()) {
+                throw new RemoteException("Session is still connected; retry shortly.");
+            }
+            return false;
+        }
+        Room room = roomManager.getRoomByUsername(session.getUsername());
+        if (room != null) notifyRoom(room, new ChatMessage("Server", session.getUsername() + " reconnected."));
+        return true;
+    }
+
+    // Connection lost (heartbeat timeout or closed socket): hold the session and seat for a
+    // resume instead of logging out; HeartbeatMonitor disconnects it if the hold runs out
+    public void suspendSession(String username) {
+        if (!sessionManager.suspend(username)) return;
+        Room room = roomManager.getRoomByUsername(username);
+        if (room != null) {
+            notifyRoom(room, new ChatMessage("Server", username + " lost connection. Their seat is held for "
+                    + GameConstants.SESSION_HOLD_SECONDS + "s."));
+        }
+    }
+
+    @Override
+    public boolean isUdpHeartbeatEnabled() throws RemoteException {
+        return UdpHeartbeatServer.isEnabled();
+    }
+
+    @Override
+    public EventBatch pollEvents(long sessionToken, long lastSeq, long maxWaitMs) throws RemoteException {
+        Session session = sessionManager.getSessionByToken(sessionToken);
+        if (session == null) throw new RemoteException("Session expired.");
+        if (!session.isPolling()) throw new RemoteException("Session uses callbacks, not polling.");
+        // The token only ever went to the client that logged in, so a poll with it proves
+        // that client is back; it continues from its own lastSeq
+        if (session.isSuspended() && !resumeSession(sessionToken, null)) {
+            throw new RemoteException("Session expired.");
+        }
+        session.touch();
+
+        EventBatch batch;
+        try {
+            batch = session.getEventRing().poll(lastSeq, Math.min(maxWaitMs, GameConstants.POLL_MAX_WAIT_MS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Poll interrupted.");
+        }
+        session.touch();
+
+        // Some events were overwritten: queue fresh snapshots right behind this batch
+        if (batch.isResync()) resync(session.getUsername());
+        return batch;
+    }
+
+    // Any inbound call proves the client is alive, so it doubles as a heartbeat
+    private void touch(String username) {
         sessionManager.updateHeartbeat(username);
     }
 
     @Override
         public void leaveRoom(String username, String roomId) throws RemoteException {
+            touch(username);
             Room room = roomManager.getRoom(roomId);
             if (room != null) {
                 // Logic to remove player
                 if (username.equals(room.getGuestUsername())) {
-                    room.setGuestUsername(null);
-                    room.setGameStarted(false); // Stop game if guest leaves
-                    
-                    // Notify Host that guest left
-                    ClientCallback hostCallback = sessionManager.getCallback(room.getHostUsername());
-                    if (hostCallback != null) hostCallback.onRoomInfoUpdate(room);
+                    releaseGuest(room);
                 } 
                 else if (username.equals(room.getHostUsername())) {
                     // Logic for Host leaving (See Bug 2 below)
-                    closeRoom(room); // We need a helper for this
-                    return; // closeRoom handles broadcast
+                    closeRoom(room, "Host closed the room.");
                 }
             }
-            
-            // IMPORTANT: Broadcast the change to everyone (including the person who left)
-            broadcastLobbyUpdate();
         }
 
+    // The guest left or lost their session; the host keeps the room. Also used by HeartbeatMonitor.
+    public void releaseGuest(Room room) {
+        roomManager.removeGuest(room);
+        room.setGameStarted(false); // Stop game if guest leaves
+        finishRecord(room, GameRecord.ABANDONED);
+        roomManager.changed(room);
+        
+        // Notify Host that guest left
+        notifyRoomUpdate(room);
+
+        // IMPORTANT: Broadcast the change to everyone (including the person who left)
+        broadcastLobbyChange(room);
+    }
+
     @Override
     public void kickPlayer(String hostUsername, String roomId, String playerToKick) throws RemoteException {
+        touch(hostUsername);
         Room room = roomManager.getRoom(roomId);
         if (room == null) return;
         
@@ -223,152 +493,235 @@ public class GameServiceImpl extends UnicastRemoteObject implements GameService
         
         // Case A: Kicking a Bot
         if (playerToKick.equals("BOT") && room.isBotMode()) {
-            room.setGuestUsername(null);
+            roomManager.removeGuest(room);
             room.setBotMode(false);
+            roomManager.changed(room);
             
             // Notify Host
-            ClientCallback host = sessionManager.getCallback(hostUsername);
-            if (host != null) host.onRoomInfoUpdate(room);
+            notifyRoomUpdate(room);
             
-            broadcastLobbyUpdate();
+            broadcastLobbyChange(room);
             return;
         }
         
         // Case B: Kicking a Human
-        ClientCallback guest = sessionManager.getCallback(playerToKick);
-        
         // 1. Remove from room
-        room.setGuestUsername(null);
+        roomManager.removeGuest(room);
         room.setGameStarted(false);
         room.resetMatch(); // Reset scores if kicked
+        finishRecord(room, GameRecord.ABANDONED);
+        roomManager.changed(room);
         
         // 2. Notify Guest (You are kicked!)
-        if (guest != null) {
-            try {
-                guest.onKicked("You have been kicked by the host.");
-            } catch (RemoteException e) {
-                // ignore
-            }
-        }
+        eventBus.sendTo(playerToKick, ClientEvent.kicked("You have been kicked by the host."), EventBus.Priority.NORMAL);
         
         // 3. Notify Host (Room is empty now)
-        ClientCallback host = sessionManager.getCallback(hostUsername);
-        if (host != null) host.onRoomInfoUpdate(room);
+        notifyRoomUpdate(room);
         
         // 4. Update Lobby
-        broadcastLobbyUpdate();
+        broadcastLobbyChange(room);
     }
     
     @Override
     public void addBot(String hostUsername, String roomId) throws RemoteException {
+        touch(hostUsername);
         Room room = roomManager.getRoom(roomId);
         if (room != null && room.getHostUsername().equals(hostUsername)) {
-            if (room.getGuestUsername() == null) {
-                room.setGuestUsername("BOT");
+            if (roomManager.assignGuest(room, "BOT")) {
                 room.setBotMode(true);
+                roomManager.changed(room);
                 
                 // Notify Host that "BOT" joined
-                ClientCallback hostCallback = sessionManager.getCallback(hostUsername);
-                if (hostCallback != null) hostCallback.onRoomInfoUpdate(room);
+                notifyRoomUpdate(room);
                 
-                broadcastLobbyUpdate();
+                broadcastLobbyChange(room);
             }
         }
     }
     
     @Override
     public void startGame(String username, String roomId) throws RemoteException {
+        touch(username);
+        applyStartGame(username, roomId);
+    }
+
+    private CommandResult applyStartGame(String username, String roomId) {
         Room room = roomManager.getRoom(roomId);
-        if (room == null || !room.getHostUsername().equals(username)) return;
+        if (room == null) return CommandResult.rejected("No such room");
+        if (!room.getHostUsername().equals(username)) return CommandResult.rejected("Only the host can start");
         
         // Initialize Game
         room.setGameStarted(true);
         GameState state = new GameState(room.getSettings().getBoardSize(), room.getHostUsername());
-        room.setGameState(state);
+        room.startNewBoard(state);
+        beginRecord(room);
 
         startTurnTimer(room);
+        roomManager.changed(room);
         
         // Notify change (this switches UI to Game Panel)
         notifyRoomUpdate(room); 
+        spectatorManager.publishRoundStart(room);
         
         // Broadcast initial empty board
         broadcastGameState(room);
+        return CommandResult.ok();
     }
 
     @Override
     public void placeMove(String username, String roomId, int row, int col) throws RemoteException {
+        touch(username);
+        applyMove(username, roomId, row, col);
+    }
+
+    @Override
+    public MoveAck placeMove(String username, String roomId, int row, int col, long clientSeq, long expectedVersion)
+            throws RemoteException {
+        touch(username);
+        if (clientSeq <= 0) return new MoveAck(MoveAck.Code.INVALID, clientSeq, -1);
+        Room room = roomManager.getRoom(roomId);
+        if (room == null) return new MoveAck(MoveAck.Code.NO_GAME, clientSeq, -1);
+        if (!username.equals(room.getHostUsername()) && !username.equals(room.getGuestUsername())) {
+            return new MoveAck(MoveAck.Code.NO_GAME, clientSeq, -1);
+        }
+        // The room lock makes check-and-apply atomic, so a retry racing its original sees it applied
+        synchronized (room) {
+            long version = room.getGameState().getVersion();
+            long lastSeq = room.getLastMoveSeq(username);
+            if (clientSeq == lastSeq) return new MoveAck(MoveAck.Code.DUPLICATE, clientSeq, version);
+            if (clientSeq < lastSeq) return new MoveAck(MoveAck.Code.INVALID, lastSeq, version);
+            if (expectedVersion >= 0 && expectedVersion != version) {
+                return new MoveAck(MoveAck.Code.STALE_VERSION, clientSeq, version);
+            }
+
+            MoveAck.Code code = applyMove(username, roomId, row, col, clientSeq);
+            return new MoveAck(code, clientSeq, room.getGameState().getVersion());
+        }
+    }
+
+    // Shared by both placeMove forms, submitBatch and the bot, which calls it directly
+    private MoveAck.Code applyMove(String username, String roomId, int row, int col) {
+        return applyMove(username, roomId, row, col, 0);
+    }
+
+    // A clientSeq > 0 is recorded with the move, under the same lock
+    private MoveAck.Code applyMove(String username, String roomId, int row, int col, long clientSeq) {
         Room room = roomManager.getRoom(roomId);
-        if (room == null || !room.isGameStarted()) return;
+        if (room == null) return MoveAck.Code.NO_GAME;
+
+        synchronized (room) {
+            if (!room.isGameStarted()) return MoveAck.Code.NO_GAME;
         
-        GameState state = room.getGameState();
+            GameState state = room.getGameState();
         
-        // Validation
-        if (!state.getCurrentTurnUsername().equals(username)) return;
-        if (state.getBoard()[row][col] != GameConstants.CELL_EMPTY) return;
+            // Validation
+            if (!username.equals(state.getCurrentTurnUsername())) return MoveAck.Code.NOT_YOUR_TURN;
+            int size = state.getBoard().length;
+            if (row < 0 || col < 0 || row >= size || col >= size) return MoveAck.Code.INVALID;
+            if (state.getBoard()[row][col] != GameConstants.CELL_EMPTY) return MoveAck.Code.CELL_TAKEN;
 
-        ScheduledFuture<?> timer = roomTimers.get(roomId);
-        if (timer != null) timer.cancel(false);
+            Timeout timer = roomTimers.get(roomId);
+            if (timer != null) timer.cancel();
         
-        // Execute Move
-        int playerVal = username.equals(room.getHostUsername()) ? GameConstants.CELL_X : GameConstants.CELL_O;
-        state.getBoard()[row][col] = playerVal;
-        broadcastGameState(room);
+            // Execute Move
+            int playerVal = username.equals(room.getHostUsername()) ? GameConstants.CELL_X : GameConstants.CELL_O;
+            state.getBoard()[row][col] = playerVal;
+            state.bumpVersion();
+            GameRecord record = roomRecords.get(roomId);
+            if (record != null) {
+                record.addMove(row, col, playerVal == GameConstants.CELL_X ? GameRecord.SIDE_HOST : GameRecord.SIDE_GUEST);
+            }
+            broadcastGameState(room);
+            String nextPlayer = username.equals(room.getHostUsername()) ? room.getGuestUsername() : room.getHostUsername();
+            spectatorManager.publishMove(room, row, col, playerVal, nextPlayer);
         
-        // Check Win
-        if (GameRules.checkWin(state.getBoard(), row, col, playerVal)) {
-            if (username.equals(room.getHostUsername())) {
-                room.setHostScore(room.getHostScore() + 1);
+            // Check Win
+            if (GameRules.checkWin(state.getBoard(), row, col, playerVal)) {
+                if (username.equals(room.getHostUsername())) {
+                    room.setHostScore(room.getHostScore() + 1);
+                } else {
+                    room.setGuestScore(room.getGuestScore() + 1);
+                }
+                roomTimers.remove(roomId);
+                room.setTurnDeadline(0);
+            
+                handleRoundEnd(room, username);
+            } else if (GameRules.isFull(state.getBoard())) {
+                roomTimers.remove(roomId);
+                room.setTurnDeadline(0);
+                handleRoundEnd(room, "DRAW");
             } else {
-                room.setGuestScore(room.getGuestScore() + 1);
+                // Next Turn
+                state.setCurrentTurnUsername(nextPlayer);
+                startTurnTimer(room);
+                broadcastGameState(room);
+
+                if (room.isBotMode() && nextPlayer.equals("BOT")) {
+                    triggerBotMove(room);
+                }
             }
-            roomTimers.remove(roomId);
-            
-            handleRoundEnd(room, username);
-        } else if (GameRules.isFull(state.getBoard())) {
-            roomTimers.remove(roomId);
-            handleRoundEnd(room, "DRAW");
-        } else {
-            // Next Turn
-            String nextPlayer = username.equals(room.getHostUsername()) ? room.getGuestUsername() : room.getHostUsername();
-            state.setCurrentTurnUsername(nextPlayer);
-            startTurnTimer(room);
-            broadcastGameState(room);
+            if (clientSeq > 0) room.setLastMoveSeq(username, clientSeq);
+            roomManager.changed(room);
+            return MoveAck.Code.APPLIED;
+        }
+    }
 
-            if (room.isBotMode() && nextPlayer.equals("BOT")) {
-                triggerBotMove(room);
+    @Override
+    public List<CommandResult> submitBatch(List<Command> commands) throws RemoteException {
+        if (commands.size() > GameConstants.MAX_BATCH_SIZE) {
+            throw new RemoteException("Batch too large: " + commands.size() + " > " + GameConstants.MAX_BATCH_SIZE);
+        }
+        List<CommandResult> results = new ArrayList<>(commands.size());
+        Set<String> touched = new HashSet<>();
+        for (Command command : commands) {
+            if (command.getUsername() != null && touched.add(command.getUsername())) touch(command.getUsername());
+            try {
+                results.add(apply(command));
+            } catch (RuntimeException | RemoteException e) {
+                System.err.println("Batch command " + command + " failed: " + e.getMessage());
+                results.add(CommandResult.failed(e.getMessage()));
             }
         }
+        return results;
+    }
+
+    private static CommandResult toResult(MoveAck.Code code) {
+        return code == MoveAck.Code.APPLIED ? CommandResult.ok() : CommandResult.rejected(code.toString());
+    }
+
+    private CommandResult apply(Command command) throws RemoteException {
+        if (command.getUsername() == null || command.getRoomId() == null) return CommandResult.rejected("Missing user or room");
+        switch (command.getType()) {
+            case PLACE_MOVE: return toResult(applyMove(command.getUsername(), command.getRoomId(), command.getRow(), command.getCol()));
+            case SEND_CHAT: return applyChat(command.getUsername(), command.getRoomId(), command.getText());
+            case START_GAME: return applyStartGame(command.getUsername(), command.getRoomId());
+            case LEAVE_ROOM:
+                leaveRoom(command.getUsername(), command.getRoomId());
+                return CommandResult.ok();
+            default: return CommandResult.rejected("Unknown command " + command.getType());
+        }
     }
     
-    // Helper to send "onRoomInfoUpdate" to both players
+    // Helper to send "onRoomInfoUpdate" to both players (the room topic holds whoever is seated).
+    // These only notify: a change made outside RoomManager ends in one roomManager.changed
+    // call of its own, so a move is journaled once however many events it sends.
     private void notifyRoomUpdate(Room room) {
-        try {
-            ClientCallback host = sessionManager.getCallback(room.getHostUsername());
-            ClientCallback guest = sessionManager.getCallback(room.getGuestUsername());
-            if (host != null) host.onRoomInfoUpdate(room);
-            if (guest != null) guest.onRoomInfoUpdate(room);
-        } catch (RemoteException e) { e.printStackTrace(); }
+        eventBus.publish(EventBus.roomTopic(room.getId()), ClientEvent.roomInfo(room), EventBus.Priority.NORMAL);
     }
 
+    // Moves go out ahead of lobby and spectator traffic
     private void broadcastGameState(Room room) {
-        try {
-            ClientCallback host = sessionManager.getCallback(room.getHostUsername());
-            ClientCallback guest = sessionManager.getCallback(room.getGuestUsername());
-            if (host != null) host.onGameStateUpdate(room.getGameState());
-            if (guest != null) guest.onGameStateUpdate(room.getGameState());
-        } catch (RemoteException e) { e.printStackTrace(); }
+        eventBus.publish(EventBus.roomTopic(room.getId()), ClientEvent.gameState(room.getGameState()), EventBus.Priority.HIGH);
     }
     
     private void notifyGameEnded(Room room, String winner) {
-        try {
-            ClientCallback host = sessionManager.getCallback(room.getHostUsername());
-            ClientCallback guest = sessionManager.getCallback(room.getGuestUsername());
-            if (host != null) host.onGameEnded(winner);
-            if (guest != null) guest.onGameEnded(winner);
-        } catch (RemoteException e) { e.printStackTrace(); }
+        eventBus.publish(EventBus.roomTopic(room.getId()), ClientEvent.gameEnded(winner), EventBus.Priority.NORMAL);
     }
 
     private void handleRoundEnd(Room room, String roundWinner) {
+        long gameId = finishRecord(room, "DRAW".equals(roundWinner) ? GameRecord.DRAW
+                : roundWinner.equals(room.getHostUsername()) ? GameRecord.HOST_WIN : GameRecord.GUEST_WIN);
+        if (gameId >= 0) notifyRoom(room, new ChatMessage("Server", "Replay of this round: #" + gameId));
         int totalRounds = room.getSettings().getTotalRounds();
         String msg;
         
@@ -384,106 +737,160 @@ public class GameServiceImpl extends UnicastRemoteObject implements GameService
             else matchWinner = "DRAW";
             
             msg = "MATCH OVER! Final Winner: " + matchWinner + "\nReturning to lobby in 5 seconds...";
+            rateMatch(room, matchWinner);
         }
         notifyGameEnded(room, msg); 
+        spectatorManager.publishGameEnded(room, msg);
 
-        gameScheduler.schedule(() -> {
-            try {
-                // Re-fetch room to ensure it still exists and hasn't been closed
-                Room currentRoom = roomManager.getRoom(room.getId());
-                if (currentRoom == null) return;
-
-                if (currentRoom.getCurrentRound() < totalRounds) {
-                    
-                    // 1. Increment Round
-                    currentRoom.setCurrentRound(currentRoom.getCurrentRound() + 1);
-                    
-                    // 2. Reset Board
-                    // Logic: Round 1=Host starts, Round 2=Guest starts, etc.
-                    String startPlayer = (currentRoom.getCurrentRound() % 2 == 1) 
-                                         ? currentRoom.getHostUsername() 
-                                         : currentRoom.getGuestUsername();
-                                         
-                    GameState newState = new GameState(currentRoom.getSettings().getBoardSize(), startPlayer);
-                    currentRoom.setGameState(newState);
-
-                    // 3. Update Room Info (Updates "Round 2/5" label)
-                    notifyRoomUpdate(currentRoom); 
-                    
-                    // 4. Update Board (Clears the pieces)
-                    broadcastGameState(currentRoom); 
-                    
-                    // 5. Start Timer
-                    startTurnTimer(currentRoom);
-                    
-                    // 6. If Bot is starting next round, trigger it
-                    if (currentRoom.isBotMode() && startPlayer.equals("BOT")) {
-                        triggerBotMove(currentRoom);
-                    }
-                    
-                } else {
-                    // --- END MATCH ---
-                    
-                    // 1. Clear Timers
-                    roomTimers.remove(currentRoom.getId());
-                    
-                    // 2. Reset Room Data
-                    currentRoom.resetMatch(); // Sets isGameStarted = false, scores = 0
-                    
-                    // 3. Update UI (This switches the View back to Room Setup/Lobby)
-                    notifyRoomUpdate(currentRoom); 
+        timerManager.schedule(() -> advanceMatch(room.getId()), ROUND_BREAK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Runs after the break that follows a round: next round, or back to the room setup
+    private void advanceMatch(String roomId) {
+        try {
+            // Re-fetch room to ensure it still exists and hasn't been closed
+            Room currentRoom = roomManager.getRoom(roomId);
+            if (currentRoom == null) return;
+
+            if (currentRoom.getCurrentRound() < currentRoom.getSettings().getTotalRounds()) {
+                
+                // 1. Increment Round
+                currentRoom.setCurrentRound(currentRoom.getCurrentRound() + 1);
+                
+                // 2. Reset Board
+                // Logic: Round 1=Host starts, Round 2=Guest starts, etc.
+                String startPlayer = (currentRoom.getCurrentRound() % 2 == 1) 
+                                     ? currentRoom.getHostUsername() 
+                                     : currentRoom.getGuestUsername();
+                                     
+                GameState newState = new GameState(currentRoom.getSettings().getBoardSize(), startPlayer);
+                currentRoom.startNewBoard(newState);
+                beginRecord(currentRoom);
+
+                // 3. Update Room Info (Updates "Round 2/5" label)
+                notifyRoomUpdate(currentRoom); 
+                
+                // 4. Update Board (Clears the pieces)
+                broadcastGameState(currentRoom); 
+                spectatorManager.publishRoundStart(currentRoom);
+                
+                // 5. Start Timer
+                startTurnTimer(currentRoom);
+                
+                // 6. If Bot is starting next round, trigger it
+                if (currentRoom.isBotMode() && startPlayer.equals("BOT")) {
+                    triggerBotMove(currentRoom);
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+                
+            } else {
+                // --- END MATCH ---
+                
+                // 1. Clear Timers
+                roomTimers.remove(currentRoom.getId());
+                
+                // 2. Reset Room Data
+                currentRoom.resetMatch(); // Sets isGameStarted = false, scores = 0
+                
+                // 3. Update UI (This switches the View back to Room Setup/Lobby)
+                notifyRoomUpdate(currentRoom); 
             }
-        }, 5, TimeUnit.SECONDS);
+            roomManager.changed(currentRoom);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Only matches between two accounts change ratings; the result is announced in the room
+    private void rateMatch(Room room, String matchWinner) {
+        if (room.isBotMode()) return;
+        String host = room.getHostUsername();
+        double hostScore = "DRAW".equals(matchWinner) ? 0.5 : matchWinner.equals(host) ? 1 : 0;
+        ratingManager.recordMatch(host, room.getGuestUsername(), hostScore).thenAccept(update -> {
+            if (update != null && roomManager.getRoom(room.getId()) == room) {
+                notifyRoom(room, new ChatMessage("Server", update.describe()));
+            }
+        });
+    }
+
+    // A new game (first or next round) starts recording; one left unfinished is kept as abandoned
+    private void beginRecord(Room room) {
+        GameRecord record = new GameRecord(room.getHostUsername(), room.getGuestUsername(),
+                room.getSettings().getBoardSize(), room.getCurrentRound());
+        GameRecord previous = roomRecords.put(room.getId(), record);
+        if (previous != null) journal.finish(previous, GameRecord.ABANDONED);
+    }
+
+    // Returns the game id, or -1 if nothing was recorded
+    private long finishRecord(Room room, int result) {
+        synchronized (room) { // Not while a move is being appended
+            GameRecord record = roomRecords.remove(room.getId());
+            return record == null ? -1 : journal.finish(record, result);
+        }
     }
 
-    private void handleTimeout(String roomId, String expectedPlayer) {
+    // 'state' and 'version' are the board as it was when the timer was set
+    private void handleTimeout(String roomId, GameState state, long version) {
         try {
             Room room = roomManager.getRoom(roomId);
-            if (room == null || !room.isGameStarted()) return;
-            
-            // Check race condition
-            if (!room.getGameState().getCurrentTurnUsername().equals(expectedPlayer)) return;
-            
-            System.out.println("Timeout! Skipping " + expectedPlayer);
-            
-            // Switch Turn
-            String nextPlayer = expectedPlayer.equals(room.getHostUsername()) ? room.getGuestUsername() : room.getHostUsername();
-            room.getGameState().setCurrentTurnUsername(nextPlayer);
-            
-            // Notify clients
-            broadcastGameState(room);
-            
-            // Loop: Start timer for next guy
-            startTurnTimer(room);
+            if (room == null) return;
 
-            if (room.isBotMode() && nextPlayer.equals("BOT")) {
-                triggerBotMove(room);
+            // Same lock as moves, so a move landing right at the deadline is not skipped
+            synchronized (room) {
+                if (!room.isGameStarted()) return;
+
+                // Check race condition: a move (or new round) since the timer was set means
+                // this timeout already fired too late to be cancelled
+                if (room.getGameState() != state || state.getVersion() != version) return;
+                String expectedPlayer = state.getCurrentTurnUsername();
+
+                System.out.println("Timeout! Skipping " + expectedPlayer);
+
+                // Switch Turn
+                String nextPlayer = expectedPlayer.equals(room.getHostUsername()) ? room.getGuestUsername() : room.getHostUsername();
+                room.getGameState().setCurrentTurnUsername(nextPlayer);
+                room.getGameState().bumpVersion();
+
+                // Notify clients
+                broadcastGameState(room);
+                spectatorManager.publishTurn(room, nextPlayer);
+
+                // Loop: Start timer for next guy
+                startTurnTimer(room);
+
+                if (room.isBotMode() && nextPlayer.equals("BOT")) {
+                    triggerBotMove(room);
+                }
+                roomManager.changed(room);
             }
             
         } catch (Exception e) { e.printStackTrace(); }
     }
 
     private void startTurnTimer(Room room) {
-        // Cancel old
-        ScheduledFuture<?> existing = roomTimers.get(room.getId());
-        if (existing != null && !existing.isDone()) existing.cancel(false);
-        
         int limit = room.getSettings().getTimePerTurnSeconds();
         if (limit <= 0) limit = 10;
+        startTurnTimer(room, TimeUnit.SECONDS.toMillis(limit));
+    }
+
+    // Also resumes a turn part-way through after a restart
+    private void startTurnTimer(Room room, long delayMs) {
+        // Cancel old
+        Timeout existing = roomTimers.get(room.getId());
+        if (existing != null) existing.cancel();
         
         // Schedule Task
-        Runnable task = () -> handleTimeout(room.getId(), room.getGameState().getCurrentTurnUsername());
-        ScheduledFuture<?> future = gameScheduler.schedule(task, limit, TimeUnit.SECONDS);
+        GameState state = room.getGameState();
+        long version = state.getVersion();
+        Runnable task = () -> handleTimeout(room.getId(), state, version);
+        Timeout timeout = timerManager.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        room.setTurnDeadline(System.currentTimeMillis() + delayMs);
         
-        roomTimers.put(room.getId(), future);
+        roomTimers.put(room.getId(), timeout);
     }
 
     private void triggerBotMove(Room room) {
-        // Run in separate thread to simulate "thinking" and avoid blocking RMI
-        gameScheduler.schedule(() -> {
+        // Run on a timer worker to simulate "thinking" and avoid blocking RMI
+        timerManager.schedule(() -> {
             try {
                 int[][] board = room.getGameState().getBoard();
                 
@@ -495,9 +902,10 @@ public class GameServiceImpl extends UnicastRemoteObject implements GameService
                 
                 System.out.println("Bot moving to: " + move[0] + ", " + move[1]);
                 
-                // Recursively call placeMove for the Bot
+                // Apply directly; the bot has no session, so skip the public entry point
                 // Note: username must match what the state expects ("BOT")
-                placeMove("BOT", room.getId(), move[0], move[1]);
+                MoveAck.Code result = applyMove("BOT", room.getId(), move[0], move[1]);
+                if (result != MoveAck.Code.APPLIED) System.err.println("Bot move rejected: " + result);
                 
             } catch (Exception e) {
                 e.printStackTrace();
@@ -516,12 +924,47 @@ public class GameServiceImpl extends UnicastRemoteObject implements GameService
         return roomManager.getAllRooms();
     }
 
+    @Override
+    public Replay getReplay(long gameId, int fromMove, int count) throws RemoteException {
+        Replay replay;
+        try {
+            replay = replayStore.read(gameId, fromMove, count);
+        } catch (IOException e) {
+            System.err.println("Replay #" + gameId + " unreadable: " + e.getMessage());
+            throw new RemoteException("Replay unavailable.");
+        }
+        if (replay == null) throw new RemoteException("No replay #" + gameId + ".");
+        return replay;
+    }
+
+    @Override
+    public List<LeaderboardEntry> getTopPlayers(int count) throws RemoteException {
+        return ratingManager.getTopPlayers(count);
+    }
+
+    @Override
+    public List<LeaderboardEntry> getPlayersAround(String username, int radius) throws RemoteException {
+        if (username == null) throw new RemoteException("Username is required.");
+        return ratingManager.getPlayersAround(username, radius);
+    }
+
+    @Override
+    public LeaderboardEntry getRanking(String username) throws RemoteException {
+        if (username == null) throw new RemoteException("Username is required.");
+        return ratingManager.getRanking(username);
+    }
+
+    @Override
+    public RoomPage queryRooms(RoomQuery query) throws RemoteException {
+        if (query == null) throw new RemoteException("Query is required.");
+        return roomManager.queryRooms(query);
+    }
+
 
     public void broadcastUserList() {
         // Get all usernames from SessionManager
-        // You might need to add a public method to SessionManager to get this Set/List
         List<String> users = sessionManager.getActiveUsers(); 
         
-        SessionManager.getInstance().broadcastToAllUsers(users);
+        eventBus.publish(EventBus.USERS, ClientEvent.users(users), EventBus.Priority.LOW);
     }
 }
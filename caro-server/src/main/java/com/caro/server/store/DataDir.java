@@ -0,0 +1,15 @@
+package com.caro.server.store;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Root for everything the server writes to disk (-Dcaro.data.dir=..., default ./data)
+public class DataDir {
+    private static final Path ROOT = Paths.get(System.getProperty("caro.data.dir", "data"));
+
+    private DataDir() {}
+
+    public static Path resolve(String name) {
+        return ROOT.resolve(name);
+    }
+}
@@ -0,0 +1,100 @@
+package com.caro.server.store;
+
+import com.caro.common.codec.SpectateCodec;
+import com.caro.common.model.GameSettings;
+import com.caro.common.model.GameState;
+import com.caro.common.model.Room;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Full image of a room for RoomStore: seats, settings, scores, board and the time left
+ * on the running turn. Chat history is not kept, nor the per-seat move sequence numbers:
+ * those belong to the client process that was playing, which a restart does not bring
+ * back. Typically 100-150 bytes for a 15x15 board. Callers hold the room lock while encoding.
+ */
+public class RoomCodec {
+    // 2: no per-seat move sequence numbers
+    private static final int VERSION = 2;
+
+    private RoomCodec() {}
+
+    public static byte[] encode(Room room) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(160);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(room.getId());
+            out.writeUTF(room.getName());
+            out.writeUTF(room.getHostUsername());
+            SpectateCodec.writeNullable(out, room.getGuestUsername());
+            out.writeBoolean(room.isBotMode());
+            GameSettings settings = room.getSettings();
+            out.writeShort(settings.getBoardSize());
+            out.writeShort(settings.getTotalRounds());
+            out.writeShort(settings.getTimePerTurnSeconds());
+            out.writeBoolean(room.isGameStarted());
+            out.writeShort(room.getCurrentRound());
+            out.writeShort(room.getHostScore());
+            out.writeShort(room.getGuestScore());
+
+            GameState state = room.getGameState();
+            SpectateCodec.writeNullable(out, state.getCurrentTurnUsername());
+            SpectateCodec.writeNullable(out, state.getWinnerUsername());
+            out.writeBoolean(state.isDraw());
+            out.writeLong(state.getVersion());
+            SpectateCodec.writeBoard(out, state.getBoard());
+            // Time left rather than the deadline, so the turn resumes where it was after a restart
+            long deadline = room.getTurnDeadline();
+            out.writeInt(deadline == 0 || !room.isGameStarted() ? -1 : (int) Math.max(0, deadline - System.currentTimeMillis()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // The room with its turn deadline set as if the clock restarted now
+    public static Room decode(byte[] image) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(image))) {
+            int version = in.readByte();
+            if (version != 1 && version != VERSION) throw new IOException("Unknown room image version " + version);
+            String id = in.readUTF();
+            String name = in.readUTF();
+            String host = in.readUTF();
+            String guest = SpectateCodec.readNullable(in);
+            boolean botMode = in.readBoolean();
+            GameSettings settings = new GameSettings(in.readShort(), in.readShort(), in.readShort());
+
+            Room room = new Room(id, name, host, settings);
+            room.setGuestUsername(guest);
+            room.setBotMode(botMode);
+            room.setGameStarted(in.readBoolean());
+            room.setCurrentRound(in.readShort());
+            room.setHostScore(in.readShort());
+            room.setGuestScore(in.readShort());
+            if (version == 1) in.skipBytes(2 * Long.BYTES); // Move sequence numbers, no longer restored
+
+            String turn = SpectateCodec.readNullable(in);
+            String winner = SpectateCodec.readNullable(in);
+            boolean draw = in.readBoolean();
+            long stateVersion = in.readLong();
+            int[][] board = SpectateCodec.readBoard(in);
+            GameState state = new GameState(board.length, turn);
+            for (int r = 0; r < board.length; r++) System.arraycopy(board[r], 0, state.getBoard()[r], 0, board.length);
+            state.setWinnerUsername(winner);
+            state.setDraw(draw);
+            state.setVersion(stateVersion);
+            room.setGameState(state);
+
+            int remaining = in.readInt();
+            room.setTurnDeadline(remaining < 0 ? 0 : System.currentTimeMillis() + remaining);
+            return room;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
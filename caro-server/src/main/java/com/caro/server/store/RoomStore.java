@@ -0,0 +1,495 @@
+package com.caro.server.store;
+
+import com.caro.common.model.Room;
+import com.caro.common.util.LatencyHistogram;
+import com.caro.server.manager.RoomManager;
+import com.caro.server.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the active rooms on disk so a restarted server picks up where it crashed.
+ *
+ * Every room change (see RoomManager.ChangeListener) is turned into a full image of the
+ * room (RoomCodec) under the room lock and queued. One writer thread takes whatever has
+ * queued up, keeps only the newest image per room, appends them to the write-ahead log
+ * with one write and fsyncs once per batch: a burst of moves across thousands of rooms
+ * costs one sync. Game threads never wait for the disk, so a crash loses every change
+ * not yet synced: the batch being written and everything still queued behind it. A
+ * change dropped because the queue was full is lost until the next snapshot writes
+ * that room again.
+ *
+ * Every SNAPSHOT_SECONDS, or once the log passes SNAPSHOT_WAL_BYTES, the writer starts
+ * a new log generation, writes every active room to a snapshot of that generation and
+ * deletes the older files. Recovery is the newest snapshot plus the logs of its
+ * generation and later, all read in parallel and merged by sequence number, then the
+ * images are decoded in parallel.
+ *
+ * Every image and removal carries a sequence number taken under the room lock, so the
+ * newest one wins however the snapshot and the log interleave. A snapshot also records
+ * the sequence number at which it started; log entries older than that are already in
+ * it (or their room was closed before it).
+ *
+ * Log: [int WAL_MAGIC][int VERSION] then frames. Snapshot: [int SNAPSHOT_MAGIC][int
+ * VERSION][long start seq][int room count] then frames. Frame: [int payload length][int
+ * CRC32 of payload][payload]; payload: long seq, room id (short length and UTF-8), then
+ * the room image, or nothing if the room was closed.
+ */
+public class RoomStore {
+    private static RoomStore instance;
+
+    private static final int WAL_MAGIC = 0x43525257; // "CRRW"
+    private static final int SNAPSHOT_MAGIC = 0x43525253; // "CRRS"
+    private static final int VERSION = 1;
+    private static final int FRAME_HEADER = 8;
+
+    // Config: Snapshot this often, or sooner once the log grows past SNAPSHOT_WAL_BYTES
+    private static final int SNAPSHOT_SECONDS = 60;
+    private static final long SNAPSHOT_WAL_BYTES = 32L << 20;
+    // Config: Changes waiting for the writer; when full the next snapshot covers the rest
+    private static final int QUEUE_CAPACITY = 65_536;
+    // Config: Most changes written (and synced) together
+    private static final int MAX_BATCH = 4096;
+    // Config: Startup reading more than this is logged as a warning; the log is kept short
+    // enough (SNAPSHOT_WAL_BYTES) that 10k rooms stay well under it
+    private static final long RECOVERY_BUDGET_MS = 2000;
+    // Config: Threads that read and decode at startup
+    private static final int RECOVERY_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final Path dir = DataDir.resolve("rooms");
+    private final BlockingQueue<Change> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong nextSeq = new AtomicLong(1);
+    // Set when a change could not be queued: the log alone is no longer complete
+    private volatile boolean snapshotNeeded;
+    private RoomManager roomManager;
+
+    // Writer thread only
+    private FileChannel wal;
+    private int generation;
+    private long walSize;
+    private long lastSnapshot;
+
+    private final LongAdder changesWritten;
+    private final LongAdder changesCoalesced;
+    private final LongAdder overflows;
+    private final LongAdder bytesWritten;
+    private final LatencyHistogram flushLatency;
+    private final LatencyHistogram batchSize;
+    private final LatencyHistogram snapshotTimes;
+    private volatile long recoveryMillis;
+
+    // A room image, or a removal (image == null)
+    private static class Change {
+        final long seq;
+        final String roomId;
+        final byte[] image;
+
+        Change(long seq, String roomId, byte[] image) {
+            this.seq = seq;
+            this.roomId = roomId;
+            this.image = image;
+        }
+    }
+
+    private RoomStore() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        changesWritten = metrics.counter("rooms.wal.changes");
+        changesCoalesced = metrics.counter("rooms.wal.coalesced");
+        overflows = metrics.counter("rooms.wal.overflow");
+        bytesWritten = metrics.counter("rooms.wal.bytes");
+        flushLatency = metrics.histogram("rooms.wal.flush.latency.us", "us");
+        batchSize = metrics.histogram("rooms.wal.batch.size", "");
+        snapshotTimes = metrics.histogram("rooms.snapshot.ms", "ms");
+        metrics.gauge("rooms.wal.queue", queue::size);
+        metrics.gauge("rooms.recoveryMs", () -> recoveryMillis);
+    }
+
+    public static synchronized RoomStore getInstance() {
+        if (instance == null) instance = new RoomStore();
+        return instance;
+    }
+
+    /**
+     * Reads the rooms that were active when the server last stopped. Call once, before
+     * start(); the rooms are not in any manager yet and their turn deadlines count from now.
+     */
+    public List<Room> recover() {
+        long start = System.nanoTime();
+        List<Room> rooms;
+        try {
+            Files.createDirectories(dir);
+            rooms = load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover rooms from " + dir, e);
+        }
+        recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("Room store: " + rooms.size() + " rooms read in " + recoveryMillis + " ms");
+        if (recoveryMillis > RECOVERY_BUDGET_MS) {
+            System.err.println("Room recovery took " + recoveryMillis + " ms, over its " + RECOVERY_BUDGET_MS + " ms budget");
+        }
+        return rooms;
+    }
+
+    // Starts journaling the manager's rooms; the first thing written is a full snapshot
+    public void start(RoomManager manager) {
+        this.roomManager = manager;
+        manager.setChangeListener(new RoomManager.ChangeListener() {
+            @Override
+            public void changed(Room room) {
+                enqueue(new Change(nextSeq.getAndIncrement(), room.getId(), RoomCodec.encode(room)));
+            }
+
+            @Override
+            public void removed(String roomId) {
+                enqueue(new Change(nextSeq.getAndIncrement(), roomId, null));
+            }
+        });
+        Thread writer = new Thread(this::runWriter, "room-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Runs under the room lock, so it must never block
+    private void enqueue(Change change) {
+        if (!queue.offer(change)) {
+            overflows.increment();
+            snapshotNeeded = true;
+        }
+    }
+
+    private void runWriter() {
+        List<Change> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            snapshot();
+        } catch (IOException e) {
+            System.err.println("Room snapshot failed: " + e.getMessage());
+        }
+        while (true) {
+            try {
+                Change first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    write(batch);
+                }
+                if (snapshotNeeded || walSize > SNAPSHOT_WAL_BYTES
+                        || System.currentTimeMillis() - lastSnapshot > TimeUnit.SECONDS.toMillis(SNAPSHOT_SECONDS)) {
+                    snapshot();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Room log write failed, " + batch.size() + " changes lost: " + e.getMessage());
+                // Whatever was lost is picked up by a full snapshot
+                snapshotNeeded = true;
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Change> batch) throws IOException {
+        if (wal == null) throw new IOException("No room log open");
+        long start = System.nanoTime();
+        // Newest change per room only; queue order is seq order for any one room
+        Map<String, Change> latest = new LinkedHashMap<>();
+        for (Change change : batch) latest.put(change.roomId, change);
+        changesCoalesced.add(batch.size() - latest.size());
+
+        ByteBuffer[] frames = new ByteBuffer[latest.size()];
+        long total = 0;
+        int i = 0;
+        CRC32 crc = new CRC32();
+        for (Change change : latest.values()) {
+            frames[i] = frame(change, crc);
+            total += frames[i++].remaining();
+        }
+        long written = 0;
+        while (written < total) written += wal.write(frames);
+        wal.force(false);
+        walSize += total;
+
+        changesWritten.add(frames.length);
+        bytesWritten.add(total);
+        batchSize.record(frames.length);
+        flushLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    // Writer thread only. New log generation first, then the rooms, so every change made
+    // after a room was captured lands in a log this snapshot does not replace.
+    private void snapshot() throws IOException {
+        long start = System.nanoTime();
+        snapshotNeeded = false;
+        openWal(generation + 1);
+        long startSeq = nextSeq.get();
+
+        List<Room> rooms = roomManager.getAllRooms();
+        List<ByteBuffer> frames = new ArrayList<>(rooms.size());
+        CRC32 crc = new CRC32();
+        for (Room room : rooms) {
+            Change change;
+            synchronized (room) {
+                if (roomManager.getRoom(room.getId()) != room) continue;
+                change = new Change(nextSeq.getAndIncrement(), room.getId(), RoomCodec.encode(room));
+            }
+            frames.add(frame(change, crc));
+        }
+
+        Path tmp = dir.resolve("snapshot.tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(20).putInt(SNAPSHOT_MAGIC).putInt(VERSION)
+                    .putLong(startSeq).putInt(frames.size()).flip();
+            ByteBuffer[] all = new ByteBuffer[frames.size() + 1];
+            all[0] = header;
+            for (int i = 0; i < frames.size(); i++) all[i + 1] = frames.get(i);
+            long total = 0;
+            for (ByteBuffer b : all) total += b.remaining();
+            long written = 0;
+            while (written < total) written += out.write(all);
+            out.force(true);
+        }
+        Files.move(tmp, snapshotPath(generation), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDir();
+
+        // Everything older is covered now
+        for (int number : numbers("snapshot-")) {
+            if (number < generation) Files.deleteIfExists(snapshotPath(number));
+        }
+        for (int number : numbers("wal-")) {
+            if (number < generation) Files.deleteIfExists(walPath(number));
+        }
+        lastSnapshot = System.currentTimeMillis();
+        snapshotTimes.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void openWal(int number) throws IOException {
+        if (wal != null) wal.close();
+        wal = FileChannel.open(walPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(WAL_MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) wal.write(header);
+        wal.force(true);
+        forceDir();
+        generation = number;
+        walSize = 8;
+    }
+
+    // Makes created, renamed and deleted files themselves durable (not possible on every OS)
+    private void forceDir() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory sync is unsupported here
+        }
+    }
+
+    private static ByteBuffer frame(Change change, CRC32 crc) {
+        byte[] id = change.roomId.getBytes(StandardCharsets.UTF_8);
+        int imageLength = change.image == null ? 0 : change.image.length;
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + 8 + 2 + id.length + imageLength);
+        frame.position(FRAME_HEADER);
+        frame.putLong(change.seq).putShort((short) id.length).put(id);
+        if (change.image != null) frame.put(change.image);
+        crc.reset();
+        crc.update(frame.array(), FRAME_HEADER, frame.capacity() - FRAME_HEADER);
+        frame.putInt(0, frame.capacity() - FRAME_HEADER).putInt(4, (int) crc.getValue());
+        return frame.flip();
+    }
+
+    // --- Recovery ---
+
+    private List<Room> load() throws IOException {
+        List<Integer> snapshots = numbers("snapshot-");
+        List<Integer> wals = numbers("wal-");
+
+        // Newest snapshot that reads back whole; a damaged one falls back to the one before
+        int base = 0;
+        long startSeq = 0;
+        Map<String, Change> state = new HashMap<>();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Map<String, Change> read = new HashMap<>();
+            long seq = readSnapshot(snapshotPath(snapshots.get(i)), read);
+            if (seq >= 0) {
+                base = snapshots.get(i);
+                startSeq = seq;
+                state = read;
+                break;
+            }
+            System.err.println("Room snapshot " + snapshots.get(i) + " is damaged, skipping it");
+        }
+
+        // Logs read in parallel; merged below by sequence number, so order does not matter
+        int fromGeneration = base;
+        List<Integer> replay = wals.stream().filter(n -> n >= fromGeneration).collect(Collectors.toList());
+        List<Map<String, Change>> logs = runParallel(replay, number -> {
+            Map<String, Change> read = new HashMap<>();
+            readWal(walPath(number), read);
+            return read;
+        });
+
+        long maxSeq = startSeq;
+        for (Change change : state.values()) maxSeq = Math.max(maxSeq, change.seq);
+        for (Map<String, Change> log : logs) {
+            for (Change change : log.values()) {
+                maxSeq = Math.max(maxSeq, change.seq);
+                if (change.seq < startSeq) continue;
+                Change current = state.get(change.roomId);
+                if (current == null || current.seq < change.seq) state.put(change.roomId, change);
+            }
+        }
+        nextSeq.set(maxSeq + 1);
+        int lastGeneration = Math.max(base, wals.isEmpty() ? 0 : wals.get(wals.size() - 1));
+        generation = lastGeneration;
+
+        List<byte[]> images = state.values().stream().filter(c -> c.image != null).map(c -> c.image)
+                .collect(Collectors.toList());
+        int chunk = Math.max(1, (images.size() + RECOVERY_THREADS - 1) / RECOVERY_THREADS);
+        List<List<byte[]>> chunks = new ArrayList<>();
+        for (int i = 0; i < images.size(); i += chunk) chunks.add(images.subList(i, Math.min(images.size(), i + chunk)));
+        List<List<Room>> decoded = runParallel(chunks, part -> {
+            List<Room> rooms = new ArrayList<>(part.size());
+            for (byte[] image : part) {
+                try {
+                    rooms.add(RoomCodec.decode(image));
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping unreadable room image: " + e.getMessage());
+                }
+            }
+            return rooms;
+        });
+        List<Room> rooms = new ArrayList<>(images.size());
+        for (List<Room> part : decoded) rooms.addAll(part);
+        return rooms;
+    }
+
+    private interface Task<T, R> {
+        R run(T input) throws IOException;
+    }
+
+    private static <T, R> List<R> runParallel(List<T> inputs, Task<T, R> task) throws IOException {
+        List<R> results = new ArrayList<>(inputs.size());
+        if (inputs.size() <= 1) {
+            for (T input : inputs) results.add(task.run(input));
+            return results;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(RECOVERY_THREADS, inputs.size()), r -> {
+                    Thread t = new Thread(r, "room-recovery");
+                    t.setDaemon(true);
+                    return t;
+                });
+        try {
+            List<Future<R>> futures = new ArrayList<>(inputs.size());
+            for (T input : inputs) futures.add(pool.submit(() -> task.run(input)));
+            for (Future<R> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Room recovery interrupted", e);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    // Returns the snapshot's start seq, or -1 if it is damaged or incomplete
+    private static long readSnapshot(Path path, Map<String, Change> into) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < 20) return -1;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt(0) != SNAPSHOT_MAGIC || map.getInt(4) != VERSION) return -1;
+            long startSeq = map.getLong(8);
+            int count = map.getInt(16);
+            int read = readFrames(map, 20, into);
+            return read == count ? startSeq : -1;
+        }
+    }
+
+    // A torn tail (crash mid-write) just ends the log
+    private static void readWal(Path path, Map<String, Change> into) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < 8) return;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt(0) != WAL_MAGIC || map.getInt(4) != VERSION) throw new IOException("Not a room log: " + path);
+            readFrames(map, 8, into);
+        }
+    }
+
+    // Keeps the newest change per room; returns how many intact frames there were
+    private static int readFrames(ByteBuffer map, int pos, Map<String, Change> into) {
+        CRC32 crc = new CRC32();
+        int size = map.limit();
+        int frames = 0;
+        while (pos + FRAME_HEADER <= size) {
+            int length = map.getInt(pos);
+            int checksum = map.getInt(pos + 4);
+            if (length < 10 || pos + FRAME_HEADER + (long) length > size) break;
+            ByteBuffer payload = map.duplicate().position(pos + FRAME_HEADER).limit(pos + FRAME_HEADER + length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) break;
+
+            long seq = payload.getLong();
+            byte[] id = new byte[payload.getShort() & 0xFFFF];
+            payload.get(id);
+            byte[] image = payload.hasRemaining() ? new byte[payload.remaining()] : null;
+            if (image != null) payload.get(image);
+            String roomId = new String(id, StandardCharsets.UTF_8);
+            Change current = into.get(roomId);
+            if (current == null || current.seq < seq) into.put(roomId, new Change(seq, roomId, image));
+            frames++;
+            pos += FRAME_HEADER + length;
+        }
+        return frames;
+    }
+
+    private Path walPath(int number) {
+        return dir.resolve(String.format("wal-%06d.log", number));
+    }
+
+    private Path snapshotPath(int number) {
+        return dir.resolve(String.format("snapshot-%06d.bin", number));
+    }
+
+    // File numbers with this prefix, oldest first
+    private List<Integer> numbers(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.matches(prefix + "\\d{6}\\.(log|bin)"))
+                    .map(name -> Integer.parseInt(name.substring(prefix.length(), prefix.length() + 6)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.caro.server.store;
+
+// One account as stored in the user log (one JSON line per version of the record)
+public class UserRecord {
+    private String username;
+    // Elo rating, 0 until the first rated match; right after the name so UserStore can read it cheaply
+    private int rating;
+    private int ratedGames;
+    // Base64 PBKDF2 salt and derived key
+    private String salt;
+    private String hash;
+    // Stored per record so the work factor can be raised without breaking old accounts
+    private int iterations;
+    private long createdAt;
+
+    public UserRecord() {}
+
+    public UserRecord(String username, String salt, String hash, int iterations, long createdAt) {
+        this.username = username;
+        this.salt = salt;
+        this.hash = hash;
+        this.iterations = iterations;
+        this.createdAt = createdAt;
+    }
+
+    public String getUsername() { return username; }
+    public String getSalt() { return salt; }
+    public String getHash() { return hash; }
+    public int getIterations() { return iterations; }
+    public long getCreatedAt() { return createdAt; }
+    public int getRating() { return rating; }
+    public void setRating(int rating) { this.rating = rating; }
+    public int getRatedGames() { return ratedGames; }
+    public void setRatedGames(int ratedGames) { this.ratedGames = ratedGames; }
+}
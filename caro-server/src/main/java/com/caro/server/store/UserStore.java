@@ -0,0 +1,468 @@
+package com.caro.server.store;
+
+import com.caro.common.util.LatencyHistogram;
+import com.caro.server.metrics.MetricsRegistry;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Accounts, kept in an append-only log of JSON lines (data/users.log).
+ *
+ * Only the index lives in memory: username -> where the newest version of that user's
+ * record sits in the log, packed into one long. It is rebuilt by scanning the log at
+ * startup; a torn last line (crash mid-append) is cut off. A changed record is appended
+ * again, and once superseded lines outweigh live ones the log is rewritten with only the
+ * live records and swapped in atomically.
+ *
+ * Password checks are deliberately slow (PBKDF2), so they run on a small bounded pool;
+ * when its queue is full a login is turned away as busy instead of piling up threads.
+ */
+public class UserStore {
+    private static UserStore instance;
+
+    public enum Result { OK, REGISTERED, WRONG_PASSWORD, BUSY }
+
+    private static final String LOG_FILE = "users.log";
+    // Config: PBKDF2 work factor for new accounts (stored per record)
+    private static final int HASH_ITERATIONS = 100_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    // Config: Threads for password checks; the rest of the cores stay free for games
+    private static final int HASH_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    // Config: Checks allowed to wait for a hash thread before logins are turned away
+    private static final int HASH_QUEUE = 256;
+    // Config: Compact when superseded records outnumber live ones and there are at least this many
+    private static final long COMPACT_MIN_GARBAGE = 10_000;
+    private static final int COMPACT_CHECK_SECONDS = 60;
+
+    // Index entry: offset << LENGTH_BITS | length (line without its '\n')
+    private static final int LENGTH_BITS = 20;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+
+    private final Gson gson = new Gson();
+    private final SecureRandom random = new SecureRandom();
+    private final Path path = DataDir.resolve(LOG_FILE);
+
+    // Swapped by compaction; read it while holding swapLock's read side
+    private volatile Map<String, Long> index = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    // Readers hold the read side while using channel/index so compaction can swap both
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // Serializes appends and the last step of a compaction
+    private final Object writeLock = new Object();
+    private long writePosition;
+    // Log lines that a later line for the same user replaced
+    private final AtomicLong garbage = new AtomicLong();
+
+    private final ThreadPoolExecutor hashPool;
+    private final ScheduledExecutorService compactor;
+
+    private final LatencyHistogram checkTimes;
+    private final MetricsRegistry metrics;
+
+    private UserStore() {
+        metrics = MetricsRegistry.getInstance();
+        checkTimes = metrics.histogram("users.check.latency.us", "us");
+        AtomicInteger threadId = new AtomicInteger();
+        hashPool = new ThreadPoolExecutor(HASH_THREADS, HASH_THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(HASH_QUEUE), r -> {
+                    Thread t = new Thread(r, "password-hash-" + threadId.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "user-log-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open " + path, e);
+        }
+        metrics.gauge("users.accounts", () -> index.size());
+        metrics.gauge("users.garbage", garbage::get);
+        metrics.gauge("users.hashQueue", () -> hashPool.getQueue().size());
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, COMPACT_CHECK_SECONDS, COMPACT_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized UserStore getInstance() {
+        if (instance == null) instance = new UserStore();
+        return instance;
+    }
+
+    public boolean exists(String username) {
+        return index.containsKey(username);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Checks a password on the hash pool and waits for the answer. A name without an
+     * account is registered with this password (REGISTERED). BUSY means the pool's queue
+     * was full and nothing was checked.
+     */
+    public Result authenticate(String username, String password) throws IOException {
+        long start = System.nanoTime();
+        Future<Result> check;
+        try {
+            check = hashPool.submit(() -> check(username, password));
+        } catch (RejectedExecutionException e) {
+            metrics.counter("users.busy").increment();
+            return Result.BUSY;
+        }
+        try {
+            Result result = check.get();
+            checkTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            if (result == Result.WRONG_PASSWORD) metrics.counter("users.wrongPassword").increment();
+            if (result == Result.REGISTERED) metrics.counter("users.registered").increment();
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            check.cancel(true);
+            return Result.BUSY;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Password check failed", e.getCause());
+        }
+    }
+
+    // Runs on the hash pool
+    private Result check(String username, String password) throws IOException {
+        UserRecord record = find(username);
+        if (record == null) {
+            UserRecord created = newRecord(username, password);
+            synchronized (writeLock) {
+                // Someone registered the name while we were hashing: theirs stands
+                record = find(username);
+                if (record == null) {
+                    append(created);
+                    return Result.REGISTERED;
+                }
+            }
+        }
+        byte[] salt = Base64.getDecoder().decode(record.getSalt());
+        byte[] expected = Base64.getDecoder().decode(record.getHash());
+        byte[] actual = derive(password, salt, record.getIterations());
+        return MessageDigest.isEqual(expected, actual) ? Result.OK : Result.WRONG_PASSWORD;
+    }
+
+    public UserRecord find(String username) throws IOException {
+        swapLock.readLock().lock();
+        try {
+            Long entry = index.get(username);
+            if (entry == null) return null;
+            return gson.fromJson(readLine(channel, entry), UserRecord.class);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads every account's rating (0 = unrated) in one pass over the log, oldest record
+     * first, so a consumer that keeps the last value per name ends up with the current one.
+     */
+    public void forEachRating(ObjIntConsumer<String> consumer) throws IOException {
+        long end;
+        synchronized (writeLock) {
+            end = writePosition;
+        }
+        swapLock.readLock().lock();
+        try {
+            // A compaction since 'end' was taken only makes the file shorter; scan stops at its end
+            scan(channel, 0, Math.min(end, channel.size()), null, consumer);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // Replaces an account's record, e.g. after a password change
+    public void update(UserRecord record) throws IOException {
+        synchronized (writeLock) {
+            append(record);
+        }
+    }
+
+    private UserRecord newRecord(String username, String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(password, salt, HASH_ITERATIONS);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return new UserRecord(username, base64.encodeToString(salt), base64.encodeToString(hash),
+                HASH_ITERATIONS, System.currentTimeMillis());
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // Caller holds writeLock. Synced to disk before the account becomes visible.
+    private void append(UserRecord record) throws IOException {
+        byte[] json = gson.toJson(record).getBytes(StandardCharsets.UTF_8);
+        if (json.length > LENGTH_MASK) throw new IOException("Record too large: " + record.getUsername());
+        ByteBuffer buf = ByteBuffer.allocate(json.length + 1);
+        buf.put(json).put((byte) '\n').flip();
+        long offset = writePosition;
+        while (buf.hasRemaining()) channel.write(buf, offset + buf.position());
+        channel.force(false);
+        writePosition = offset + json.length + 1;
+        if (index.put(record.getUsername(), pack(offset, json.length)) != null) garbage.incrementAndGet();
+    }
+
+    private void open() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long records = scan(channel, 0, channel.size(), index, null);
+        writePosition = lastLineEnd;
+        if (writePosition < channel.size()) {
+            System.err.println("User log: dropping torn record at byte " + writePosition);
+            channel.truncate(writePosition);
+        }
+        garbage.set(records - index.size());
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        metrics.gauge("users.recoveryMs", () -> millis);
+        System.out.println("User store: " + index.size() + " accounts (" + records + " records, "
+                + writePosition / 1024 + " KB) loaded in " + millis + " ms");
+    }
+
+    // End of the last complete line seen by the most recent scan
+    private long lastLineEnd;
+
+    /**
+     * Indexes the lines in [from, to) of a log into 'into' and returns how many there were.
+     * Only the username is parsed out of each line (and the rating, if 'ratings' is given);
+     * later lines win. An unreadable line is skipped, and bytes after the last '\n' are
+     * left out (see lastLineEnd).
+     */
+    private long scan(FileChannel source, long from, long to, Map<String, Long> into,
+                      ObjIntConsumer<String> ratings) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        byte[] line = new byte[512];
+        int length = 0;
+        long position = from;
+        long lineStart = from;
+        long records = 0;
+        while (position < to) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), to - position));
+            int n = source.read(buf, position);
+            if (n < 0) break;
+            buf.flip();
+            while (buf.hasRemaining()) {
+                byte b = buf.get();
+                position++;
+                if (b != '\n') {
+                    if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                    line[length++] = b;
+                    continue;
+                }
+                String username = usernameOf(line, length);
+                if (username == null) {
+                    System.err.println("User log: skipping unreadable record at byte " + lineStart);
+                } else {
+                    if (into != null) into.put(username, pack(lineStart, length));
+                    if (ratings != null) ratings.accept(username, ratingOf(line, length));
+                    records++;
+                }
+                lineStart = position;
+                length = 0;
+            }
+        }
+        lastLineEnd = lineStart;
+        return records;
+    }
+
+    private static final byte[] USERNAME_PREFIX = "{\"username\":\"".getBytes(StandardCharsets.UTF_8);
+
+    // Records are written with username first, so this stops after one field. Names
+    // without escapes (nearly all) are cut straight out of the bytes.
+    private static String usernameOf(byte[] line, int length) {
+        if (length > USERNAME_PREFIX.length
+                && Arrays.equals(line, 0, USERNAME_PREFIX.length, USERNAME_PREFIX, 0, USERNAME_PREFIX.length)) {
+            for (int i = USERNAME_PREFIX.length; i < length; i++) {
+                if (line[i] == '\\') break;
+                if (line[i] == '"') {
+                    return new String(line, USERNAME_PREFIX.length, i - USERNAME_PREFIX.length, StandardCharsets.UTF_8);
+                }
+            }
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(new String(line, 0, length, StandardCharsets.UTF_8)))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("username")) return reader.nextString();
+                reader.skipValue();
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final byte[] RATING_FIELD = "\",\"rating\":".getBytes(StandardCharsets.UTF_8);
+
+    // Same idea as usernameOf: the rating follows the name, so digits are read in place
+    private static int ratingOf(byte[] line, int length) {
+        boolean fast = length > USERNAME_PREFIX.length
+                && Arrays.equals(line, 0, USERNAME_PREFIX.length, USERNAME_PREFIX, 0, USERNAME_PREFIX.length);
+        int i = USERNAME_PREFIX.length;
+        while (fast && i < length && line[i] != '"' && line[i] != '\\') i++;
+        if (fast && i < length && line[i] == '"' && i + RATING_FIELD.length < length
+                && Arrays.equals(line, i, i + RATING_FIELD.length, RATING_FIELD, 0, RATING_FIELD.length)) {
+            int rating = 0;
+            int digits = 0;
+            for (int j = i + RATING_FIELD.length; j < length && line[j] >= '0' && line[j] <= '9' && digits < 9; j++, digits++) {
+                rating = rating * 10 + (line[j] - '0');
+            }
+            if (digits > 0) return rating;
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(new String(line, 0, length, StandardCharsets.UTF_8)))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("rating")) return reader.nextInt();
+                reader.skipValue();
+            }
+            return 0; // Written before ratings existed
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static String readLine(FileChannel source, long entry) throws IOException {
+        long offset = entry >>> LENGTH_BITS;
+        ByteBuffer buf = ByteBuffer.allocate((int) (entry & LENGTH_MASK));
+        while (buf.hasRemaining()) {
+            if (source.read(buf, offset + buf.position()) < 0) throw new EOFException("User log truncated at " + offset);
+        }
+        return new String(buf.array(), StandardCharsets.UTF_8);
+    }
+
+    private static long pack(long offset, int length) {
+        return offset << LENGTH_BITS | length;
+    }
+
+    private void compactIfNeeded() {
+        long stale = garbage.get();
+        if (stale < COMPACT_MIN_GARBAGE || stale <= index.size()) return;
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("User log compaction failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites the log with only the newest record per user. The bulk copy runs while
+     * logins and registrations go on; records appended meanwhile are copied over at the
+     * end under the write lock, then the new file replaces the old one in one rename.
+     */
+    void compact() throws IOException {
+        long start = System.nanoTime();
+        Path tmp = path.resolveSibling(LOG_FILE + ".compact");
+        FileChannel target = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long copiedUpTo;
+            synchronized (writeLock) {
+                copiedUpTo = writePosition;
+            }
+            // Only this thread swaps the channel, so the old one stays readable here
+            Map<String, Long> live = new ConcurrentHashMap<>(index.size() * 2);
+            ByteBuffer out = ByteBuffer.allocate(1 << 16);
+            long targetPosition = 0;
+            for (Map.Entry<String, Long> e : index.entrySet()) {
+                long entry = e.getValue();
+                if (entry >>> LENGTH_BITS >= copiedUpTo) continue; // Newer than the snapshot: copied below
+                byte[] bytes = readLine(channel, entry).getBytes(StandardCharsets.UTF_8);
+                if (out.remaining() < bytes.length + 1) {
+                    targetPosition += flush(out, target, targetPosition);
+                    if (out.capacity() < bytes.length + 1) out = ByteBuffer.allocate(bytes.length + 1);
+                }
+                live.put(e.getKey(), pack(targetPosition + out.position(), bytes.length));
+                out.put(bytes).put((byte) '\n');
+            }
+            targetPosition += flush(out, target, targetPosition);
+
+            synchronized (writeLock) {
+                long tail = writePosition - copiedUpTo;
+                long moved = 0;
+                while (moved < tail) {
+                    moved += channel.transferTo(copiedUpTo + moved, tail - moved, target.position(targetPosition + moved));
+                }
+                scan(target, targetPosition, targetPosition + tail, live, null);
+                target.force(true);
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+                long before = writePosition;
+                swapLock.writeLock().lock();
+                try {
+                    channel.close();
+                    channel = target;
+                    index = live;
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+                writePosition = targetPosition + tail;
+                garbage.set(0);
+                System.out.println("User log compacted: " + before / 1024 + " KB -> " + writePosition / 1024
+                        + " KB in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            }
+        } catch (IOException | RuntimeException e) {
+            if (target != channel) {
+                target.close();
+                Files.deleteIfExists(tmp);
+            }
+            throw e;
+        }
+    }
+
+    private static long flush(ByteBuffer out, FileChannel target, long position) throws IOException {
+        out.flip();
+        int written = out.remaining();
+        while (out.hasRemaining()) target.write(out, position + out.position());
+        out.clear();
+        return written;
+    }
+}
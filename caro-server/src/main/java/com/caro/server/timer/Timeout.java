@@ -0,0 +1,9 @@
+package com.caro.server.timer;
+
+// Handle returned by TimingWheel.schedule, used to cancel a pending task
+public interface Timeout {
+    // Returns false if the task already ran or was cancelled before
+    boolean cancel();
+    boolean isCancelled();
+    boolean isExpired();
+}
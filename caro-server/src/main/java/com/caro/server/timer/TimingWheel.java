@@ -0,0 +1,214 @@
+package com.caro.server.timer;
+
+import com.caro.common.util.LatencyHistogram;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashed timing wheel driven by a single ticker thread.
+ *
+ * Scheduling and cancelling are O(1): new timeouts go through a lock-free queue
+ * and are hashed into a bucket on the next tick, cancelled ones are unlinked from
+ * their bucket's doubly-linked list. Expired tasks are handed to an executor so a
+ * slow task (e.g. an RMI callback) never stalls the wheel.
+ */
+public class TimingWheel {
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final Thread ticker;
+
+    private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    // Lag between a timeout's deadline and the moment it was handed to the executor
+    private final LatencyHistogram lagMillis = new LatencyHistogram("ms");
+
+    private final long startNanos;
+    private volatile boolean running = true;
+    private long tick;
+
+    public TimingWheel(String name, long tickDuration, TimeUnit unit, int wheelSize, Executor taskExecutor) {
+        // Round up to a power of two so the bucket index is a simple mask
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.taskExecutor = taskExecutor;
+        this.startNanos = System.nanoTime();
+
+        this.ticker = new Thread(this::run, name);
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay));
+        WheelTimeout timeout = new WheelTimeout(task, deadline);
+        pendingCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    public void stop() {
+        running = false;
+        ticker.interrupt();
+    }
+
+    // --- Metrics ---
+
+    public long getTickMillis() { return TimeUnit.NANOSECONDS.toMillis(tickNanos); }
+    public long getPendingTimeouts() { return pendingCount.get(); }
+    public LatencyHistogram getLagHistogram() { return lagMillis; }
+
+    // --- Ticker ---
+
+    private void run() {
+        while (running) {
+            long now = waitForNextTick();
+            if (now < 0) continue;
+
+            Bucket bucket = wheel[(int) (tick & mask)];
+            removeCancelled();
+            transferPending();
+            bucket.expire(now);
+            tick++;
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long current = System.nanoTime() - startNanos;
+            long sleepMs = (deadline - current + 999_999) / 1_000_000;
+            if (sleepMs <= 0) return current;
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                if (!running) return -1;
+            }
+        }
+    }
+
+    private void transferPending() {
+        // Cap per tick so a scheduling burst cannot starve expiry
+        for (int i = 0; i < 100_000; i++) {
+            WheelTimeout timeout = pendingTimeouts.poll();
+            if (timeout == null) break;
+            if (timeout.state == WheelTimeout.ST_CANCELLED) {
+                pendingCount.decrementAndGet();
+                continue;
+            }
+
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // Already overdue timeouts go into the current bucket
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        WheelTimeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+        }
+    }
+
+    private final class Bucket {
+        private WheelTimeout head;
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long now) {
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire(now);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(WheelTimeout timeout) {
+            if (timeout.bucket != this) return;
+            if (timeout.prev != null) timeout.prev.next = timeout.next;
+            if (timeout.next != null) timeout.next.prev = timeout.prev;
+            if (timeout == head) head = timeout.next;
+            if (timeout == tail) tail = timeout.prev;
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    private final class WheelTimeout implements Timeout {
+        static final int ST_INIT = 0;
+        static final int ST_CANCELLED = 1;
+        static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state = ST_INIT;
+
+        // Only touched by the ticker thread
+        long remainingRounds;
+        WheelTimeout next;
+        WheelTimeout prev;
+        Bucket bucket;
+
+        WheelTimeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_CANCELLED)) return false;
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() { return state == ST_CANCELLED; }
+
+        @Override
+        public boolean isExpired() { return state == ST_EXPIRED; }
+
+        void expire(long now) {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED)) return;
+            lagMillis.record(TimeUnit.NANOSECONDS.toMillis(now - deadline));
+            try {
+                taskExecutor.execute(task);
+            } catch (Exception e) {
+                System.err.println("Timer task rejected: " + e.getMessage());
+            }
+        }
+    }
+}
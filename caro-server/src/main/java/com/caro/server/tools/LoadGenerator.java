@@ -0,0 +1,246 @@
+package com.caro.server.tools;
+
+import com.caro.common.model.ChatMessage;
+import com.caro.common.model.GameSettings;
+import com.caro.common.model.GameState;
+import com.caro.common.model.LobbyDelta;
+import com.caro.common.model.MoveAck;
+import com.caro.common.model.Room;
+import com.caro.common.net.RmiTraffic;
+import com.caro.common.net.TunedSocketFactory;
+import com.caro.common.net.WireGameClient;
+import com.caro.common.service.ClientCallback;
+import com.caro.common.service.GameService;
+import com.caro.common.util.GameConstants;
+import com.caro.common.util.LatencyHistogram;
+
+import java.rmi.registry.LocateRegistry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays many simultaneous games against a running server and reports move latency.
+ *
+ *   java -cp caro-server.jar:caro-common.jar com.caro.server.tools.LoadGenerator rmi|nio host sessions seconds
+ *
+ * Sessions are paired into rooms; each player moves on a random empty cell a short while
+ * after it sees its turn. Latency is measured from sending placeMove until the mover sees
+ * its own stone in a pushed GameState, so it covers the request and the push path.
+ */
+public class LoadGenerator {
+    // Config: Delay between seeing your turn and moving
+    private static final long THINK_MS = 250;
+    // Config: Heartbeat period per session
+    private static final long HEARTBEAT_MS = 4000;
+
+    private final String transport;
+    private final String host;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(8, r -> {
+        Thread t = new Thread(r, "load-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile LatencyHistogram moveLatency = new LatencyHistogram("us");
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong nacks = new AtomicLong();
+    private final List<Player> players = new ArrayList<>();
+
+    LoadGenerator(String transport, String host) {
+        this.transport = transport;
+        this.host = host;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: LoadGenerator rmi|nio <host> <sessions> <seconds>");
+            return;
+        }
+        LoadGenerator generator = new LoadGenerator(args[0], args[1]);
+        generator.run(Integer.parseInt(args[2]) / 2 * 2, Integer.parseInt(args[3]));
+        System.exit(0);
+    }
+
+    void run(int sessions, int seconds) throws InterruptedException {
+        long runId = System.currentTimeMillis() % 100000;
+        long rampStart = System.currentTimeMillis();
+        for (int i = 0; i < sessions; i += 2) {
+            Player host = new Player("lg" + runId + "-" + i);
+            Player guest = new Player("lg" + runId + "-" + (i + 1));
+            players.add(host);
+            players.add(guest);
+            try {
+                startPair(host, guest);
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                System.err.println("Pair " + i + " failed: " + e.getMessage());
+            }
+            if (i % 200 == 0) System.out.println("Connected " + connected.get() + " sessions...");
+        }
+        System.out.println("Ramp-up: " + connected.get() + "/" + sessions + " sessions in "
+                + (System.currentTimeMillis() - rampStart) + " ms");
+
+        // Measure steady state only
+        moveLatency = new LatencyHistogram("us");
+        moves.set(0);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+
+        System.out.println("transport=" + transport + " sessions=" + connected.get() + " failures=" + failures.get()
+                + " moves=" + moves.get() + " (" + moves.get() / Math.max(1, seconds) + "/s) nacks=" + nacks.get());
+        System.out.println("move latency: " + moveLatency);
+        if (!"nio".equalsIgnoreCase(transport)) System.out.print(RmiTraffic.dump());
+        for (Player p : players) p.close();
+    }
+
+    private void startPair(Player host, Player guest) throws Exception {
+        host.connect();
+        guest.connect();
+        host.service.createRoom(host.username, new GameSettings(15, 1000, 30));
+        Room room = host.awaitRoom();
+        guest.service.joinRoom(guest.username, room.getId());
+        guest.awaitRoom();
+        host.service.startGame(host.username, room.getId());
+    }
+
+    private GameService lookupRmi() throws Exception {
+        GameService stub = (GameService) LocateRegistry.getRegistry(host, GameConstants.RMI_PORT).lookup(GameConstants.RMI_ID);
+        return RmiTraffic.labelled(GameService.class, stub);
+    }
+
+    // --- One simulated client ---
+
+    private final class Player implements ClientCallback {
+        final String username;
+        GameService service;
+        volatile String roomId;
+        volatile int myCell;
+        final CountDownLatch roomLatch = new CountDownLatch(1);
+        volatile Room room;
+        // Move in flight: cell index and send time, or -1
+        volatile int pendingCell = -1;
+        volatile long pendingSince;
+        volatile boolean moving;
+        // Stones on the board right after our last move; the push that still shows our
+        // turn (sent before the server switches turns) must not trigger another move
+        volatile int stonesAfterMove = -1;
+        long moveSeq;
+        volatile long boardVersion = -1;
+
+        Player(String username) {
+            this.username = username;
+        }
+
+        void connect() throws Exception {
+            ClientCallback callback;
+            if ("nio".equalsIgnoreCase(transport)) {
+                service = new WireGameClient(host, GameConstants.NIO_PORT, this);
+                callback = this;
+            } else {
+                service = lookupRmi();
+                callback = (ClientCallback) UnicastRemoteObject.exportObject(this, 0,
+                        new TunedSocketFactory(), new TunedSocketFactory());
+            }
+            if (service.login(username, callback) == 0) throw new IllegalStateException("Login refused for " + username);
+            connected.incrementAndGet();
+            scheduler.scheduleAtFixedRate(() -> {
+                try {
+                    service.sendHeartbeat(username);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            }, HEARTBEAT_MS, HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+        }
+
+        Room awaitRoom() throws InterruptedException {
+            if (!roomLatch.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("No room info for " + username);
+            return room;
+        }
+
+        void close() {
+            if (service == null) return;
+            try {
+                service.logout(username);
+            } catch (Exception e) {
+                // ignore
+            }
+            if (service instanceof WireGameClient) ((WireGameClient) service).close();
+        }
+
+        @Override
+        public void onRoomInfoUpdate(Room r) {
+            room = r;
+            roomId = r.getId();
+            myCell = username.equals(r.getHostUsername()) ? GameConstants.CELL_X : GameConstants.CELL_O;
+            roomLatch.countDown();
+        }
+
+        @Override
+        public void onGameStateUpdate(GameState state) {
+            int[][] board = state.getBoard();
+            boardVersion = state.getVersion();
+            int stones = countStones(board);
+            int pending = pendingCell;
+            if (pending >= 0 && board[pending / board.length][pending % board.length] == myCell) {
+                moveLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - pendingSince));
+                moves.incrementAndGet();
+                pendingCell = -1;
+            }
+            if (username.equals(state.getCurrentTurnUsername()) && pendingCell < 0 && !moving
+                    && stones != stonesAfterMove) {
+                moving = true;
+                scheduler.schedule(() -> move(board), THINK_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void move(int[][] board) {
+            try {
+                int size = board.length;
+                int start = ThreadLocalRandom.current().nextInt(size * size);
+                for (int k = 0; k < size * size; k++) {
+                    int cell = (start + k) % (size * size);
+                    if (board[cell / size][cell % size] != GameConstants.CELL_EMPTY) continue;
+                    pendingCell = cell;
+                    pendingSince = System.nanoTime();
+                    stonesAfterMove = countStones(board) + 1;
+                    MoveAck ack = service.placeMove(username, roomId, cell / size, cell % size, ++moveSeq, boardVersion);
+                    if (!ack.isAccepted()) {
+                        nacks.incrementAndGet();
+                        pendingCell = -1;
+                    }
+                    return;
+                }
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                pendingCell = -1;
+            } finally {
+                moving = false;
+            }
+        }
+
+        private int countStones(int[][] board) {
+            int stones = 0;
+            for (int[] row : board) {
+                for (int cell : row) if (cell != GameConstants.CELL_EMPTY) stones++;
+            }
+            return stones;
+        }
+
+        @Override public void onLobbyUpdate(List<Room> rooms) {}
+        @Override public void onLobbyDelta(LobbyDelta delta) {}
+        @Override public void onUserListUpdate(List<String> users) {}
+        @Override public void onChatMessageReceived(ChatMessage message) {}
+        @Override public void onGameEnded(String winnerUsername) { pendingCell = -1; }
+        @Override public void onKicked(String reason) {}
+        @Override public void onSpectateEvents(List<byte[]> events) {}
+        @Override public void ping() {}
+    }
+}
@@ -0,0 +1,162 @@
+package com.caro.server.journal;
+
+import com.caro.common.model.Replay;
+import com.caro.common.util.GameConstants;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameRecordTest {
+    private static final int K = GameRecord.KEYFRAME_INTERVAL;
+
+    // A game of 'moves' moves on distinct cells, host and guest alternating
+    private static int[] cells(int boardSize, int moves, long seed) {
+        int[] all = new int[boardSize * boardSize];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        Random random = new Random(seed);
+        for (int i = all.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = all[i];
+            all[i] = all[j];
+            all[j] = t;
+        }
+        return Arrays.copyOf(all, moves);
+    }
+
+    private static byte[] encode(int boardSize, int[] cells, long id, int result) {
+        GameRecord record = new GameRecord("host", "guest", boardSize, 2);
+        for (int i = 0; i < cells.length; i++) {
+            record.addMove(cells[i] / boardSize, cells[i] % boardSize, i % 2 == 0 ? GameRecord.SIDE_HOST : GameRecord.SIDE_GUEST);
+        }
+        return record.encode(id, result);
+    }
+
+    // The board before move 'from', as the reader should rebuild it
+    private static byte[] boardBefore(int boardSize, int[] cells, int from) {
+        byte[] board = new byte[boardSize * boardSize];
+        for (int i = 0; i < from; i++) board[cells[i]] = (byte) (i % 2 + 1);
+        return board;
+    }
+
+    private static void assertPage(int boardSize, int[] cells, byte[] encoded, int fromMove, int count) {
+        Replay replay = ReplayStore.decode(ByteBuffer.wrap(encoded), fromMove, count);
+        int from = Math.max(0, Math.min(fromMove, cells.length));
+        int n = Math.max(0, Math.min(Math.min(count, GameConstants.REPLAY_PAGE_MOVES), cells.length - from));
+        String at = cells.length + " moves from " + fromMove;
+
+        assertEquals(cells.length, replay.getTotalMoves(), at);
+        assertEquals(from, replay.getFromMove(), at);
+        assertArrayEquals(boardBefore(boardSize, cells, from), replay.getBoard(), at);
+        assertEquals(n, replay.getMoveCount(), at);
+        for (int i = 0; i < n; i++) {
+            assertEquals(cells[from + i], replay.getCell(i), at + ", move " + i);
+            assertEquals((from + i) % 2, replay.getSide(i), at + ", move " + i);
+        }
+    }
+
+    @Test
+    void readsEveryPageAroundKeyframes() {
+        int boardSize = 15;
+        for (int moves : new int[]{0, 1, K - 1, K, K + 1, 2 * K, 2 * K + 1, 100, 225}) {
+            int[] cells = cells(boardSize, moves, moves);
+            byte[] encoded = encode(boardSize, cells, 42, GameRecord.HOST_WIN);
+
+            TreeSet<Integer> starts = new TreeSet<>(Arrays.asList(0, 1, K - 1, K, K + 1, 2 * K - 1, 2 * K, 2 * K + 1));
+            starts.add(Math.max(0, moves - 1));
+            starts.add(moves);
+            starts.add(moves + 5);
+            for (int from : starts) {
+                assertPage(boardSize, cells, encoded, from, 1000);
+                assertPage(boardSize, cells, encoded, from, 3);
+            }
+        }
+    }
+
+    @Test
+    void everyStartOfALongGame() {
+        int boardSize = 20;
+        int[] cells = cells(boardSize, 399, 7);
+        byte[] encoded = encode(boardSize, cells, 1, GameRecord.DRAW);
+        for (int from = 0; from <= cells.length; from++) assertPage(boardSize, cells, encoded, from, K + 1);
+        // Capped at a page
+        assertPage(boardSize, cells, encoded, 0, Integer.MAX_VALUE);
+    }
+
+    @Test
+    void keyframeCountAndHeader() {
+        int boardSize = 9; // 81 cells: the packed board ends in a partial byte
+        for (int moves : new int[]{0, 1, K, K + 1, 2 * K, 2 * K + 1, 81}) {
+            int[] cells = cells(boardSize, moves, 3);
+            byte[] encoded = encode(boardSize, cells, 300, GameRecord.GUEST_WIN);
+            Replay replay = ReplayStore.decode(ByteBuffer.wrap(encoded), moves, 0);
+            assertEquals(300, replay.getGameId());
+            assertEquals("host", replay.getHostUsername());
+            assertEquals("guest", replay.getGuestUsername());
+            assertEquals(boardSize, replay.getBoardSize());
+            assertEquals(2, replay.getRound());
+            assertEquals(GameRecord.GUEST_WIN, replay.getResult());
+            assertArrayEquals(boardBefore(boardSize, cells, moves), replay.getBoard());
+
+            // Keyframes sit after the moves: interval, count, then (offset, packed board) each
+            ByteBuffer in = ByteBuffer.wrap(encoded);
+            for (int i = 0; i < 4; i++) GameRecord.readVarint(in);
+            for (int i = 0; i < 2; i++) skip(in);
+            for (int i = 0; i < 2; i++) GameRecord.readVarint(in);
+            skip(in);
+            assertEquals(K, GameRecord.readVarint(in));
+            int keyframes = (int) GameRecord.readVarint(in);
+            assertEquals(moves == 0 ? 0 : (moves - 1) / K, keyframes);
+            assertEquals(encoded.length, in.position() + keyframes * (4 + GameRecord.packedSize(boardSize)));
+        }
+    }
+
+    // Past a varint length and that many bytes
+    private static void skip(ByteBuffer in) {
+        int length = (int) GameRecord.readVarint(in);
+        in.position(in.position() + length);
+    }
+
+    @Test
+    void guestlessRecord() {
+        GameRecord record = new GameRecord("host", null, 15, 1);
+        record.addMove(7, 7, GameRecord.SIDE_HOST);
+        Replay replay = ReplayStore.decode(ByteBuffer.wrap(record.encode(0, GameRecord.ABANDONED)), 0, 10);
+        assertEquals("", replay.getGuestUsername());
+        assertEquals(7 * 15 + 7, replay.getCell(0));
+    }
+
+    @Test
+    void varintRoundTrips() {
+        long[] values = {0, 1, 127, 128, 16383, 16384, 1L << 35, Long.MAX_VALUE, -1};
+        byte[] out = new byte[values.length * 10];
+        int pos = 0;
+        for (long value : values) pos = GameRecord.writeVarint(out, pos, value);
+        ByteBuffer in = ByteBuffer.wrap(out, 0, pos);
+        for (long value : values) assertEquals(value, GameRecord.readVarint(in));
+        assertEquals(pos, in.position());
+        assertEquals(1, GameRecord.writeVarint(new byte[10], 0, 127));
+        assertEquals(2, GameRecord.writeVarint(new byte[10], 0, 128));
+        assertEquals(10, GameRecord.writeVarint(new byte[10], 0, -1));
+    }
+
+    @Test
+    void packedBoardRoundTrips() {
+        for (int size : new int[]{5, 9, 15, 20}) {
+            byte[] board = new byte[size * size];
+            Random random = new Random(size);
+            for (int i = 0; i < board.length; i++) board[i] = (byte) random.nextInt(3);
+            // Four cells per byte, first cell in the high bits
+            byte[] packed = new byte[GameRecord.packedSize(size)];
+            for (int i = 0; i < board.length; i++) packed[i / 4] |= (byte) (board[i] << (6 - 2 * (i % 4)));
+            byte[] unpacked = new byte[board.length];
+            GameRecord.unpack(ByteBuffer.wrap(packed), unpacked);
+            assertArrayEquals(board, unpacked);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.caro.server.rating;
+
+import com.caro.common.model.LeaderboardEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderboardTest {
+
+    // Reference: every player sorted by rating (highest first), then name; a rank is one
+    // more than the number of players rated strictly higher
+    private static List<LeaderboardEntry> reference(Map<String, Integer> ratings) {
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(ratings.entrySet());
+        sorted.sort(Comparator.comparingInt((Map.Entry<String, Integer> e) -> -e.getValue())
+                .thenComparing(Map.Entry::getKey));
+        List<LeaderboardEntry> entries = new ArrayList<>(sorted.size());
+        int rank = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            if (i == 0 || !sorted.get(i).getValue().equals(sorted.get(i - 1).getValue())) rank = i + 1;
+            entries.add(new LeaderboardEntry(rank, sorted.get(i).getKey(), sorted.get(i).getValue()));
+        }
+        return entries;
+    }
+
+    private static void assertSame(List<LeaderboardEntry> expected, List<LeaderboardEntry> actual, String what) {
+        assertEquals(expected.size(), actual.size(), what);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getUsername(), actual.get(i).getUsername(), what + " #" + i);
+            assertEquals(expected.get(i).getRating(), actual.get(i).getRating(), what + " #" + i);
+            assertEquals(expected.get(i).getRank(), actual.get(i).getRank(), what + " #" + i);
+        }
+    }
+
+    private static void assertMatches(Leaderboard board, Map<String, Integer> ratings) {
+        List<LeaderboardEntry> expected = reference(ratings);
+        assertEquals(expected.size(), board.size());
+        for (int i = 0; i < expected.size(); i++) {
+            LeaderboardEntry e = expected.get(i);
+            assertEquals(e.getRank(), board.rank(e.getUsername()), e.getUsername());
+            assertEquals(e.getRating(), board.ratingOf(e.getUsername()), e.getUsername());
+        }
+        for (int count : new int[]{0, 1, 10, expected.size(), expected.size() + 5}) {
+            assertSame(expected.subList(0, Math.min(count, expected.size())), board.top(count), "top " + count);
+        }
+        for (int i = 0; i < expected.size(); i += Math.max(1, expected.size() / 50)) {
+            for (int radius : new int[]{0, 1, 3}) {
+                List<LeaderboardEntry> slice = expected.subList(Math.max(0, i - radius), Math.min(expected.size(), i + radius + 1));
+                assertSame(slice, board.around(expected.get(i).getUsername(), radius), "around #" + i + " radius " + radius);
+            }
+        }
+        // Both ends of the board
+        if (!expected.isEmpty()) {
+            int last = expected.size() - 1;
+            assertSame(expected.subList(0, Math.min(3, expected.size())), board.around(expected.get(0).getUsername(), 2), "around first");
+            assertSame(expected.subList(Math.max(0, last - 2), expected.size()), board.around(expected.get(last).getUsername(), 2), "around last");
+        }
+    }
+
+    @Test
+    void ranksAndTiesMatchASortedList() {
+        Leaderboard board = new Leaderboard();
+        Map<String, Integer> ratings = new HashMap<>();
+        Random random = new Random(1);
+        // A narrow band, so most ratings are shared by several players
+        for (int i = 0; i < 2000; i++) {
+            String name = "p" + i;
+            int rating = 1450 + random.nextInt(100);
+            board.put(name, rating);
+            ratings.put(name, rating);
+        }
+        assertMatches(board, ratings);
+
+        // Rating changes, removals and re-adds, as matches are played
+        for (int i = 0; i < 3000; i++) {
+            String name = "p" + random.nextInt(2200);
+            if (random.nextInt(10) == 0) {
+                board.remove(name);
+                ratings.remove(name);
+            } else {
+                int rating = 1400 + random.nextInt(200);
+                board.put(name, rating);
+                ratings.put(name, rating);
+            }
+        }
+        assertMatches(board, ratings);
+    }
+
+    @Test
+    void extremesAndClamping() {
+        Leaderboard board = new Leaderboard();
+        Map<String, Integer> ratings = new HashMap<>();
+        board.put("top", Leaderboard.MAX_RATING);
+        ratings.put("top", Leaderboard.MAX_RATING);
+        board.put("bottom", 0);
+        ratings.put("bottom", 0);
+        board.put("over", Leaderboard.MAX_RATING + 500);
+        ratings.put("over", Leaderboard.MAX_RATING);
+        board.put("under", -7);
+        ratings.put("under", 0);
+        board.put("middle", 1500);
+        ratings.put("middle", 1500);
+        assertMatches(board, ratings);
+        assertEquals(1, board.rank("over"));
+        assertEquals(4, board.rank("under"));
+
+        // Same rating again changes nothing
+        board.put("middle", 1500);
+        assertMatches(board, ratings);
+    }
+
+    @Test
+    void unknownPlayers() {
+        Leaderboard board = new Leaderboard();
+        assertEquals(0, board.rank("nobody"));
+        assertEquals(-1, board.ratingOf("nobody"));
+        assertTrue(board.around("nobody", 5).isEmpty());
+        assertTrue(board.top(10).isEmpty());
+        board.put("a", 1000);
+        board.remove("a");
+        board.remove("a");
+        assertEquals(0, board.size());
+        assertEquals(0, board.rank("a"));
+        assertTrue(board.top(10).isEmpty());
+    }
+}